@@ -0,0 +1,54 @@
+package benchmark;
+
+import task.Deadline;
+import task.Event;
+import task.Task;
+import task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Task lists and file helpers shared by the benchmarks.
+ */
+final class BenchmarkData {
+    static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates a list with equal numbers of todos, deadlines and events,
+     * each with a distinct description and time.
+     */
+    static List<Task> generate(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            switch (i % 3) {
+            case 0:
+                tasks.add(new Todo("read chapter " + i));
+                break;
+            case 1:
+                tasks.add(new Deadline("submit report " + i, BASE.plusMinutes(i)));
+                break;
+            default:
+                tasks.add(new Event("team meeting " + i, BASE.plusMinutes(i), BASE.plusMinutes(i + 60)));
+            }
+        }
+        return tasks;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import storage.FsyncPolicy;
+import storage.SnapshotFormat;
+import storage.Storage;
+import task.Parser;
+import task.Task;
+import task.TaskList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a stream of commands as the command loop runs them: parse, update the list,
+ * journal the change. The mix decides the share of each command:
+ * <ul>
+ *     <li>{@code read} - 90% find, 10% mark/unmark</li>
+ *     <li>{@code write} - adds, deletes and marks only</li>
+ *     <li>{@code mixed} - half finds, half writes</li>
+ * </ul>
+ * Adds and deletes alternate so the list stays near its starting size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandMixBenchmark {
+    private static final int SEQUENCE_LENGTH = 4096;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"read", "write", "mixed"})
+    public String mix;
+
+    private Path dir;
+    private Storage storage;
+    private TaskList tasks;
+    private String[] commands;
+    private int next;
+    private boolean isAddNext = true;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("starou-jmh");
+        storage = new Storage(dir.resolve("Starou.txt").toString(), SnapshotFormat.TEXT, FsyncPolicy.never());
+        storage.load();
+        tasks = new TaskList(BenchmarkData.generate(size));
+        storage.save(tasks);
+
+        int findPercent = mix.equals("read") ? 90 : mix.equals("mixed") ? 50 : 0;
+        Random random = new Random(42);
+        commands = new String[SEQUENCE_LENGTH];
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int roll = random.nextInt(100);
+            if (roll < findPercent) {
+                commands[i] = "find report " + random.nextInt(size);
+            } else if (mix.equals("read") || roll % 2 == 0) {
+                commands[i] = (random.nextBoolean() ? "mark " : "unmark ") + (1 + random.nextInt(size));
+            } else {
+                commands[i] = "change";
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Object execute() {
+        String command = commands[next];
+        next = (next + 1) % SEQUENCE_LENGTH;
+
+        if (command.startsWith("find")) {
+            return tasks.find(Parser.parseFindCommand(command));
+        }
+        if (command.equals("change")) {
+            isAddNext = !isAddNext;
+            if (!isAddNext) {
+                Task task = Parser.parseAddCommand("deadline submit report /by 2025-10-10 23:59");
+                tasks.add(task);
+                storage.logAdd(tasks, task);
+                return task;
+            }
+            int index = tasks.size() - 1;
+            Task removed = tasks.remove(index);
+            storage.logDelete(tasks, index + 1);
+            return removed;
+        }
+
+        String[] parts = command.split(" ");
+        int index = Integer.parseInt(parts[1]) - 1;
+        boolean isDone = parts[0].equals("mark");
+        Task task = tasks.setDone(index, isDone);
+        storage.logMark(tasks, index + 1, isDone);
+        return task;
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.Query;
+import task.TaskList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code find} for plain keywords and for queries, resolved the same way the command does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FindBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"report 42", "meeting", "type:D by<2025-01-02", "chapter AND done:0", "NOT meeting"})
+    public String keyword;
+
+    private TaskList tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(BenchmarkData.generate(size));
+        tasks.find("warm up the index");
+    }
+
+    @Benchmark
+    public int[] find() {
+        return Query.isQuery(keyword) ? tasks.search(Query.parse(keyword)) : tasks.find(keyword);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.Parser;
+import task.Task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Parser#parseAddCommand(String)} for each kind of task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParserBenchmark {
+    @Param({"todo", "deadline", "event"})
+    public String kind;
+
+    private String command;
+
+    @Setup
+    public void setUp() {
+        switch (kind) {
+        case "todo":
+            command = "todo read book";
+            break;
+        case "deadline":
+            command = "deadline submit report /by 2025-10-10 23:59";
+            break;
+        default:
+            command = "event project meeting /from 2025-10-12 14:00 /to 2025-10-12 16:00";
+        }
+    }
+
+    @Benchmark
+    public Task parseAddCommand() {
+        return Parser.parseAddCommand(command);
+    }
+}
@@ -0,0 +1,110 @@
+package benchmark;
+
+import storage.CommitMetrics;
+import storage.FsyncPolicy;
+import storage.SnapshotFormat;
+import storage.Storage;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long {@link Storage#save(List)} takes under each {@link FsyncPolicy}
+ * and {@link SnapshotFormat} for lists of 10k, 100k and 1M tasks, plus the cold load
+ * time, the latency of logging a single journaled edit, and how long edits wait in the
+ * group-commit queue until they are durable.
+ * <p>
+ * Run with {@code gradle saveBenchmark}. Sizes can be overridden with
+ * {@code -Psizes=10000,50000}.
+ * </p>
+ */
+public class SaveLatencyBenchmark {
+    private static final int WARMUP_SAVES = 2;
+    private static final int MEASURED_SAVES = 5;
+    private static final int JOURNAL_APPENDS = 2_000;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+        FsyncPolicy[] policies = {FsyncPolicy.always(), FsyncPolicy.every(1000), FsyncPolicy.never()};
+
+        System.out.printf("%-10s %-7s %-14s %12s %12s %12s %12s %14s %14s %12s %12s%n", "tasks", "format", "policy",
+                "save p50 ms", "save max ms", "MB/s", "load ms", "append p50 us", "append p99 us",
+                "ack p99 us", "recs/commit");
+        for (int size : sizes) {
+            List<Task> tasks = BenchmarkData.generate(size);
+            for (SnapshotFormat format : SnapshotFormat.values()) {
+                for (FsyncPolicy policy : policies) {
+                    Path dir = Files.createTempDirectory("starou-bench");
+                    try {
+                        run(dir, tasks, format, policy);
+                    } finally {
+                        BenchmarkData.deleteRecursively(dir);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(Path dir, List<Task> tasks, SnapshotFormat format, FsyncPolicy policy)
+            throws IOException {
+        Path file = dir.resolve("Starou.txt");
+        Storage storage = new Storage(file.toString(), format, Integer.MAX_VALUE, Long.MAX_VALUE, policy);
+        storage.load();
+
+        for (int i = 0; i < WARMUP_SAVES; i++) {
+            storage.save(tasks);
+        }
+        long[] saves = new long[MEASURED_SAVES];
+        for (int i = 0; i < MEASURED_SAVES; i++) {
+            long start = System.nanoTime();
+            storage.save(tasks);
+            saves[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(saves);
+
+        List<Task> journaled = new ArrayList<>(tasks);
+        long[] appends = new long[JOURNAL_APPENDS];
+        for (int i = 0; i < JOURNAL_APPENDS; i++) {
+            long start = System.nanoTime();
+            storage.logMark(journaled, 1 + i % tasks.size(), i % 2 == 0);
+            appends[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(appends);
+        Storage.await(storage.flush());
+        CommitMetrics commits = storage.metrics();
+        storage.save(tasks);
+        storage.close();
+
+        long loadStart = System.nanoTime();
+        Storage reloaded = new Storage(file.toString(), format, policy);
+        reloaded.load();
+        long loadNanos = System.nanoTime() - loadStart;
+        reloaded.close();
+
+        double megabytes = directorySize(dir) / 1e6;
+        double p50Millis = saves[saves.length / 2] / 1e6;
+        System.out.printf("%-10d %-7s %-14s %12.2f %12.2f %12.1f %12.1f %14.1f %14.1f %12d %12.1f%n", tasks.size(),
+                format.name().toLowerCase(), policy, p50Millis, saves[saves.length - 1] / 1e6,
+                megabytes / (p50Millis / 1e3), loadNanos / 1e6,
+                appends[appends.length / 2] / 1e3, appends[appends.length * 99 / 100] / 1e3,
+                commits.latencyMicros(0.99), commits.averageGroupSize());
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        long total = 0;
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                total += Files.size(p);
+            }
+        }
+        return total;
+    }
+}
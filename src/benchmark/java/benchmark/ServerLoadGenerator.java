@@ -0,0 +1,157 @@
+package benchmark;
+
+import server.CommandServer;
+import storage.FsyncPolicy;
+import storage.SnapshotFormat;
+import storage.Storage;
+import storage.TaskRepository;
+import task.TaskList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens many concurrent connections to a {@link CommandServer} and reports command throughput
+ * and latency percentiles.
+ * <p>
+ * Without {@code --port} it starts a server in this process on a free port, with an empty save
+ * file in a temporary directory. Options (all optional):
+ * {@code --host <host> --port <port> --clients <N> --commands <per client> --mix <read|write|mixed>}.
+ * Run with {@code gradle loadTest -PloadArgs="--clients 200 --mix write"}.
+ * </p>
+ */
+public class ServerLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        String host = options.getOrDefault("--host", "localhost");
+        int clients = Integer.parseInt(options.getOrDefault("--clients", "100"));
+        int commands = Integer.parseInt(options.getOrDefault("--commands", "200"));
+        String mix = options.getOrDefault("--mix", "mixed");
+
+        Path dir = null;
+        Storage storage = null;
+        CommandServer server = null;
+        int port;
+        if (options.containsKey("--port")) {
+            port = Integer.parseInt(options.get("--port"));
+        } else {
+            dir = Files.createTempDirectory("starou-load");
+            storage = new Storage(dir.resolve("Starou.txt").toString(), SnapshotFormat.TEXT, FsyncPolicy.every(1000));
+            server = new CommandServer(0, new TaskRepository(new TaskList(storage.load()), storage));
+            server.start();
+            port = server.port();
+        }
+
+        try {
+            run(host, port, clients, commands, mix);
+        } finally {
+            if (server != null) {
+                server.close();
+                storage.close();
+                BenchmarkData.deleteRecursively(dir);
+            }
+        }
+    }
+
+    private static void run(String host, int port, int clients, int commands, String mix) throws InterruptedException {
+        long[][] latencies = new long[clients][];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        ExecutorService threads = CommandServer.newConnectionExecutor();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            threads.execute(() -> {
+                try (Socket socket = new Socket(host, port)) {
+                    socket.setTcpNoDelay(true);
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                    readReply(in);
+                    ready.countDown();
+                    go.await();
+                    latencies[client] = runClient(client, in, out, commands, mix);
+                    out.write("bye\n");
+                    out.flush();
+                } catch (IOException | InterruptedException e) {
+                    failures.incrementAndGet();
+                    ready.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        threads.shutdown();
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.println("No command completed; failed clients: " + failures.get());
+            return;
+        }
+        System.out.printf("%-8s %-7s %10s %12s %10s %10s %10s %8s%n",
+                "clients", "mix", "commands", "commands/s", "p50 ms", "p99 ms", "max ms", "failed");
+        System.out.printf("%-8d %-7s %10d %12.0f %10.2f %10.2f %10.2f %8d%n", clients, mix, all.length,
+                all.length / (elapsed / 1e9), all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6,
+                all[all.length - 1] / 1e6, failures.get());
+    }
+
+    private static long[] runClient(int client, BufferedReader in, Writer out, int commands, String mix)
+            throws IOException {
+        Random random = new Random(client);
+        int writePercent = mix.equals("read") ? 10 : mix.equals("write") ? 100 : 50;
+        long[] latencies = new long[commands];
+        for (int i = 0; i < commands; i++) {
+            String command;
+            if (random.nextInt(100) < writePercent) {
+                command = i % 4 == 3 ? "mark 1" : "todo load test " + client + "-" + i;
+            } else {
+                command = i % 2 == 0 ? "find load test " + client : "list --page 1 --size 10";
+            }
+            long start = System.nanoTime();
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            readReply(in);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    /**
+     * Reads one reply, which ends with an empty line.
+     */
+    private static void readReply(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            //Discard the reply
+        }
+        if (line == null) {
+            throw new IOException("Server closed the connection");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import storage.FsyncPolicy;
+import storage.SnapshotFormat;
+import storage.Storage;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load and to save a whole snapshot in each {@link SnapshotFormat}.
+ * The {@code never} fsync policy is used so the numbers show encoding and I/O cost rather than disk sync
+ * latency; {@link SaveLatencyBenchmark} covers the policies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"TEXT", "BINARY"})
+    public SnapshotFormat format;
+
+    private Path dir;
+    private String file;
+    private List<Task> tasks;
+    private Storage storage;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("starou-jmh");
+        file = dir.resolve("Starou.txt").toString();
+        tasks = BenchmarkData.generate(size);
+        storage = new Storage(file, format, FsyncPolicy.never());
+        storage.load();
+        storage.save(tasks);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public List<Task> load() {
+        Storage reader = new Storage(file, format, FsyncPolicy.never());
+        try {
+            return reader.load();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public void save() {
+        storage.save(tasks);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import task.Task;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a whole list with {@link Task#toString()} (as {@code list} does)
+ * and {@link Task#toStorageString()} (as a text snapshot does).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskFormatBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = BenchmarkData.generate(size);
+    }
+
+    @Benchmark
+    public void renderList(Blackhole bh) {
+        for (Task t : tasks) {
+            bh.consume(t.toString());
+        }
+    }
+
+    @Benchmark
+    public void storageStrings(Blackhole bh) {
+        for (Task t : tasks) {
+            bh.consume(t.toStorageString());
+        }
+    }
+}
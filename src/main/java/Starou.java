@@ -1,25 +1,45 @@
-import exception.InvalidCommandException;
+import command.Session;
 import exception.StarouException;
+import metrics.Metrics;
+import reminder.ReminderScheduler;
+import server.CommandServer;
+import storage.FsyncPolicy;
+import storage.SnapshotFormat;
 import storage.Storage;
-import task.Deadline;
-import task.Parser;
-import task.Task;
-import task.Todo;
+import storage.TaskRepository;
+import task.TaskList;
+import ui.BoxWriter;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The main class of the Starou chatbot application.
  * <p>
  * Starou is a simple command-line task management assistant that supports adding,
  * listing, deleting, marking, unmarking, and finding tasks. It also saves and loads tasks
- * from persistent storage.
+ * from persistent storage. The commands themselves are run by {@link Session}; this class
+ * connects a session to the console, to a batch file, or to network clients.
  * </p>
  */
 
 public class Starou {
-    private static final String LINE = " _____________________________________________________";
+    private static final BoxWriter OUT = BoxWriter.stdout();
+    private static final long METRICS_EXPORT_MILLIS = 10_000;
+    private static final long DEFAULT_REMIND_MINUTES = 30;
+    private static final long ARCHIVE_EVERY_HOURS = 24;
 
     /**
      * Prints a formatted box around the given lines of text.
@@ -31,11 +51,7 @@ public class Starou {
      * @param lines one or more strings to print inside the box
      */
     private static void printBox(String ... lines) {
-        System.out.println(LINE);
-        for(String s : lines) {
-            System.out.println("  " + s);
-        }
-        System.out.println(LINE);
+        OUT.box(lines);
     }
 
     /**
@@ -43,13 +59,21 @@ public class Starou {
      * <p>
      * Initializes the application, loads existing tasks from file storage, and listens
      * for user input via the console until the user types {@code bye}.
-     * Supported commands include: {@code list}, {@code mark}, {@code unmark},
-     * {@code delete}, {@code find}, {@code todo}, {@code deadline}, and {@code event}.
      * </p>
      *
-     * @param args command-line arguments (not used)
+     * @param args command-line arguments; {@code --batch <file>} runs the commands in the file
+     *             as one batch and exits, and {@code --serve <port>} serves the commands over TCP
+     *             instead of starting the chat
      */
     public static void main(String[] args) {
+        if(args.length == 2 && args[0].equals("--batch")) {
+            System.exit(runBatchFile(args[1]) ? 0 : 1);
+        }
+        if(args.length == 2 && args[0].equals("--serve")) {
+            serve(args[1]);
+            return;
+        }
+
         String logo = """
    _____ _
   / ____| |
@@ -63,164 +87,261 @@ public class Starou {
         printBox("Hello! I'm Starou from Vietnam", "What can I do for you?");
 
         //Level 7: Create Storage
-        Storage storage = new Storage("./data/Starou.txt");
+        Storage storage = new Storage("./data/Starou.txt", readSnapshotFormat(), readFsyncPolicy());
 
         // Create a list for task
-        ArrayList<Task> tasks = storage.load();
+        TaskList tasks = Boolean.getBoolean("starou.mapped") ? loadMapped(storage) : storage.loadColumnar();
+        TaskRepository repository = new TaskRepository(tasks, storage, readUndoMemory());
+        exportMetrics(repository);
+        startReminders(repository);
+        startAutoArchive(repository);
+        Session session = new Session(repository, OUT);
         Scanner sc = new Scanner(System.in);
 
         //Infinite loop until inputting "bye"
-        while (true) {
-            String input = sc.nextLine().trim();
-            //catch error
-            try {
-                //enter "bye" to exit the chat
-                if(input.equals("bye")) {
-                    printBox("Bye! Tam biet!!");
-                    break;
-                }
-                //List of all tasks
-                else if (input.equals("list")) { //list of all tasks
-                    handleList(tasks);
-                }
-
-                //Mark/ Unmark
-                else if (input.startsWith("mark") || input.startsWith("unmark")) {
-                    handleMarking(tasks, input);
-                    storage.save(tasks);
-                }
+        while (session.handle(sc.nextLine())) {
+            //Each command prints its own reply
+        }
 
-                else if (input.startsWith("delete")) {
-                    handleDelete(tasks, input);
-                    storage.save(tasks);
-                }
+        repository.close();
+        sc.close();
+    }
 
-                //Level 9: find
-                else if (input.startsWith("find")) {
-                    String keyword = Parser.parseFindCommand(input);
-                    System.out.println("Here are the matching tasks in your list:");
-                    int index = 1;
-                    for(Task t : tasks) {
-                        if(t.description.toLowerCase().contains(keyword.toLowerCase())) {
-                            System.out.println(index + ". " + t);
-                        }
-                        index++;
-                    }
-                }
+    /**
+     * Serves commands to network clients until the process is stopped, for {@code --serve <port>}.
+     *
+     * @param port the TCP port to listen on
+     */
+    private static void serve(String port) {
+        Storage storage = new Storage("./data/Starou.txt", readSnapshotFormat(), readFsyncPolicy());
+        TaskList tasks = Boolean.getBoolean("starou.mapped") ? loadMapped(storage) : storage.loadColumnar();
+        TaskRepository repository = new TaskRepository(tasks, storage, readUndoMemory());
+        exportMetrics(repository);
+        startReminders(repository);
+        startAutoArchive(repository);
+        CommandServer server;
+        try {
+            server = new CommandServer(readServeAddress(), Integer.parseInt(port), repository);
+        } catch (IOException | NumberFormatException e) {
+            printBox("Cannot listen on port " + port + ": " + e.getMessage());
+            storage.close();
+            return;
+        }
 
-                else if (Parser.isAddCommand(input)) {
-                    handleAdd(tasks, input);
-                    storage.save(tasks);
-                }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("[WARN] Failed to stop the server: " + e.getMessage());
+            }
+            repository.close();
+        }));
+        server.start();
+        printBox("Starou is serving on " + server.address() + " port " + server.port() + ".", "Press Ctrl+C to stop.");
+    }
 
-                //throw error: empty input
-                else if (input.isEmpty()) {
-                    throw new InvalidCommandException("Please enter a valid command!");
-                }
+    /**
+     * Reads the address the server listens on from {@code -Dstarou.serveAddress}, e.g. {@code 0.0.0.0}
+     * for all interfaces. Without it, only clients on this machine can connect.
+     *
+     * @throws UnknownHostException if the address cannot be resolved
+     */
+    private static InetAddress readServeAddress() throws UnknownHostException {
+        String value = System.getProperty("starou.serveAddress", "").trim();
+        return value.isEmpty() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(value);
+    }
 
-                //Error: unknown format
-                else {
-                    throw new InvalidCommandException(
-                            "Unknown command. Try: list, todo, deadline, event, mark, unmark, delete bye.");
-                }
-            } catch (StarouException e) {
-                printBox(e.getMessage());
-            } catch (IndexOutOfBoundsException e) {
-                printBox("Invalid task index! Please enter number between 1 and " + tasks.size() + "!");
-            } catch (NumberFormatException e) {
-                printBox("Task index must be a positive interger!");
-            } catch(Exception e) {
-                printBox("Unknown error! " + e.getMessage());
-            }
+    /**
+     * Writes the metrics to {@code ./data/metrics.prom} in the Prometheus text format every few seconds
+     * and on exit, so they can be collected while Starou runs.
+     *
+     * @param repository the tasks, whose count is exported too
+     */
+    private static void exportMetrics(TaskRepository repository) {
+        Metrics.gauge("starou_tasks", repository::size);
+        Metrics.exportPeriodically(Paths.get("./data/metrics.prom"), METRICS_EXPORT_MILLIS);
+    }
 
+    /**
+     * Starts reminding of upcoming deadlines and events, unless disabled with {@code -Dstarou.reminders=false}.
+     * <p>
+     * Reminders are printed in a box {@code -Dstarou.remindBefore} minutes (30 by default) ahead.
+     * With {@code -Dstarou.reminderHook=<command>}, the command is also run with the reminder as its last argument,
+     * e.g. to show a desktop notification.
+     * </p>
+     *
+     * @param repository the tasks to remind of
+     */
+    private static void startReminders(TaskRepository repository) {
+        if(!Boolean.parseBoolean(System.getProperty("starou.reminders", "true"))) return;
+        long minutes = DEFAULT_REMIND_MINUTES;
+        try {
+            minutes = Long.parseLong(System.getProperty("starou.remindBefore", "" + DEFAULT_REMIND_MINUTES).trim());
+        } catch (NumberFormatException e) {
+            printBox("Unknown reminder lead time. Try e.g. 30 (minutes).", "Using the default: 30.");
+        }
+        String hook = System.getProperty("starou.reminderHook", "").trim();
+        //Its own writer, as reminders are printed from another thread than the replies
+        BoxWriter out = BoxWriter.stdout();
+        new ReminderScheduler(repository, Duration.ofMinutes(Math.max(0, minutes)), message -> {
+            out.box(message);
+            if(!hook.isEmpty()) runHook(hook, message);
+        }).start();
+    }
 
+    /**
+     * Archives completed tasks automatically with {@code -Dstarou.archiveAfterDays=<days>}.
+     * <p>
+     * At start-up and then once a day, deadlines and events that are done and ended more than that
+     * many days ago are moved to the archive, like {@code archive --older-than <days>} does.
+     * </p>
+     *
+     * @param repository the tasks to archive from
+     */
+    private static void startAutoArchive(TaskRepository repository) {
+        String value = System.getProperty("starou.archiveAfterDays", "").trim();
+        if(value.isEmpty()) return;
+        long days;
+        try {
+            days = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            days = -1;
+        }
+        if(days < 0) {
+            printBox("Unknown archive age '" + value + "'. Try e.g. 30 (days).", "Not archiving automatically.");
+            return;
         }
 
-        sc.close();
+        long age = days;
+        //Its own writer, as this is printed from another thread than the replies
+        BoxWriter out = BoxWriter.stdout();
+        ScheduledExecutorService archiver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "starou-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        archiver.scheduleWithFixedDelay(() -> {
+            try {
+                int archived = repository.archiveDone(LocalDate.now().minusDays(age).atStartOfDay());
+                if(archived > 0) {
+                    out.box("Archived " + archived + " completed tasks older than " + age + " days.");
+                }
+            } catch (StarouException e) {
+                System.err.println("[WARN] Failed to archive tasks: " + e.getMessage());
+            }
+        }, 0, ARCHIVE_EVERY_HOURS, TimeUnit.HOURS);
     }
 
     /**
-     * Handles the {@code list} command by printing all tasks in the current list.
+     * Runs the reminder hook command without waiting for it.
      *
-     * @param tasks the list of tasks currently managed by Starou
+     * @param hook the command and its arguments, separated by spaces
+     * @param message the reminder, passed as the last argument
      */
-    private static void handleList(ArrayList<Task> tasks) {
-        if(tasks.isEmpty()) {
-            printBox("There is no task.");
-        } else {
-            String[] lines = new String[tasks.size()];
-            for (int i = 0; i < tasks.size(); i++) {
-                lines[i] = (i + 1) + ". " + tasks.get(i);
-            }
-            printBox(lines);
+    private static void runHook(String hook, String message) {
+        List<String> command = new ArrayList<>(Arrays.asList(hook.split("\\s+")));
+        command.add(message);
+        try {
+            new ProcessBuilder(command).inheritIO().start();
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to run reminder hook: " + e.getMessage());
         }
     }
 
     /**
-     * Handles {@code mark} and {@code unmark} commands to update the completion status of a task.
+     * Runs every command in a file as a single batch, for {@code --batch <file>}.
      *
-     * @param tasks the list of tasks currently managed by Starou
-     * @param input the full user input, expected to contain the task index
-     * @throws InvalidCommandException if the command format is invalid or the index is out of range
+     * @param path the file to read, one command per line
+     * @return {@code true} if the batch was committed
      */
-    private static void handleMarking(ArrayList <Task> tasks, String input) {
-        boolean isMark = input.startsWith("mark ");
-        String[] parts = input.split("\\s+");
-
-        //error: didn't enter task index
-        if(parts.length < 2) {
-            throw new InvalidCommandException("Command lacks task index!");
-        }
-        int index = Integer.parseInt(parts[1]);
-        if(index <= 0 || index > tasks.size()) {
-            throw new InvalidCommandException("Index must be between 1 and " + tasks.size() + "!");
+    private static boolean runBatchFile(String path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path));
+        } catch (IOException e) {
+            printBox("Cannot read batch file: " + e.getMessage());
+            return false;
         }
 
-        Task t = tasks.get(index - 1);
-        if(isMark) {
-            t.mark();
-            printBox("I've mark this task as done:", " " + t);
-        } else {
-            t.unmark();
-            printBox("I've mark this task as not done yet:", " " + t);
+        Storage storage = new Storage("./data/Starou.txt", readSnapshotFormat(), readFsyncPolicy());
+        TaskList tasks = Boolean.getBoolean("starou.mapped") ? loadMapped(storage) : storage.loadColumnar();
+        TaskRepository repository = new TaskRepository(tasks, storage, readUndoMemory());
+        try {
+            new Session(repository, OUT).runBatch(lines);
+            return true;
+        } catch (StarouException e) {
+            printBox(e.getMessage());
+            return false;
+        } finally {
+            repository.close();
         }
     }
 
     /**
-     * Handles adding a new task (e.g., {@code todo}, {@code deadline}, or {@code event})
-     * to the task list.
+     * Reads the fsync policy from the {@code starou.fsync} system property
+     * (e.g. {@code -Dstarou.fsync=always}), falling back to syncing once a second.
      *
-     * @param tasks the list of tasks currently managed by Starou
-     * @param input the full user input containing the add command and its details
+     * @return the configured fsync policy
      */
-    public static void handleAdd(ArrayList<Task> tasks, String input) {
-        Task t = Parser.parseAddCommand(input);
-        tasks.add(t);
-        String kind = t instanceof Todo ? "task"
-                : t instanceof Deadline ? "deadline"
-                : "event";
-        printBox("Got it. I've add this " + kind + ":", " " + t.toString(), "Now you have " + tasks.size() + " tasks in the list.");
+    private static FsyncPolicy readFsyncPolicy() {
+        String value = System.getProperty("starou.fsync", "every 1000ms");
+        try {
+            return FsyncPolicy.parse(value);
+        } catch (StarouException e) {
+            printBox(e.getMessage(), "Using the default: every 1000ms.");
+            return FsyncPolicy.every(1000);
+        }
     }
 
     /**
-     * Handles the {@code delete} command to remove a task from the list.
+     * Reads how much memory the undo history may take from the {@code starou.undoMemory} system property
+     * (e.g. {@code -Dstarou.undoMemory=64MB}), falling back to 16 MB.
      *
-     * @param tasks the list of tasks currently managed by Starou
-     * @param input the full user input containing the delete command and task index
-     * @throws InvalidCommandException if the command format is invalid or the index is out of range
+     * @return the memory cap in bytes
      */
-    private static void handleDelete(ArrayList<Task> tasks, String input) {
-        String[] parts = input.split("\\s+");
-        if (parts.length < 2) throw new InvalidCommandException("Command lacks task index!");
+    private static long readUndoMemory() {
+        String value = System.getProperty("starou.undoMemory", "16MB").trim().toUpperCase();
+        long unit = value.endsWith("KB") ? 1L << 10 : value.endsWith("MB") ? 1L << 20 : value.endsWith("GB") ? 1L << 30 : 1;
+        String number = unit == 1 ? value : value.substring(0, value.length() - 2).trim();
+        try {
+            long bytes = Long.parseLong(number) * unit;
+            if(bytes >= 0) return bytes;
+        } catch (NumberFormatException e) {
+            //Reported below
+        }
+        printBox("Unknown undo memory '" + value + "'. Try e.g. 16MB.", "Using the default: 16MB.");
+        return 16L << 20;
+    }
 
-        int index = Integer.parseInt(parts[1]);
-        if(index <= 0 || index > tasks.size()) {
-            throw new InvalidCommandException("Index must be between 1 and " + tasks.size() + "!");
+    /**
+     * Reads the save file format from the {@code starou.format} system property
+     * (e.g. {@code -Dstarou.format=binary}), falling back to the text format.
+     *
+     * @return the configured snapshot format
+     */
+    private static SnapshotFormat readSnapshotFormat() {
+        String value = System.getProperty("starou.format", "text");
+        try {
+            return SnapshotFormat.parse(value);
+        } catch (StarouException e) {
+            printBox(e.getMessage(), "Using the default: text.");
+            return SnapshotFormat.TEXT;
         }
+    }
 
-        Task removed = tasks.remove(index - 1);
-        printBox("Noted. I've removed this task:",
-                "  " + removed.toString(),
-                "Now you have " + tasks.size() + " tasks in the list.");
+    /**
+     * Loads the task list with the save file memory-mapped ({@code -Dstarou.mapped=true}),
+     * falling back to a normal load if the storage is not in the binary format.
+     *
+     * @param storage the storage to load from
+     * @return the loaded task list
+     */
+    private static TaskList loadMapped(Storage storage) {
+        try {
+            return storage.loadMapped();
+        } catch (StarouException e) {
+            printBox(e.getMessage(), "Add -Dstarou.format=binary to use it. Loading normally.");
+            return storage.loadColumnar();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package command;
+
+import metrics.Histogram;
+import metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times the command a {@link Session} is running, phase by phase, and adds the result to {@link Metrics}.
+ * <p>
+ * A command starts in {@link Phase#PARSE}; the session calls {@link #enter(Phase)} whenever the work
+ * moves to another phase, so each phase gets the time until the next switch. Persisting finishes in
+ * the background, so it is timed from the start of the command until its change is durable.
+ * With {@code -Dstarou.trace=true}, one line per command is also printed to standard error.
+ * </p>
+ */
+final class CommandTrace {
+    /** The parts of a command that are timed separately. */
+    enum Phase { PARSE, EXECUTE, RENDER }
+
+    /** Commands timed under their own name; anything else counts as {@code unknown}. */
+    static final Set<String> COMMANDS = Set.of("list", "mark", "unmark", "delete", "find", "due", "overdue", "on",
+            "conflicts", "free", "todo", "deadline", "event", "archive", "import", "export", "undo", "redo",
+            "begin", "commit", "abort", "stats", "bye");
+
+    private static final boolean PRINTS_TRACE = Boolean.getBoolean("starou.trace");
+    private static final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private static final Histogram[] allPhases = new Histogram[Phase.values().length];
+    private static final Histogram allPersist = Metrics.histogram("starou_phase_seconds", "phase", "persist");
+
+    static {
+        for (Phase p : Phase.values()) {
+            allPhases[p.ordinal()] = Metrics.histogram("starou_phase_seconds", "phase", name(p));
+        }
+    }
+
+    /**
+     * The metrics of one command, looked up once.
+     */
+    static final class Stats {
+        final LongAdder count;
+        final LongAdder errors = new LongAdder();
+        final Histogram total;
+        final Histogram[] phases = new Histogram[Phase.values().length];
+        final Histogram persist;
+
+        Stats(String command) {
+            count = Metrics.counter("starou_commands_total", "command", command);
+            total = Metrics.histogram("starou_command_seconds", "command", command, "phase", "total");
+            for (Phase p : Phase.values()) {
+                phases[p.ordinal()] = Metrics.histogram("starou_command_seconds", "command", command, "phase", name(p));
+            }
+            persist = Metrics.histogram("starou_command_seconds", "command", command, "phase", "persist");
+        }
+    }
+
+    private final long[] nanos = new long[Phase.values().length];
+    private Stats current;
+    private String command;
+    private Phase phase = Phase.PARSE;
+    private long startedAt;
+    private long phaseStartedAt;
+
+    private static String name(Phase p) {
+        return p.name().toLowerCase();
+    }
+
+    /**
+     * Returns the metrics of a command, creating them on first use.
+     */
+    static Stats statsOf(String command) {
+        return stats.computeIfAbsent(command, Stats::new);
+    }
+
+    /**
+     * Returns the metrics of every command run so far, by name.
+     */
+    static Map<String, Stats> all() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * Returns the all-command histogram of a phase: {@code parse}, {@code execute}, {@code render} or {@code persist}.
+     */
+    static Histogram phase(String name) {
+        return Metrics.histogram("starou_phase_seconds", "phase", name);
+    }
+
+    /**
+     * Returns the name a command is counted under: its first word if that is a known command.
+     */
+    static String commandOf(String input) {
+        int end = 0;
+        while (end < input.length() && !Character.isWhitespace(input.charAt(end))) end++;
+        String word = input.substring(0, end);
+        return COMMANDS.contains(word) ? word : "unknown";
+    }
+
+    /**
+     * Starts timing a command in the parse phase.
+     *
+     * @param command the name to count the command under
+     */
+    void start(String command) {
+        this.command = command;
+        this.current = statsOf(command);
+        Arrays.fill(nanos, 0);
+        phase = Phase.PARSE;
+        startedAt = phaseStartedAt = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase and starts another.
+     */
+    void enter(Phase next) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - phaseStartedAt;
+        phase = next;
+        phaseStartedAt = now;
+    }
+
+    /**
+     * Times the persist phase of the command once its change is durable.
+     *
+     * @param durable completes when the change is durable
+     */
+    void persisted(CompletableFuture<Void> durable) {
+        long start = startedAt;
+        Stats s = current;
+        durable.whenComplete((ignored, e) -> {
+            long elapsed = System.nanoTime() - start;
+            s.persist.record(elapsed);
+            allPersist.record(elapsed);
+        });
+    }
+
+    /**
+     * Ends the command and records its phases.
+     *
+     * @param error what kind of error the command ended with, or {@code null} if it succeeded
+     */
+    void finish(String error) {
+        enter(phase);
+        current.count.increment();
+        current.total.record(System.nanoTime() - startedAt);
+        for (Phase p : Phase.values()) {
+            if (nanos[p.ordinal()] > 0) {
+                current.phases[p.ordinal()].record(nanos[p.ordinal()]);
+                allPhases[p.ordinal()].record(nanos[p.ordinal()]);
+            }
+        }
+        if (error != null) {
+            current.errors.increment();
+            Metrics.counter("starou_command_errors_total", "command", command, "error", error).increment();
+        }
+        if (PRINTS_TRACE) {
+            System.err.printf("[TRACE] %s parse=%dus execute=%dus render=%dus%s%n", command,
+                    nanos[0] / 1000, nanos[1] / 1000, nanos[2] / 1000, error == null ? "" : " error=" + error);
+        }
+    }
+}
@@ -0,0 +1,829 @@
+package command;
+
+import command.CommandTrace.Phase;
+import exception.InvalidCommandException;
+import exception.StarouException;
+import metrics.Histogram;
+import metrics.Metrics;
+import storage.Exchange;
+import storage.Storage;
+import storage.TaskRepository;
+import storage.UndoHistory;
+import task.Command;
+import task.Deadline;
+import task.Event;
+import task.Parser;
+import task.Query;
+import task.Task;
+import task.TaskList;
+import task.Todo;
+import ui.BoxWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the commands of one user against a task list, writing the replies to that user's output.
+ * <p>
+ * The console creates one session; the server creates one per connection, all sharing the same
+ * {@link TaskRepository}, which keeps concurrent commands safe. Replies are rendered from what the
+ * repository copied out, after its locks are released, so a slow client never holds up the others.
+ * A batch opened with {@code begin} belongs to its session and is applied as a whole only when
+ * that session commits it.
+ * </p>
+ */
+public class Session {
+    private static final int LIST_CHUNK = 512;
+    private static final int MAX_REVISION_LINES = 10;
+    private static final int MAX_BATCH_COMMANDS = 10_000;
+    private static final int MAX_BATCH_CHARS = 1 << 20;
+
+    private final TaskRepository repository;
+    private final BoxWriter out;
+    private final boolean isRemote;
+    private final CommandTrace trace = new CommandTrace();
+    private List<String> batch;
+    private int batchChars;
+    private boolean isBatchTooLong;
+
+    /**
+     * Constructs a session for the console.
+     *
+     * @param repository the tasks shared by all sessions
+     * @param out where replies are written
+     */
+    public Session(TaskRepository repository, BoxWriter out) {
+        this(repository, out, false);
+    }
+
+    /**
+     * Constructs a session.
+     * A remote session, one a network client drives, refuses {@code import} and {@code export},
+     * since those read and write files on the machine Starou runs on.
+     *
+     * @param repository the tasks shared by all sessions
+     * @param out where replies are written
+     * @param isRemote whether the commands come over the network
+     */
+    public Session(TaskRepository repository, BoxWriter out, boolean isRemote) {
+        this.repository = repository;
+        this.out = out;
+        this.isRemote = isRemote;
+    }
+
+    /**
+     * Prints a formatted box around the given lines of text.
+     * <p>
+     * Each line is prefixed with two spaces, and surrounded by horizontal borders.
+     * This helps format the chatbot responses for better readability.
+     * </p>
+     *
+     * @param lines one or more strings to print inside the box
+     */
+    public void printBox(String ... lines) {
+        trace.enter(Phase.RENDER);
+        out.box(lines);
+    }
+
+    /**
+     * Runs one command and prints its reply. Errors are printed rather than thrown.
+     * Supported commands include: {@code list}, {@code mark}, {@code unmark},
+     * {@code delete}, {@code find}, {@code due}, {@code overdue}, {@code on}, {@code conflicts}, {@code free},
+     * {@code todo}, {@code deadline}, {@code event}, {@code archive}, {@code import}, {@code export},
+     * {@code undo}, {@code redo},
+     * {@code begin}, {@code stats} and {@code bye}.
+     * How long each phase of the command took is added to the {@link Metrics}.
+     *
+     * @param input the command as the user typed it
+     * @return {@code false} if the user said {@code bye}, {@code true} otherwise
+     */
+    public boolean handle(String input) {
+        input = input.trim();
+        boolean isBatched = batch != null && !input.equals("commit") && !input.equals("abort");
+        trace.start(isBatched ? "batch" : CommandTrace.commandOf(input));
+        String error = null;
+        try {
+            return dispatch(input);
+        } catch (StarouException e) {
+            error = "invalid";
+            printBox(e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            error = "index";
+            printBox("Invalid task index! Please enter number between 1 and " + repository.size() + "!");
+        } catch (NumberFormatException e) {
+            error = "number";
+            printBox("Task index must be a positive interger!");
+        } catch(Exception e) {
+            error = "unknown";
+            System.err.println("[WARN] Unknown error in '" + input + "': " + e);
+            printBox("Unknown error! " + e.getMessage());
+        } finally {
+            trace.finish(error);
+        }
+        return true;
+    }
+
+    private boolean dispatch(String input) {
+        //Inside begin ... commit, collect the commands and apply them together
+        if(batch != null) {
+            if(input.equals("commit")) {
+                List<String> lines = batch;
+                batch = null;
+                if(isBatchTooLong) {
+                    isBatchTooLong = false;
+                    throw new InvalidCommandException("Batch discarded: it had more than " + MAX_BATCH_COMMANDS
+                            + " commands or " + MAX_BATCH_CHARS + " characters. Nothing was changed.");
+                }
+                runBatch(lines);
+            } else if(input.equals("abort")) {
+                batch = null;
+                isBatchTooLong = false;
+                printBox("Batch aborted. Nothing was changed.");
+            } else if(!isBatchTooLong) {
+                collect(input);
+            }
+            return true;
+        }
+
+        Command command = Parser.parse(input);
+        switch(command.kind) {
+        //enter "bye" to exit the chat
+        case BYE:
+            printBox("Bye! Tam biet!!");
+            return false;
+        //List of all tasks, or one page of it
+        case LIST:
+            if(command.page == null) {
+                handleList();
+            } else {
+                handleListPage(command.page);
+            }
+            break;
+        //Mark/ Unmark
+        case MARK:
+        case UNMARK:
+            handleMarking(command.index, command.kind == Command.Kind.MARK);
+            break;
+        case DELETE:
+            handleDelete(command.index);
+            break;
+        //Level 9: find
+        case FIND:
+            handleFind(command.keyword);
+            break;
+        case FIND_ARCHIVED:
+            handleFindArchived(command.keyword);
+            break;
+        case ARCHIVE:
+            handleArchive(command.to);
+            break;
+        case IMPORT:
+            handleImport(command.file);
+            break;
+        case EXPORT:
+        case EXPORT_REPLACE:
+            handleExport(command.file, command.kind == Command.Kind.EXPORT_REPLACE);
+            break;
+        case DUE: {
+            LocalDate from = command.from;
+            LocalDate to = command.to;
+            trace.enter(Phase.EXECUTE);
+            printTasks(repository.selectTasks(
+                    tasks -> tasks.deadlinesBetween(from.atStartOfDay(), to.plusDays(1).atStartOfDay())),
+                    "Here are the deadlines due from " + from + " to " + to + ":",
+                    "No deadlines are due from " + from + " to " + to + ".");
+            break;
+        }
+        case OVERDUE: {
+            LocalDateTime now = LocalDateTime.now();
+            trace.enter(Phase.EXECUTE);
+            printTasks(repository.selectTasks(tasks -> tasks.overdue(now)),
+                    "Here are your overdue deadlines:", "Nothing is overdue. Well done!");
+            break;
+        }
+        case ON:
+            handleOn(command.from);
+            break;
+        case CONFLICTS:
+            handleConflicts(command.from, command.to);
+            break;
+        case FREE:
+            handleFree(command.from, command.duration);
+            break;
+        case ADD:
+            handleAdd(command.task);
+            break;
+        case UNDO:
+        case REDO:
+            handleRevision(command.kind == Command.Kind.UNDO);
+            break;
+        case STATS:
+            handleStats();
+            break;
+        case BEGIN:
+            batch = new ArrayList<>();
+            batchChars = 0;
+            printBox("Batch started. Type commit to apply it or abort to cancel.");
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a command to the open batch. A batch that grows past the limits is dropped right away,
+     * so a client cannot fill the memory, and the rest of its commands are ignored until it ends.
+     *
+     * @param input the command to apply when the batch is committed
+     */
+    private void collect(String input) {
+        batchChars += input.length();
+        if(batch.size() < MAX_BATCH_COMMANDS && batchChars <= MAX_BATCH_CHARS) {
+            batch.add(input);
+            return;
+        }
+        batch = new ArrayList<>();
+        isBatchTooLong = true;
+        throw new InvalidCommandException("This batch is too long, so it will be discarded. Type commit or abort to end it.");
+    }
+
+    /**
+     * Applies a batch of commands as one unit.
+     * <p>
+     * All lines are parsed before anything changes. They are then applied in order
+     * while remembering how to undo each one, and the journal records are written
+     * together once at the end. If any command fails, the ones already applied are
+     * undone in reverse order and nothing is saved. Blank lines and lines starting
+     * with {@code #} are ignored.
+     * </p>
+     *
+     * @param lines the commands to run, one per line
+     * @throws InvalidCommandException if a line cannot be parsed or applied
+     */
+    public void runBatch(List<String> lines) {
+        List<BatchStep> steps = parseBatch(lines);
+        trace.enter(Phase.EXECUTE);
+        UndoHistory history = repository.history();
+        int size = repository.exclusively((tasks, storage) -> applyBatch(tasks, storage, history, steps));
+        printBox("Batch committed: " + steps.size() + " commands applied.",
+                "Now you have " + size + " tasks in the list.");
+    }
+
+    /**
+     * Applies parsed batch steps with the list to itself, recording them so the batch can be undone.
+     *
+     * @return the number of tasks afterwards
+     */
+    private static int applyBatch(TaskList tasks, Storage storage, UndoHistory history, List<BatchStep> steps) {
+        Deque<Runnable> undo = new ArrayDeque<>();
+        int applied = 0;
+
+        storage.beginBatch();
+        try {
+            for(BatchStep step : steps) {
+                applyStep(tasks, storage, history, step, undo);
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            while(!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            storage.abortBatch();
+            throw new InvalidCommandException("Line " + steps.get(applied).lineNumber + ": " + e.getMessage()
+                    + " The batch was rolled back.");
+        }
+        storage.commitBatch(tasks);
+        return tasks.size();
+    }
+
+    /**
+     * One parsed command of a batch: an add, {@code mark}, {@code unmark} or {@code delete}.
+     */
+    private static final class BatchStep {
+        final int lineNumber;
+        final Command command;
+
+        BatchStep(int lineNumber, Command command) {
+            this.lineNumber = lineNumber;
+            this.command = command;
+        }
+    }
+
+    private static List<BatchStep> parseBatch(List<String> lines) {
+        List<BatchStep> steps = new ArrayList<>();
+        for(int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if(line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                Command command = Parser.parse(line);
+                switch(command.kind) {
+                case ADD:
+                    break;
+                case MARK:
+                case UNMARK:
+                case DELETE:
+                    if(command.index <= 0) {
+                        throw new InvalidCommandException("Task index must be a positive interger!");
+                    }
+                    break;
+                default:
+                    throw new InvalidCommandException("Only todo, deadline, event, mark, unmark and delete can be batched.");
+                }
+                steps.add(new BatchStep(i + 1, command));
+            } catch (RuntimeException e) {
+                throw new InvalidCommandException("Line " + (i + 1) + ": " + e.getMessage() + " Nothing was changed.");
+            }
+        }
+        return steps;
+    }
+
+    private static void applyStep(TaskList tasks, Storage storage, UndoHistory history, BatchStep step,
+                                  Deque<Runnable> undo) {
+        Command command = step.command;
+        if(command.kind == Command.Kind.ADD) {
+            tasks.add(command.task);
+            storage.logAdd(tasks, command.task);
+            history.recordAdd(tasks.size() - 1, command.task);
+            undo.push(() -> tasks.remove(tasks.size() - 1));
+            return;
+        }
+
+        int index = command.index;
+        if(index > tasks.size()) {
+            throw new InvalidCommandException("Index must be between 1 and " + tasks.size() + "!");
+        }
+        if(command.kind == Command.Kind.DELETE) {
+            Task removed = tasks.remove(index - 1);
+            storage.logDelete(tasks, index);
+            history.recordDelete(index - 1, removed);
+            undo.push(() -> tasks.add(index - 1, removed));
+        } else {
+            boolean isMark = command.kind == Command.Kind.MARK;
+            boolean wasDone = tasks.get(index - 1).isDone();
+            tasks.setDone(index - 1, isMark);
+            storage.logMark(tasks, index, isMark);
+            history.recordMark(index - 1, isMark, wasDone);
+            undo.push(() -> tasks.setDone(index - 1, wasDone));
+        }
+    }
+
+    /**
+     * Handles the {@code list} command by printing all tasks in the current list.
+     * The tasks are copied out a chunk at a time, continuing after the id of the last one printed,
+     * so other users can keep working while a long list is being sent.
+     */
+    private void handleList() {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Selection chunk = repository.pageAfter(0, LIST_CHUNK);
+        if(chunk.isEmpty()) {
+            printBox("There is no task.");
+            return;
+        }
+        trace.enter(Phase.RENDER);
+        out.begin();
+        while (true) {
+            for (int i = 0; i < chunk.size(); i++) {
+                out.task(chunk.position(i) + 1, chunk.task(i));
+            }
+            if (chunk.size() < LIST_CHUNK) break;
+            trace.enter(Phase.EXECUTE);
+            chunk = repository.pageAfter(chunk.task(chunk.size() - 1).getId(), LIST_CHUNK);
+            trace.enter(Phase.RENDER);
+        }
+        out.end();
+    }
+
+    /**
+     * Handles {@code list --page N --size K} and {@code list --after <id>} by printing one page of tasks,
+     * followed by the command that shows the next page.
+     *
+     * @param request the page asked for
+     */
+    private void handleListPage(Parser.ListPage request) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Selection page = request.isCursor()
+                ? repository.pageAfter(request.afterId, request.size)
+                : repository.page((int) Math.min((long) (request.page - 1) * request.size, Integer.MAX_VALUE), request.size);
+        if(page.isEmpty()) {
+            printBox(page.total() == 0 ? "There is no task." : "There are no more tasks.");
+            return;
+        }
+
+        trace.enter(Phase.RENDER);
+        out.begin();
+        for (int i = 0; i < page.size(); i++) {
+            out.task(page.position(i) + 1, page.task(i));
+        }
+        int from = page.position(0) + 1;
+        int to = page.position(page.size() - 1) + 1;
+        String sizeOption = request.size == Parser.ListPage.DEFAULT_SIZE ? "" : " --size " + request.size;
+        out.line("Showing " + from + "-" + to + " of " + page.total() + " tasks.");
+        if(to < page.total()) {
+            out.line(request.isCursor()
+                    ? "Next: list --after " + page.task(page.size() - 1).getId() + sizeOption
+                    : "Next: list --page " + (request.page + 1) + sizeOption);
+        }
+        out.end();
+    }
+
+    /**
+     * Prints the given tasks with their position in the list, or a message if there are none.
+     *
+     * @param found the tasks to print, in the order they should appear
+     * @param header the line printed above the tasks
+     * @param none the message printed instead when {@code found} is empty
+     */
+    private void printTasks(TaskRepository.Selection found, String header, String none) {
+        if(found.isEmpty()) {
+            printBox(none);
+            return;
+        }
+        trace.enter(Phase.RENDER);
+        out.begin().line(header);
+        for (int i = 0; i < found.size(); i++) {
+            out.task(found.position(i) + 1, found.task(i));
+        }
+        out.end();
+    }
+
+    /**
+     * Handles {@code find} by printing the tasks matching a keyword or query.
+     *
+     * @param keyword the keyword, or a query if it uses the query syntax
+     */
+    private void handleFind(String keyword) {
+        Query query = Query.isQuery(keyword) ? Query.parse(keyword) : null;
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Selection found = repository.selectPositions(
+                tasks -> query != null ? tasks.search(query) : tasks.find(keyword));
+        trace.enter(Phase.RENDER);
+        out.beginPlain().line("Here are the matching tasks in your list:");
+        for(int i = 0; i < found.size(); i++) {
+            out.task(found.position(i) + 1, found.task(i));
+        }
+        out.end();
+    }
+
+    /**
+     * Handles {@code find --archived} by checking each archived task as it is read from disk.
+     * Archived tasks are searched rarely, so building indexes for them would cost more than it saves.
+     * They have no position in the list, so they are numbered in the order they were found.
+     *
+     * @param keyword the keyword, or a query if it uses the query syntax
+     */
+    private void handleFindArchived(String keyword) {
+        Query query = Query.isQuery(keyword) ? Query.parse(keyword) : Query.phrase(keyword);
+        trace.enter(Phase.EXECUTE);
+        List<Task> found = new ArrayList<>();
+        repository.forEachArchived(t -> {
+            if(query.test(t)) found.add(t);
+        });
+        trace.enter(Phase.RENDER);
+        out.beginPlain().line("Here are the matching tasks in your archive:");
+        for(int i = 0; i < found.size(); i++) {
+            out.task(i + 1, found.get(i));
+        }
+        out.end();
+    }
+
+    /**
+     * Handles {@code archive} by moving completed tasks out of the list into the archive.
+     *
+     * @param endedBefore the day archived deadlines and events must have ended before,
+     *                    or {@code null} to archive every completed task
+     */
+    private void handleArchive(LocalDate endedBefore) {
+        trace.enter(Phase.EXECUTE);
+        int archived = repository.archiveDone(endedBefore == null ? null : endedBefore.atStartOfDay());
+        if(archived == 0) {
+            printBox("There are no completed tasks to archive.");
+            return;
+        }
+        printBox("I've archived " + archived + " completed tasks.",
+                "Now you have " + repository.size() + " tasks in the list.",
+                "Search them with: find --archived <keyword>");
+    }
+
+    /**
+     * Handles {@code import} by streaming the tasks of a CSV, JSON Lines or iCalendar file into the list,
+     * a chunk at a time. Records that cannot be read are skipped, and the first few are listed.
+     *
+     * @param file the file to import, whose extension names its format
+     */
+    private void handleImport(String file) {
+        Path path = pathOf(file);
+        trace.enter(Phase.EXECUTE);
+        Exchange.ImportResult result = Exchange.importFrom(path, repository::addAll);
+        List<String> lines = new ArrayList<>();
+        lines.add("I've imported " + result.imported + " tasks from " + file + ".");
+        if(result.skipped > 0) {
+            lines.add("Skipped " + result.skipped + " records that could not be read:");
+            for(String problem : result.problems) {
+                lines.add("  " + problem);
+            }
+            if(result.skipped > result.problems.size()) {
+                lines.add("  ... and " + (result.skipped - result.problems.size()) + " more.");
+            }
+        }
+        lines.add("Now you have " + repository.size() + " tasks in the list.");
+        printBox(lines.toArray(new String[0]));
+    }
+
+    /**
+     * Handles {@code export} by streaming every task to a CSV, JSON Lines or iCalendar file,
+     * copying them out of the list a chunk at a time.
+     *
+     * @param file the file to write, whose extension names its format
+     * @param replace whether an existing file may be replaced, as {@code export --replace} asks
+     */
+    private void handleExport(String file, boolean replace) {
+        Path path = pathOf(file);
+        if(!replace && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            throw new InvalidCommandException("There is already a file " + file + "! Replace it with: export --replace " + file);
+        }
+        trace.enter(Phase.EXECUTE);
+        long exported = Exchange.export(repository.pages(LIST_CHUNK), path, replace);
+        printBox("I've exported " + exported + " tasks to " + file + ".");
+    }
+
+    /**
+     * Resolves the file of an {@code import} or {@code export} against the folder Starou runs in,
+     * refusing any file outside it, whether named by an absolute path, by {@code ..} or through a link.
+     */
+    private Path pathOf(String file) {
+        if(isRemote) {
+            throw new InvalidCommandException("Import and export only work from the console, not over the network!");
+        }
+        Path typed;
+        try {
+            typed = Path.of(file);
+        } catch (InvalidPathException e) {
+            throw new InvalidCommandException("'" + file + "' is not a valid file name!");
+        }
+        Path dir = Path.of("").toAbsolutePath();
+        Path path = dir.resolve(typed).normalize();
+        if(typed.isAbsolute() || !path.startsWith(dir) || path.equals(dir) || !isInside(path, dir)) {
+            throw new InvalidCommandException("Please name a file in the folder Starou runs in, e.g. tasks.csv");
+        }
+        return path;
+    }
+
+    /**
+     * Returns whether the nearest existing part of a path is still inside a folder once links are followed.
+     */
+    private static boolean isInside(Path path, Path dir) {
+        Path existing = path;
+        while(existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        try {
+            return existing != null && existing.toRealPath().startsWith(dir.toRealPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Handles {@code on} by printing the deadlines and events of one day.
+     *
+     * @param day the day asked for
+     */
+    private void handleOn(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Selection found = repository.selectTasks(tasks -> {
+            List<Task> onDay = new ArrayList<>(tasks.deadlinesBetween(start, end));
+            onDay.addAll(tasks.eventsBetween(start, end));
+            return onDay;
+        });
+        printTasks(found, "Here is what you have on " + day + ":", "You have nothing on " + day + ".");
+    }
+
+    /**
+     * Handles {@code conflicts} by printing every pair of events that overlap, each later event
+     * under the one it clashes with.
+     *
+     * @param from the first day to check, or {@code null} to check every event
+     * @param to the last day to check, inclusive
+     */
+    private void handleConflicts(LocalDate from, LocalDate to) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Selection found = repository.selectTasks(tasks -> {
+            List<Event> pairs = new ArrayList<>();
+            for(Event[] clash : from == null ? tasks.conflicts(null, null)
+                    : tasks.conflicts(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+                pairs.add(clash[0]);
+                pairs.add(clash[1]);
+            }
+            return pairs;
+        });
+        String range = from == null ? "" : " from " + from + " to " + to;
+        if(found.isEmpty()) {
+            printBox("None of your events clash" + range + ".");
+            return;
+        }
+        trace.enter(Phase.RENDER);
+        out.begin().line("Here are the clashing events" + range + ":");
+        for(int i = 0; i < found.size(); i += 2) {
+            out.task(found.position(i) + 1, found.task(i));
+            out.line("   clashes with " + (found.position(i + 1) + 1) + ". " + found.task(i + 1));
+        }
+        out.end();
+    }
+
+    /**
+     * Handles {@code free} by printing the times of a day that no event takes up, in slots of at least
+     * the given length.
+     *
+     * @param day the day asked for
+     * @param length the shortest slot worth printing
+     */
+    private void handleFree(LocalDate day, Duration length) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        trace.enter(Phase.EXECUTE);
+        List<LocalDateTime[]> slots = repository.query(tasks -> tasks.freeSlots(start, end, length));
+        if(slots.isEmpty()) {
+            printBox("You have no free slot of " + formatDuration(length) + " on " + day + ".");
+            return;
+        }
+        trace.enter(Phase.RENDER);
+        out.begin().line("Here are your free slots of at least " + formatDuration(length) + " on " + day + ":");
+        for(LocalDateTime[] slot : slots) {
+            out.line(" " + formatClock(day, slot[0]) + " - " + formatClock(day, slot[1])
+                    + " (" + formatDuration(Duration.between(slot[0], slot[1])) + ")");
+        }
+        out.end();
+    }
+
+    /**
+     * Formats a time of the given day as {@code HH:mm}, with the midnight ending the day as {@code 24:00}.
+     */
+    private static String formatClock(LocalDate day, LocalDateTime t) {
+        if(!t.toLocalDate().equals(day)) return "24:00";
+        return String.format("%02d:%02d", t.getHour(), t.getMinute());
+    }
+
+    private static String formatDuration(Duration d) {
+        long hours = d.toHours();
+        long minutes = d.toMinutesPart();
+        if(hours == 0) return minutes + "m";
+        return minutes == 0 ? hours + "h" : hours + "h" + minutes + "m";
+    }
+
+    /**
+     * Handles {@code mark} and {@code unmark} commands to update the completion status of a task.
+     *
+     * @param index the 1-based position of the task
+     * @param isMark {@code true} for {@code mark}, {@code false} for {@code unmark}
+     * @throws InvalidCommandException if the index is out of range
+     */
+    private void handleMarking(int index, boolean isMark) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Change change = repository.setDone(index - 1, isMark);
+        trace.persisted(change.durable);
+        Task t = change.task;
+        if(isMark) {
+            printBox("I've mark this task as done:", " " + t);
+        } else {
+            printBox("I've mark this task as not done yet:", " " + t);
+        }
+    }
+
+    /**
+     * Handles adding a new task (e.g., {@code todo}, {@code deadline}, or {@code event})
+     * to the task list.
+     *
+     * @param t the task to add
+     */
+    private void handleAdd(Task t) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Change change = repository.add(t);
+        trace.persisted(change.durable);
+        int size = change.size;
+        String kind = t instanceof Todo ? "task"
+                : t instanceof Deadline ? "deadline"
+                : "event";
+        List<String> lines = new ArrayList<>(List.of("Got it. I've add this " + kind + ":", " " + t.toString(),
+                "Now you have " + size + " tasks in the list."));
+        TaskRepository.Selection clashes = change.clashes;
+        if(!clashes.isEmpty()) {
+            lines.add("Heads up, it clashes with:");
+            for(int i = 0; i < clashes.size(); i++) {
+                lines.add(" " + (clashes.position(i) + 1) + ". " + clashes.task(i));
+            }
+        }
+        printBox(lines.toArray(new String[0]));
+    }
+
+    /**
+     * Handles {@code undo} and {@code redo} by reverting or reapplying the most recent change,
+     * or the whole batch if it was one, and listing what changed.
+     *
+     * @param isUndo {@code true} for {@code undo}, {@code false} for {@code redo}
+     */
+    private void handleRevision(boolean isUndo) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Revision revision = isUndo ? repository.undo() : repository.redo();
+        if(revision == null) {
+            printBox(isUndo ? "Nothing to undo." : "Nothing to redo.");
+            return;
+        }
+        trace.persisted(revision.durable);
+
+        List<String> lines = new ArrayList<>();
+        lines.add(isUndo ? "Undone:" : "Redone:");
+        int shown = Math.min(revision.changes.size(), MAX_REVISION_LINES);
+        for(int i = 0; i < shown; i++) {
+            lines.add("  " + describe(revision.changes.get(i)));
+        }
+        if(revision.changes.size() > shown) {
+            lines.add("  ... and " + (revision.changes.size() - shown) + " more changes.");
+        }
+        lines.add("Now you have " + revision.size + " tasks in the list.");
+        printBox(lines.toArray(new String[0]));
+    }
+
+    private static String describe(UndoHistory.Entry change) {
+        switch(change.kind) {
+        case ADD:
+            return "add " + change.task;
+        case DELETE:
+            return "delete " + change.task;
+        default:
+            return (change.isDone ? "mark " : "unmark ") + (change.position + 1);
+        }
+    }
+
+    /**
+     * Handles the {@code delete} command to remove a task from the list.
+     *
+     * @param index the 1-based position of the task
+     * @throws InvalidCommandException if the index is out of range
+     */
+    private void handleDelete(int index) {
+        trace.enter(Phase.EXECUTE);
+        TaskRepository.Change change = repository.remove(index - 1);
+        trace.persisted(change.durable);
+        printBox("Noted. I've removed this task:",
+                "  " + change.task.toString(),
+                "Now you have " + change.size + " tasks in the list.");
+    }
+
+    /**
+     * Handles the {@code stats} command by printing how many commands ran, how long they took
+     * phase by phase, and what the storage has done since start-up.
+     */
+    private void handleStats() {
+        trace.enter(Phase.EXECUTE);
+        List<String> lines = new ArrayList<>();
+        lines.add("Commands (count, errors, p50 / p99):");
+        for (Map.Entry<String, CommandTrace.Stats> e : CommandTrace.all().entrySet()) {
+            CommandTrace.Stats stats = e.getValue();
+            if (stats.count.sum() == 0) continue;
+            lines.add(String.format("  %-9s %7d %5d   %s / %s", e.getKey(), stats.count.sum(), stats.errors.sum(),
+                    formatMicros(stats.total.percentileMicros(0.5)), formatMicros(stats.total.percentileMicros(0.99))));
+        }
+        lines.add("Time per phase (p50 / p99):");
+        for (String phase : new String[] {"parse", "execute", "render", "persist"}) {
+            Histogram h = CommandTrace.phase(phase);
+            lines.add(String.format("  %-9s %s / %s", phase,
+                    formatMicros(h.percentileMicros(0.5)), formatMicros(h.percentileMicros(0.99))));
+        }
+        Histogram commits = Metrics.histogram("starou_journal_commit_seconds");
+        lines.add("Storage:");
+        lines.add("  Loaded " + Metrics.gaugeValue("starou_storage_loaded_tasks") + " tasks in "
+                + Metrics.gaugeValue("starou_storage_load_milliseconds") + " ms, skipped "
+                + Metrics.counter("starou_storage_corrupted_lines_total").sum() + " corrupted lines.");
+        lines.add("  Written: journal " + formatBytes(Metrics.counter("starou_storage_bytes_written_total", "file", "journal").sum())
+                + ", snapshots " + formatBytes(Metrics.counter("starou_storage_bytes_written_total", "file", "snapshot").sum()) + ".");
+        lines.add("  Journal: " + Metrics.counter("starou_journal_commits_total").sum() + " writes of "
+                + Metrics.counter("starou_journal_records_total").sum() + " records, "
+                + Metrics.gaugeValue("starou_journal_queue_depth") + " queued, p99 "
+                + formatMicros(commits.percentileMicros(0.99)) + " until durable.");
+        printBox(lines.toArray(new String[0]));
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000) return micros + "us";
+        if (micros < 1_000_000) return String.format("%.1fms", micros / 1e3);
+        return String.format("%.1fs", micros / 1e6);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
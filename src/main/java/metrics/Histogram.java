@@ -0,0 +1,126 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram that can be updated from many threads without locking.
+ * <p>
+ * Latencies are counted in log-linear buckets of microseconds: every power of two is split into
+ * {@value #SUB_BUCKETS} equal sub-buckets, and the values below {@value #SUB_BUCKETS} get one bucket each.
+ * Recording is a couple of shifts and atomic adds, and percentiles are reported as the upper bound
+ * of their bucket, i.e. at most an eighth too high.
+ * </p>
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Enough for latencies up to 2^36 microseconds, about 19 hours; longer ones share the last bucket. */
+    private static final int BUCKETS = (36 - SUB_BITS + 1) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        buckets.incrementAndGet(Math.min(bucketOf(micros), BUCKETS - 1));
+        count.increment();
+        sumNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Returns the bucket of a latency: the value itself below {@link #SUB_BUCKETS}, and above that
+     * the power of two it falls in, followed by the next {@link #SUB_BITS} bits below its top bit.
+     */
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the smallest latency in microseconds that is too long for the given bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket + 1;
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long maxMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    /**
+     * Returns the latency that the given fraction of recordings stayed within.
+     *
+     * @param fraction e.g. {@code 0.99} for the 99th percentile
+     * @return the upper bound of that latency in microseconds, at most the longest one recorded,
+     *         or {@code 0} if nothing was recorded
+     */
+    public long percentileMicros(double fraction) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        long rank = Math.max((long) Math.ceil(total * fraction), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long maxMicros = (maxNanos.get() + 999) / 1000;
+                return i == BUCKETS - 1 ? maxMicros : Math.min(upperBoundOf(i), maxMicros);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Appends this histogram in the Prometheus text format, with cumulative buckets in seconds.
+     * Only buckets that recorded something are written, as most of them stay empty.
+     *
+     * @param sb the builder to append to
+     * @param name the metric name, without suffix
+     * @param labels the label pairs already formatted, e.g. {@code command="add"}, or an empty string
+     */
+    void appendPrometheus(StringBuilder sb, String name, String labels) {
+        String separator = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            long n = buckets.get(i);
+            if (n == 0) continue;
+            cumulative += n;
+            String seconds = BigDecimal.valueOf(upperBoundOf(i), 6).toPlainString();
+            sb.append(name).append("_bucket{").append(separator).append("le=\"").append(seconds).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += buckets.get(BUCKETS - 1);
+        sb.append(name).append("_bucket{").append(separator).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(braces).append(' ').append(sumNanos() / 1e9).append('\n');
+        sb.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
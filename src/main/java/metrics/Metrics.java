@@ -0,0 +1,185 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The counters, gauges and latency histograms of the running application, in one place.
+ * <p>
+ * Metrics are named like Prometheus metrics and may carry labels given as key/value pairs,
+ * e.g. {@code counter("starou_commands_total", "command", "add")}. Looking a metric up creates it
+ * on first use; callers on a hot path should keep the returned object rather than look it up each time.
+ * Everything can be written in the Prometheus text format with {@link #writeTo(Path)}, leaving out
+ * histograms that have not recorded anything yet. {@link #exportPeriodically(Path, long)} does that
+ * in the background so other tools can pick the file up.
+ * </p>
+ *
+ * <p><b>Example output:</b></p>
+ * <pre>
+ * starou_commands_total{command="add"} 12
+ * starou_journal_queue_depth 0
+ * </pre>
+ */
+public final class Metrics {
+    private static final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService exporter;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter with the given name and labels.
+     *
+     * @param name the metric name, e.g. {@code starou_commands_total}
+     * @param labels alternating label names and values
+     * @return the counter, created at zero if it did not exist
+     */
+    public static LongAdder counter(String name, String... labels) {
+        return counters.computeIfAbsent(key(name, labels), k -> new LongAdder());
+    }
+
+    /**
+     * Returns the latency histogram with the given name and labels.
+     *
+     * @param name the metric name, e.g. {@code starou_command_seconds}
+     * @param labels alternating label names and values
+     * @return the histogram, created empty if it did not exist
+     */
+    public static Histogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(key(name, labels), k -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge whose value is read whenever the metrics are written.
+     * A later registration under the same name replaces the earlier one.
+     *
+     * @param name the metric name, e.g. {@code starou_journal_queue_depth}
+     * @param value supplies the current value
+     * @param labels alternating label names and values
+     */
+    public static void gauge(String name, LongSupplier value, String... labels) {
+        gauges.put(key(name, labels), value);
+    }
+
+    /**
+     * Returns the current value of a gauge.
+     *
+     * @return the value, or {@code 0} if no such gauge is registered
+     */
+    public static long gaugeValue(String name, String... labels) {
+        LongSupplier value = gauges.get(key(name, labels));
+        return value == null ? 0 : value.getAsLong();
+    }
+
+    private static String key(String name, String... labels) {
+        if (labels.length == 0) return name;
+        StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns every metric in the Prometheus text exposition format, sorted by name.
+     */
+    public static String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+        String lastType = null;
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            lastType = appendType(sb, e.getKey(), "counter", lastType);
+            sb.append(e.getKey()).append(' ').append(e.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(gauges).entrySet()) {
+            lastType = appendType(sb, e.getKey(), "gauge", lastType);
+            sb.append(e.getKey()).append(' ').append(e.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            if (e.getValue().count() == 0) continue;
+            lastType = appendType(sb, e.getKey(), "histogram", lastType);
+            String key = e.getKey();
+            int brace = key.indexOf('{');
+            String name = brace < 0 ? key : key.substring(0, brace);
+            String labels = brace < 0 ? "" : key.substring(brace + 1, key.length() - 1);
+            e.getValue().appendPrometheus(sb, name, labels);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a {@code # TYPE} line when a new metric name starts.
+     *
+     * @return the name the type line was written for
+     */
+    private static String appendType(StringBuilder sb, String key, String type, String lastType) {
+        int brace = key.indexOf('{');
+        String name = brace < 0 ? key : key.substring(0, brace);
+        if (!name.equals(lastType)) {
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+        return name;
+    }
+
+    /**
+     * Writes every metric to a file in the Prometheus text format, replacing it atomically
+     * so readers never see half a file.
+     *
+     * @param file the file to write, e.g. {@code ./data/metrics.prom}
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeTo(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the metrics file every {@code periodMillis} milliseconds on a background thread,
+     * and once more when the JVM exits. Calling this again has no effect.
+     *
+     * @param file the file to write
+     * @param periodMillis how often to write it
+     */
+    public static synchronized void exportPeriodically(Path file, long periodMillis) {
+        if (exporter != null) return;
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "starou-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        exporter.scheduleWithFixedDelay(() -> export(file), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> export(file), "starou-metrics-exit"));
+    }
+
+    private static void export(Path file) {
+        try {
+            writeTo(file);
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to write metrics: " + e.getMessage());
+        }
+    }
+}
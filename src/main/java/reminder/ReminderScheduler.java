@@ -0,0 +1,204 @@
+package reminder;
+
+import metrics.Metrics;
+import storage.TaskRepository;
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+import task.TaskListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reminds the user of deadlines that are coming up and events that are about to start.
+ * <p>
+ * Every deadline and event that is not done and still ahead gets one timer in a {@link TimerWheel}
+ * with one-second ticks, due a fixed lead time before the deadline or the start of the event.
+ * The scheduler listens to the task list, so a timer is armed when a task is added or loaded,
+ * cancelled when it is deleted or marked, and armed again when it is unmarked or put back by an undo.
+ * A background thread advances the wheel once a second and passes a message for each expired timer
+ * to the notifier; no task is looked at unless its timer expires. A repeating task only ever has a
+ * timer for its next occurrence, armed again for the one after once it fires.
+ * </p>
+ * <p>
+ * Timers are keyed by task id, so only ids are kept, never the tasks themselves.
+ * </p>
+ */
+public final class ReminderScheduler implements TaskListener {
+    private static final long TICK_MILLIS = 1000;
+
+    private final TaskRepository repository;
+    private final long leadMillis;
+    private final Consumer<String> notifier;
+    private final TimerWheel wheel = new TimerWheel(tickOf(System.currentTimeMillis()));
+    private final LongAdder fired = Metrics.counter("starou_reminders_fired_total");
+    private long[] expired = new long[16];
+    private int expiredCount;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Constructs a scheduler for the tasks in a repository. Nothing is armed until {@link #start()}.
+     *
+     * @param repository the tasks to remind of
+     * @param lead how long before a deadline or the start of an event to remind of it
+     * @param notifier receives one message per reminder, on the scheduler's thread
+     */
+    public ReminderScheduler(TaskRepository repository, Duration lead, Consumer<String> notifier) {
+        this.repository = repository;
+        this.leadMillis = lead.toMillis();
+        this.notifier = notifier;
+    }
+
+    /**
+     * Arms a timer for every task already in the list and starts the background thread.
+     * Calling this again has no effect.
+     */
+    public void start() {
+        synchronized (this) {
+            if (ticker != null) return;
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "starou-reminders");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        //Not while holding this monitor: marks hold the repository's lock while they wait for it
+        repository.addListener(this);
+        Metrics.gauge("starou_reminders_pending", this::pending);
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background thread. Pending reminders are not sent.
+     */
+    public synchronized void close() {
+        if (ticker != null) ticker.shutdownNow();
+    }
+
+    /**
+     * Returns the number of reminders waiting for their time.
+     */
+    public synchronized int pending() {
+        return wheel.size();
+    }
+
+    @Override
+    public void onAdd(Task task) {
+        arm(task);
+    }
+
+    @Override
+    public synchronized void onRemove(Task task) {
+        wheel.cancel(task.getId());
+    }
+
+    @Override
+    public void onUpdate(Task task) {
+        arm(task);
+    }
+
+    /**
+     * Arms the timer of a task, or cancels it if the task is done or its time has passed.
+     */
+    private void arm(Task task) {
+        arm(task, LocalDateTime.now());
+    }
+
+    /**
+     * Arms the timer of a task for its next occurrence after {@code after}, or cancels it if there is none.
+     */
+    private void arm(Task task, LocalDateTime after) {
+        LocalDateTime at = timeOf(task, after);
+        if (at == null) return;
+        long atMillis = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (this) {
+            if (task.isDone() || atMillis <= System.currentTimeMillis()) {
+                wheel.cancel(task.getId());
+            } else {
+                wheel.schedule(task.getId(), tickOf(atMillis - leadMillis));
+            }
+        }
+    }
+
+    /**
+     * Returns when a task is due or starts: for a repeating task, its first occurrence after {@code after},
+     * or the last one if the rule has ended.
+     */
+    private static LocalDateTime timeOf(Task task, LocalDateTime after) {
+        LocalDateTime first;
+        if (task instanceof Deadline) {
+            first = ((Deadline) task).getBy();
+        } else if (task instanceof Event) {
+            first = ((Event) task).getFrom();
+        } else {
+            return null;
+        }
+        Recurrence rule = task.getRecurrence();
+        if (rule == null) return first;
+        LocalDateTime next = rule.next(first, after);
+        return next != null ? next : first;
+    }
+
+    private static long tickOf(long millis) {
+        return Math.floorDiv(millis, TICK_MILLIS);
+    }
+
+    /**
+     * Advances the wheel to the current second and sends a reminder for each expired timer.
+     * The tasks are looked up after the wheel is released, as the repository calls into it while locked.
+     */
+    private void tick() {
+        long[] ids;
+        synchronized (this) {
+            expiredCount = 0;
+            wheel.advance(tickOf(System.currentTimeMillis()), this::collect);
+            if (expiredCount == 0) return;
+            ids = Arrays.copyOf(expired, expiredCount);
+        }
+        try {
+            TaskRepository.Selection found = repository.selectIds(ids);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < found.size(); i++) {
+                Task t = found.task(i);
+                if (t.isDone()) continue;
+                LocalDateTime at = timeOf(t, now);
+                notifier.accept(messageOf(t, found.position(i), at, now));
+                fired.increment();
+                if (t.getRecurrence() != null) {
+                    //Move on to the next occurrence
+                    arm(t, at);
+                }
+            }
+        } catch (RuntimeException e) {
+            //Keep the thread alive for the next reminders
+            System.err.println("[WARN] Failed to send reminders: " + e.getMessage());
+        }
+    }
+
+    private void collect(long id) {
+        if (expiredCount == expired.length) {
+            expired = Arrays.copyOf(expired, expiredCount * 2);
+        }
+        expired[expiredCount++] = id;
+    }
+
+    /**
+     * Returns the reminder for a task, e.g. {@code Reminder: 3.[D][ ] submit report (by: ...) is due in 30 minutes.}
+     */
+    private static String messageOf(Task task, int position, LocalDateTime at, LocalDateTime now) {
+        long millis = Duration.between(now, at).toMillis();
+        long minutes = Math.max(0, (millis + 59_999) / 60_000);
+        String when = minutes == 0 ? "now" : minutes == 1 ? "in 1 minute" : "in " + minutes + " minutes";
+        String verb = task instanceof Event ? "starts" : "is due";
+        return "Reminder: " + (position + 1) + "." + task + " " + verb + " " + when + ".";
+    }
+}
@@ -0,0 +1,163 @@
+package reminder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * A hierarchical timer wheel that hands out keys once their due tick has been reached.
+ * <p>
+ * The wheel has six levels of 64 slots. Level 0 holds the timers due within the next 64 ticks,
+ * one slot per tick; each level above covers 64 times the span of the one below, with one slot per
+ * span of the level below. Scheduling and cancelling are O(1): a timer is linked into the slot its
+ * due tick falls in, and a map from key to node finds it again. Advancing by one tick expires the
+ * level 0 slot for that tick, and whenever a level wraps, the next slot of the level above is
+ * cascaded down, each timer moving to the level matching how far away it now is. Every timer
+ * moves down at most five times, so the cost per timer stays O(1) however many are pending.
+ * </p>
+ * <p>
+ * A key has at most one timer; scheduling it again replaces the earlier one.
+ * The wheel is not thread-safe.
+ * </p>
+ */
+public final class TimerWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    /** The furthest ahead a timer can be placed; later ones are placed here and moved again when cascaded. */
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private static final class Node {
+        final long key;
+        final long due;
+        Node previous;
+        Node next;
+        int level;
+        int slot;
+
+        Node(long key, long due) {
+            this.key = key;
+            this.due = due;
+        }
+    }
+
+    private final Node[][] heads = new Node[LEVELS][SLOTS];
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private long now;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param startTick the current tick
+     */
+    public TimerWheel(long startTick) {
+        this.now = startTick;
+    }
+
+    /**
+     * Returns the tick the wheel has advanced to.
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Returns the number of pending timers.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Schedules a timer, replacing any earlier timer of the same key.
+     * A due tick that has already been reached expires on the next tick.
+     *
+     * @param key the key handed out when the timer expires
+     * @param dueTick the tick the timer expires at
+     */
+    public void schedule(long key, long dueTick) {
+        cancel(key);
+        Node n = new Node(key, dueTick);
+        nodes.put(key, n);
+        insert(n, now + 1);
+    }
+
+    /**
+     * Cancels the timer of a key.
+     *
+     * @return whether the key had a pending timer
+     */
+    public boolean cancel(long key) {
+        Node n = nodes.remove(key);
+        if (n == null) return false;
+        unlink(n);
+        return true;
+    }
+
+    /**
+     * Advances the wheel tick by tick up to {@code tick}, handing out every key whose timer expires on the way.
+     *
+     * @param tick the tick to advance to; earlier ticks are ignored
+     * @param expired receives the keys of the expired timers, in order of their due ticks
+     */
+    public void advance(long tick, LongConsumer expired) {
+        while (now < tick) {
+            now++;
+            for (int level = 1; level < LEVELS && (now & ((1L << (BITS * level)) - 1)) == 0; level++) {
+                cascade(level, (int) (now >>> (BITS * level)) & MASK);
+            }
+            int slot = (int) now & MASK;
+            for (Node n = heads[0][slot]; n != null; n = heads[0][slot]) {
+                unlink(n);
+                nodes.remove(n.key);
+                expired.accept(n.key);
+            }
+        }
+    }
+
+    /**
+     * Moves the timers of a slot to the levels below, now that they are closer.
+     */
+    private void cascade(int level, int slot) {
+        Node n = heads[level][slot];
+        heads[level][slot] = null;
+        while (n != null) {
+            Node next = n.next;
+            insert(n, now);
+            n = next;
+        }
+    }
+
+    /**
+     * Links a node into the slot matching its distance from now.
+     *
+     * @param earliest the earliest tick it may expire at
+     */
+    private void insert(Node n, long earliest) {
+        long due = Math.min(Math.max(n.due, earliest), now + MAX_DELTA);
+        long delta = due - now;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (due >>> (BITS * level)) & MASK;
+        n.level = level;
+        n.slot = slot;
+        n.previous = null;
+        n.next = heads[level][slot];
+        if (n.next != null) n.next.previous = n;
+        heads[level][slot] = n;
+    }
+
+    private void unlink(Node n) {
+        if (n.previous != null) {
+            n.previous.next = n.next;
+        } else {
+            heads[n.level][n.slot] = n.next;
+        }
+        if (n.next != null) n.next.previous = n.previous;
+        n.previous = null;
+        n.next = null;
+    }
+}
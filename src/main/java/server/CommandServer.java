@@ -0,0 +1,202 @@
+package server;
+
+import command.Session;
+import storage.TaskRepository;
+import ui.BoxWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves Starou commands over TCP, one command per line.
+ * <p>
+ * Every connection gets its own {@link Session} over the shared {@link TaskRepository}, and runs on
+ * its own thread: a virtual thread on Java 21 and later, or a pooled platform thread before that.
+ * Replies are the same boxes the console prints, in UTF-8, each followed by an empty line so
+ * clients know where a reply ends. The server greets each client with such a reply, and
+ * {@code bye} closes the connection. Clients are not authenticated, so the server listens on the
+ * loopback address unless told otherwise, and its sessions cannot import or export files.
+ * </p>
+ *
+ * <p><b>Example session:</b></p>
+ * <pre>
+ * &gt; todo read book
+ *  _____________________________________________________
+ *   Got it. I've add this task:
+ *    [T][ ] read book
+ *   Now you have 1 tasks in the list.
+ *  _____________________________________________________
+ *
+ * </pre>
+ */
+public class CommandServer implements Closeable {
+    private static final int BACKLOG = 512;
+    private static final byte[] END_OF_REPLY = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final TaskRepository repository;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Binds a server to a port on the loopback address, so only clients on this machine can connect.
+     * Call {@link #start()} to accept clients.
+     *
+     * @param port the port, or {@code 0} for any free port
+     * @param repository the tasks all clients work on
+     * @throws IOException if the port cannot be bound
+     */
+    public CommandServer(int port, TaskRepository repository) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, repository);
+    }
+
+    /**
+     * Binds a server to a port on the given address. Call {@link #start()} to accept clients.
+     * Clients are not authenticated, so only bind beyond the loopback address on a trusted network.
+     *
+     * @param address the address to listen on, e.g. a wildcard address for all interfaces
+     * @param port the port, or {@code 0} for any free port
+     * @param repository the tasks all clients work on
+     * @throws IOException if the port cannot be bound
+     */
+    public CommandServer(InetAddress address, int port, TaskRepository repository) throws IOException {
+        this.repository = repository;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(address, port), BACKLOG);
+        this.acceptor = new Thread(this::acceptLoop, "starou-acceptor");
+    }
+
+    /**
+     * Returns an executor that runs each task on a new virtual thread if the JDK has them
+     * (Java 21+), or on a cached pool of daemon platform threads otherwise.
+     * Virtual threads are looked up reflectively so the code still compiles for Java 17.
+     */
+    public static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //No virtual threads before Java 21 (or only as a disabled preview)
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "starou-client");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the address the server listens on, e.g. {@code 127.0.0.1}.
+     */
+    public String address() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * Starts accepting clients on a background thread.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                //Closed by close()
+            } catch (IOException e) {
+                System.err.println("[WARN] Failed to accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream socketOut = new BufferedOutputStream(socket.getOutputStream());
+            Session session = new Session(repository, new BoxWriter(withoutFlush(socketOut), StandardCharsets.UTF_8), true);
+
+            session.printBox("Hello! I'm Starou from Vietnam", "What can I do for you?");
+            endReply(socketOut);
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean isOpen = session.handle(line);
+                endReply(socketOut);
+                if (!isOpen) break;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            //The client went away; nothing to clean up beyond the socket
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    private static void endReply(OutputStream out) throws IOException {
+        out.write(END_OF_REPLY);
+        out.flush();
+    }
+
+    /**
+     * Wraps a stream so that the flush at the end of each box is skipped and the reply,
+     * including its terminating empty line, goes out in one flush.
+     */
+    private static OutputStream withoutFlush(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+    }
+
+    /**
+     * Stops accepting clients, disconnects the connected ones and waits briefly for their commands to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket s : clients) {
+            s.close();
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(5, TimeUnit.SECONDS);
+            acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package storage;
+
+import task.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed segments of completed tasks that were moved out of the task list, kept next to the save file.
+ * <p>
+ * Every {@code archive} writes one new segment: the tasks in the text save format, gzipped.
+ * Segments are numbered and never changed once written, so archiving never rewrites old data and
+ * the save file only holds the tasks still in use. Searching reads the segments one at a time.
+ * </p>
+ *
+ * <p><b>Example files:</b></p>
+ * <pre>
+ * ./data/Starou.txt.archive.1.gz
+ * ./data/Starou.txt.archive.2.gz
+ * </pre>
+ */
+class Archive {
+    private final Path filePath;
+
+    /**
+     * Constructs an archive that lives next to the given save file.
+     *
+     * @param filePath the path of the save file the archive belongs to
+     */
+    Archive(Path filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Returns the path of the segment with the given number, e.g. {@code ./data/Starou.txt.archive.2.gz}.
+     */
+    Path pathOf(long segment) {
+        return filePath.resolveSibling(filePath.getFileName() + ".archive." + segment + ".gz");
+    }
+
+    /**
+     * Lists the numbers of all segments currently on disk, in ascending order.
+     *
+     * @return the segment numbers found (possibly empty)
+     * @throws IOException if the directory cannot be read
+     */
+    List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        Path dir = filePath.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) return segments;
+
+        String prefix = filePath.getFileName() + ".archive.";
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, prefix + "*.gz")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(prefix.length(), name.length() - 3)));
+                } catch (NumberFormatException e) {
+                    //Not one of ours
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Writes the tasks as a new segment and forces it to disk before returning, since the tasks
+     * are removed from the list right afterwards. The segment only appears once it is complete.
+     *
+     * @param tasks the tasks to archive
+     * @throws IOException if the segment cannot be written
+     */
+    void append(List<Task> tasks) throws IOException {
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        List<Long> existing = segments();
+        Path target = pathOf(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(ch), 1 << 16);
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 1 << 16);
+            for (Task t : tasks) {
+                bw.write(t.toStorageString());
+                bw.newLine();
+            }
+            bw.flush();
+            gzip.finish();
+            ch.force(true);
+            StorageMetrics.archiveBytes.add(ch.size());
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target);
+        }
+    }
+
+    /**
+     * Reads the tasks of one segment one at a time, without keeping them.
+     *
+     * @param segment the segment number
+     * @param action called with each task, in the order they were archived
+     * @throws IOException if the segment cannot be read or is not valid gzip
+     */
+    void read(long segment, Consumer<Task> action) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(pathOf(segment)), 1 << 16), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Task t = TextSnapshotCodec.parseLine(line.trim());
+                if (t != null) action.accept(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package storage;
+
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+import task.Todo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Reads and writes snapshots in a compact, versioned binary format.
+ * <p>
+ * Descriptions are stored as length-prefixed UTF-8 and dates as minutes since the epoch,
+ * so loading needs neither a regex split nor a {@code DateTimeFormatter}. All numbers are big-endian.
+ * </p>
+ *
+ * <p><b>Layout (version 3):</b></p>
+ * <pre>
+ * header  : magic "STRB" (4) | version (1) | generation (8) | task count (4)
+ * record  : type 'T'/'D'/'E' (1) | done (1) | description length (4) | description UTF-8
+ *           | [by (8)]            for D
+ *           | [from (8) | to (8)] for E
+ *           | [rule length (2) | repeat rule UTF-8] for D and E, length 0 if the task does not repeat
+ * offsets : file offset of each record (8 each)
+ * trailer : file offset of the offset table (8)
+ * </pre>
+ * Version 2 files have no repeat rules and version 1 files have no offset table and trailer either;
+ * both can still be read.
+ * The offset table lets {@link MappedSnapshot} jump straight to any record.
+ */
+class BinarySnapshotCodec implements SnapshotCodec {
+    static final int MAGIC = 0x53545242;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+
+    @Override
+    public long read(Path path, List<Task> into) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a Starou binary save file: " + path);
+            }
+            int version = in.readUnsignedByte();
+            if(version < 1 || version > VERSION) {
+                throw new IOException("Unsupported binary save file version " + version);
+            }
+            long generation = in.readLong();
+            int count = in.readInt();
+
+            for(int i = 0; i < count; i++) {
+                Task t;
+                try {
+                    t = readRecord(in, version);
+                } catch (EOFException e) {
+                    System.err.println("[WARN] Save file truncated after " + i + " of " + count + " tasks");
+                    StorageMetrics.corruptedLines.add(count - i);
+                    break;
+                }
+                if(t == null) {
+                    //Without a valid type the record length is unknown, so nothing after it can be trusted
+                    System.err.println("[WARN] Skip corrupted records from task " + (i + 1) + " onwards");
+                    StorageMetrics.corruptedLines.add(count - i);
+                    break;
+                }
+                into.add(t);
+            }
+            return generation;
+        }
+    }
+
+    private static Task readRecord(DataInputStream in, int version) throws IOException {
+        char type = (char) in.readUnsignedByte();
+        boolean done = in.readBoolean();
+        byte[] desc = new byte[in.readInt()];
+        in.readFully(desc);
+        String description = new String(desc, StandardCharsets.UTF_8);
+
+        Task t;
+        switch(type) {
+            case 'T':
+                t = new Todo(description);
+                break;
+            case 'D': {
+                LocalDateTime by = fromMinutes(in.readLong());
+                t = new Deadline(description, by, version >= 3 ? readRule(in) : null);
+                break;
+            }
+            case 'E': {
+                LocalDateTime from = fromMinutes(in.readLong());
+                LocalDateTime to = fromMinutes(in.readLong());
+                t = new Event(description, from, to, version >= 3 ? readRule(in) : null);
+                break;
+            }
+            default:
+                return null;
+        }
+        if(done) t.mark();
+        return t;
+    }
+
+    private static Recurrence readRule(DataInputStream in) throws IOException {
+        byte[] rule = new byte[in.readUnsignedShort()];
+        in.readFully(rule);
+        return rule.length == 0 ? null : parseRule(new String(rule, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(List<Task> tasks, long generation, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(generation);
+        data.writeInt(tasks.size());
+
+        long[] offsets = new long[tasks.size()];
+        long position = HEADER_SIZE;
+        int i = 0;
+        for(Task t : tasks) {
+            offsets[i++] = position;
+            position += writeRecord(t, data);
+        }
+        for(long offset : offsets) {
+            data.writeLong(offset);
+        }
+        data.writeLong(position);
+        data.flush();
+    }
+
+    /**
+     * Writes one record.
+     *
+     * @return the number of bytes written
+     */
+    private static int writeRecord(Task t, DataOutputStream data) throws IOException {
+        byte[] desc = t.description.getBytes(StandardCharsets.UTF_8);
+        if(t instanceof Deadline) {
+            data.writeByte('D');
+        } else if(t instanceof Event) {
+            data.writeByte('E');
+        } else {
+            data.writeByte('T');
+        }
+        data.writeBoolean(t.isDone());
+        data.writeInt(desc.length);
+        data.write(desc);
+        if(t instanceof Deadline) {
+            Deadline d = (Deadline) t;
+            data.writeLong(toMinutes(d.getBy()));
+            return 6 + desc.length + 8 + writeRule(d.getRecurrence(), data);
+        } else if(t instanceof Event) {
+            Event e = (Event) t;
+            data.writeLong(toMinutes(e.getFrom()));
+            data.writeLong(toMinutes(e.getTo()));
+            return 6 + desc.length + 16 + writeRule(e.getRecurrence(), data);
+        }
+        return 6 + desc.length;
+    }
+
+    private static int writeRule(Recurrence rule, DataOutputStream data) throws IOException {
+        byte[] bytes = rule == null ? new byte[0] : rule.toString().getBytes(StandardCharsets.UTF_8);
+        data.writeShort(bytes.length);
+        data.write(bytes);
+        return 2 + bytes.length;
+    }
+
+    /**
+     * Decodes the record starting at {@code offset} of a buffer holding a whole save file.
+     * Reads with absolute positions only, so the buffer can be shared.
+     *
+     * @param version the format version of the file
+     * @throws IllegalStateException if the record has an unknown type
+     */
+    static Task readRecord(ByteBuffer buf, int offset, int version) {
+        char type = (char) (buf.get(offset) & 0xff);
+        boolean done = buf.get(offset + 1) != 0;
+        int length = buf.getInt(offset + 2);
+        byte[] desc = new byte[length];
+        buf.get(offset + 6, desc);
+        String description = new String(desc, StandardCharsets.UTF_8);
+        int next = offset + 6 + length;
+
+        Task t;
+        switch(type) {
+            case 'T':
+                t = new Todo(description);
+                break;
+            case 'D':
+                t = new Deadline(description, fromMinutes(buf.getLong(next)),
+                        version >= 3 ? readRule(buf, next + 8) : null);
+                break;
+            case 'E':
+                t = new Event(description, fromMinutes(buf.getLong(next)), fromMinutes(buf.getLong(next + 8)),
+                        version >= 3 ? readRule(buf, next + 16) : null);
+                break;
+            default:
+                throw new IllegalStateException("Corrupted record at byte " + offset);
+        }
+        if(done) t.mark();
+        return t;
+    }
+
+    private static Recurrence readRule(ByteBuffer buf, int offset) {
+        int length = buf.getShort(offset) & 0xffff;
+        if(length == 0) return null;
+        byte[] rule = new byte[length];
+        buf.get(offset + 2, rule);
+        return parseRule(new String(rule, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a saved repeat rule. A rule that cannot be parsed is counted as corrupted and dropped,
+     * keeping the task as a one-off, since the record length is still known.
+     */
+    private static Recurrence parseRule(String rule) {
+        try {
+            return Recurrence.parse(rule);
+        } catch (RuntimeException e) {
+            System.err.println("[WARN] Skip corrupted repeat rule: " + rule);
+            StorageMetrics.corruptedLines.increment();
+            return null;
+        }
+    }
+
+    private static long toMinutes(LocalDateTime t) {
+        return Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromMinutes(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+}
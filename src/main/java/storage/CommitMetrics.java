@@ -0,0 +1,116 @@
+package storage;
+
+import metrics.Histogram;
+import metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the journal writer of a {@link Storage}: how many records wait to be written,
+ * how many groups were committed or failed, and how long records took from being logged to being durable.
+ * <p>
+ * Latencies are kept in a {@link Histogram}, so percentiles are reported as the upper bound of their
+ * bucket. Commits and latencies are also added to the application-wide {@link Metrics}.
+ * All methods may be called from any thread.
+ * </p>
+ */
+public final class CommitMetrics {
+    private static final LongAdder totalCommits = Metrics.counter("starou_journal_commits_total");
+    private static final LongAdder totalRecords = Metrics.counter("starou_journal_records_total");
+    private static final LongAdder totalFailures = Metrics.counter("starou_journal_failed_commits_total");
+    private static final Histogram totalLatency = Metrics.histogram("starou_journal_commit_seconds");
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Histogram latency = new Histogram();
+
+    CommitMetrics() {
+        Metrics.gauge("starou_journal_queue_depth", queued::get);
+    }
+
+    void queued(int count) {
+        queued.addAndGet(count);
+    }
+
+    /**
+     * Records one group written to the journal.
+     *
+     * @param count the number of records in the group
+     */
+    void committed(int count) {
+        queued.addAndGet(-count);
+        commits.incrementAndGet();
+        records.addAndGet(count);
+        totalCommits.increment();
+        totalRecords.add(count);
+    }
+
+    /**
+     * Records one group that could not be written to the journal.
+     *
+     * @param count the number of records in the group, which are no longer queued
+     */
+    void failed(int count) {
+        queued.addAndGet(-count);
+        failures.incrementAndGet();
+        totalFailures.increment();
+    }
+
+    /**
+     * Records how long one logged change waited until it was durable.
+     */
+    void latency(long nanos) {
+        latency.record(nanos);
+        totalLatency.record(nanos);
+    }
+
+    /** The number of records logged but not yet written to the journal. */
+    public long queueDepth() {
+        return queued.get();
+    }
+
+    /** The number of journal writes, each covering one or more records. */
+    public long commitCount() {
+        return commits.get();
+    }
+
+    /** The number of records written to the journal. */
+    public long recordCount() {
+        return records.get();
+    }
+
+    /** The number of journal writes that failed; their records were not written. */
+    public long failureCount() {
+        return failures.get();
+    }
+
+    /** The average number of records per journal write, or {@code 0} before the first one. */
+    public double averageGroupSize() {
+        long n = commits.get();
+        return n == 0 ? 0 : (double) records.get() / n;
+    }
+
+    public double maxLatencyMicros() {
+        return latency.maxMicros();
+    }
+
+    /**
+     * Returns the latency that the given fraction of changes stayed within, from being logged to being durable.
+     *
+     * @param fraction e.g. {@code 0.99} for the 99th percentile
+     * @return the upper bound of that latency in microseconds, or {@code 0} if nothing was committed yet
+     */
+    public long latencyMicros(double fraction) {
+        return latency.percentileMicros(fraction);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue %d, %d commits, %d failed, %.1f records/commit, latency p50 %dus p99 %dus max %.0fus",
+                queueDepth(), commitCount(), failureCount(), averageGroupSize(), latencyMicros(0.5), latencyMicros(0.99),
+                maxLatencyMicros());
+    }
+}
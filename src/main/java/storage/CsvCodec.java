@@ -0,0 +1,177 @@
+package storage;
+
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads and writes tasks as comma-separated values, one task per row below a header row.
+ * <p>
+ * Fields holding a comma, a quote or a line break are quoted as RFC 4180 describes. When reading, the
+ * header decides which column is which, so columns may come in any order and unknown ones are ignored;
+ * a file without a header is read in the order below. Times are written as {@code yyyy-MM-ddTHH:mm}.
+ * </p>
+ *
+ * <p><b>Example format:</b></p>
+ * <pre>
+ * type,done,description,by,from,to,repeat
+ * todo,true,Read book,,,,
+ * deadline,false,"Submit report, final",2025-10-10T23:59,,,
+ * event,false,Team meeting,,2025-10-12T14:00,2025-10-12T16:00,every week
+ * </pre>
+ */
+class CsvCodec implements ExchangeCodec {
+    private static final String[] COLUMNS = {"type", "done", "description", "by", "from", "to", "repeat"};
+    /** A quoted field may run over several lines, but one that never closes must not swallow the whole file. */
+    private static final int MAX_RECORD_CHARS = 1 << 20;
+
+    @Override
+    public void write(Iterator<? extends Task> tasks, Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write("\r\n");
+        while (tasks.hasNext()) {
+            Task t = tasks.next();
+            LocalDateTime by = t instanceof Deadline ? ((Deadline) t).getBy() : null;
+            LocalDateTime from = t instanceof Event ? ((Event) t).getFrom() : null;
+            LocalDateTime to = t instanceof Event ? ((Event) t).getTo() : null;
+            Recurrence rule = t.getRecurrence();
+
+            out.write(Exchange.typeOf(t));
+            out.write(t.isDone() ? ",true," : ",false,");
+            writeField(t.description, out);
+            out.write(',');
+            if (by != null) out.write(by.toString());
+            out.write(',');
+            if (from != null) out.write(from.toString());
+            out.write(',');
+            if (to != null) out.write(to.toString());
+            out.write(',');
+            if (rule != null) out.write(rule.toString());
+            out.write("\r\n");
+        }
+        out.flush();
+    }
+
+    private static void writeField(String value, Writer out) throws IOException {
+        boolean needsQuotes = value.isEmpty() || !value.equals(value.strip());
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public void read(LineNumberReader in, Sink sink) throws IOException {
+        int[] columns = {0, 1, 2, 3, 4, 5, 6};
+        boolean isFirst = true;
+        String line;
+        while ((line = in.readLine()) != null) {
+            long lineNumber = in.getLineNumber();
+            try {
+                List<String> fields = split(line, in);
+                if (isFirst) {
+                    isFirst = false;
+                    if (isHeader(fields)) {
+                        columns = columnsOf(fields);
+                        continue;
+                    }
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+                sink.accept(Exchange.task(field(fields, columns[0]), Exchange.done(field(fields, columns[1])),
+                        field(fields, columns[2]), Exchange.dateTime("by", field(fields, columns[3])),
+                        Exchange.dateTime("from", field(fields, columns[4])),
+                        Exchange.dateTime("to", field(fields, columns[5])), Exchange.rule(field(fields, columns[6]))));
+            } catch (IllegalArgumentException e) {
+                sink.skip(lineNumber, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        return fields.stream().anyMatch(f -> f.strip().equalsIgnoreCase("type"))
+                && fields.stream().anyMatch(f -> f.strip().equalsIgnoreCase("description"));
+    }
+
+    /**
+     * Finds where each of {@link #COLUMNS} is in the header, {@code -1} for the ones it lacks.
+     */
+    private static int[] columnsOf(List<String> header) {
+        int[] columns = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).strip().equalsIgnoreCase(COLUMNS[c])) {
+                    columns[c] = i;
+                    break;
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    /**
+     * Splits one record into its fields, reading further lines while a quoted field is still open.
+     *
+     * @throws IllegalArgumentException if a quoted field does not close
+     */
+    private static List<String> split(String line, LineNumberReader in) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        int read = line.length();
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!isQuoted) break;
+                line = in.readLine();
+                if (line == null || read > MAX_RECORD_CHARS) {
+                    throw new IllegalArgumentException("a quoted field is never closed");
+                }
+                read += line.length();
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (isQuoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                isQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,331 @@
+package storage;
+
+import exception.StarouException;
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+import task.Todo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Exports tasks to, and imports them from, files other programs understand: CSV, JSON Lines and iCalendar,
+ * see {@link ExchangeFormat}.
+ * <p>
+ * Files are streamed through a {@link FileChannel} with fixed-size buffers, one record at a time, so
+ * moving millions of tasks takes no more memory than moving a few. Imported tasks are handed over
+ * in chunks as they are read rather than once the whole file is. A record that cannot be decoded is
+ * skipped with a warning, as a corrupted line of the save file is, and the rest of the file is still imported.
+ * </p>
+ */
+public final class Exchange {
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** How many imported tasks are handed over at once. */
+    private static final int CHUNK = 4096;
+    /** How many skipped records an import remembers to report; the rest are only warned about. */
+    private static final int MAX_PROBLEMS = 5;
+
+    private Exchange() {
+    }
+
+    /**
+     * What an import did: how many tasks it added, how many records it skipped and why the first few were.
+     */
+    public static final class ImportResult {
+        public final long imported;
+        public final long skipped;
+        /** Up to a few skipped records, as e.g. {@code line 7: the description is missing}. */
+        public final List<String> problems;
+
+        ImportResult(long imported, long skipped, List<String> problems) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.problems = problems;
+        }
+    }
+
+    /**
+     * Writes tasks to a file in the format its extension names. The file only appears, or is replaced,
+     * once it is complete. Until then the tasks go to a temporary file of its own next to it, so no
+     * other file is overwritten on the way.
+     *
+     * @param tasks the tasks to export, e.g. fetched a page at a time
+     * @param path the file to write
+     * @param replace whether an existing file may be replaced
+     * @return the number of tasks written
+     * @throws StarouException if the extension is unknown, the file exists and may not be replaced,
+     *         or it cannot be written
+     */
+    public static long export(Iterator<? extends Task> tasks, Path path, boolean replace) {
+        ExchangeFormat format = ExchangeFormat.of(path);
+        if (!replace && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            throw new StarouException("There is already a file " + path + "!");
+        }
+        Path tmp = null;
+        long[] count = new long[1];
+        Iterator<Task> counted = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return tasks.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                count[0]++;
+                return tasks.next();
+            }
+        };
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = dir.resolve("." + path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                    + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                Writer out = new BufferedWriter(Channels.newWriter(ch, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+                        BUFFER_SIZE);
+                format.codec().write(counted, out);
+                out.flush();
+                StorageMetrics.exportBytes.add(ch.size());
+            }
+            if (!replace) {
+                //Not atomic, so that a file created in the meantime is refused rather than replaced
+                Files.move(tmp, path);
+            } else {
+                try {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    //Nothing more to do
+                }
+            }
+            if (e instanceof FileAlreadyExistsException) {
+                throw new StarouException("There is already a file " + path + "!");
+            }
+            throw new StarouException("Failed to export to " + path + ": " + e.getMessage());
+        }
+        return count[0];
+    }
+
+    /**
+     * Reads the tasks of a file in the format its extension names, handing them over in chunks as they
+     * are read. The list passed to {@code into} is reused for the next chunk.
+     *
+     * @param path the file to read
+     * @param into called with each chunk of tasks, in file order
+     * @return how many tasks were imported and which records were skipped
+     * @throws StarouException if the extension is unknown or the file cannot be read
+     */
+    public static ImportResult importFrom(Path path, Consumer<List<Task>> into) {
+        ExchangeFormat format = ExchangeFormat.of(path);
+        if (!Files.isRegularFile(path)) {
+            throw new StarouException("There is no file " + path + " to import!");
+        }
+        List<Task> chunk = new ArrayList<>(CHUNK);
+        List<String> problems = new ArrayList<>();
+        long[] counts = new long[2];
+        ExchangeCodec.Sink sink = new ExchangeCodec.Sink() {
+            @Override
+            public void accept(Task task) {
+                chunk.add(task);
+                counts[0]++;
+                if (chunk.size() == CHUNK) {
+                    into.accept(chunk);
+                    chunk.clear();
+                }
+            }
+
+            @Override
+            public void skip(long line, String reason) {
+                counts[1]++;
+                StorageMetrics.skippedRecords.increment();
+                System.err.println("[WARN] Skip record at line " + line + " of " + path + ": " + reason);
+                if (problems.size() < MAX_PROBLEMS) problems.add("line " + line + ": " + reason);
+            }
+        };
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            LineNumberReader in = new LineNumberReader(Channels.newReader(ch, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE), BUFFER_SIZE);
+            //Skip the byte order mark spreadsheets like to start with
+            in.mark(1);
+            if (in.read() != '\uFEFF') in.reset();
+            format.codec().read(in, sink);
+        } catch (IOException e) {
+            throw new StarouException("Failed to import " + path + " after " + counts[0] + " tasks: " + e.getMessage());
+        } finally {
+            if (!chunk.isEmpty()) into.accept(chunk);
+        }
+        StorageMetrics.importedTasks.add(counts[0]);
+        return new ImportResult(counts[0], counts[1], problems);
+    }
+
+    /**
+     * Builds a task from the fields a record of any format has, checking that they fit together.
+     *
+     * @param type {@code todo}, {@code deadline} or {@code event}, or their first letter, ignoring case
+     * @param done whether the task is done
+     * @param description the description; line breaks become spaces
+     * @param by when a deadline is due, {@code null} for other tasks
+     * @param from when an event starts, {@code null} for other tasks
+     * @param to when an event ends, {@code null} for other tasks
+     * @param rule how a deadline or event repeats, or {@code null}
+     * @return the task
+     * @throws IllegalArgumentException naming the problem if the fields do not make a task
+     */
+    static Task task(String type, boolean done, String description, LocalDateTime by, LocalDateTime from,
+                     LocalDateTime to, Recurrence rule) {
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("the description is missing");
+        }
+        description = joinLines(description.strip());
+        if (description.indexOf('|') >= 0) {
+            throw new IllegalArgumentException("descriptions cannot contain '|'");
+        }
+
+        Task t;
+        switch (type == null ? "" : type.strip().toLowerCase()) {
+        case "todo":
+        case "t":
+            if (by != null || from != null || to != null || rule != null) {
+                throw new IllegalArgumentException("a todo has no dates or repeat rule");
+            }
+            t = new Todo(description);
+            break;
+        case "deadline":
+        case "d":
+            if (by == null) throw new IllegalArgumentException("the deadline has no due time");
+            t = new Deadline(description, by, rule);
+            break;
+        case "event":
+        case "e":
+            if (from == null || to == null) throw new IllegalArgumentException("the event needs a start and an end");
+            if (to.isBefore(from)) throw new IllegalArgumentException("the event ends before it starts");
+            t = new Event(description, from, to, rule);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown type '" + (type == null ? "" : type)
+                    + "', expected todo, deadline or event");
+        }
+        if (done) t.mark();
+        return t;
+    }
+
+    /**
+     * Joins the lines of a description with single spaces, dropping the white space around each line break.
+     * Most descriptions have no line break and are returned as they are, without copying.
+     */
+    private static String joinLines(String text) {
+        if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0) return text;
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\n' && c != '\r') {
+                sb.append(c);
+                continue;
+            }
+            //Drop the white space before the break, then skip any further breaks and white space after it
+            int end = sb.length();
+            while (end > 0 && Character.isWhitespace(sb.charAt(end - 1))) {
+                end--;
+            }
+            sb.setLength(end);
+            while (i + 1 < text.length() && Character.isWhitespace(text.charAt(i + 1))) {
+                i++;
+            }
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the type of a task as records name it: {@code todo}, {@code deadline} or {@code event}.
+     */
+    static String typeOf(Task t) {
+        return t instanceof Event ? "event" : t instanceof Deadline ? "deadline" : "todo";
+    }
+
+    /**
+     * Parses a time written as {@code yyyy-MM-ddTHH:mm}, optionally with seconds, or as {@code yyyy-MM-dd HH:mm}.
+     * Seconds are dropped, as tasks only keep minutes.
+     *
+     * @param field the name of the field, for the error message
+     * @param value the text, or {@code null}
+     * @return the time, or {@code null} if the value is missing or blank
+     * @throws IllegalArgumentException if the value is not a time
+     */
+    static LocalDateTime dateTime(String field, String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return LocalDateTime.parse(value.strip().replace(' ', 'T')).truncatedTo(ChronoUnit.MINUTES);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("invalid " + field + " '" + value + "', expected yyyy-MM-ddTHH:mm");
+        }
+    }
+
+    /**
+     * Parses whether a task is done: {@code true}, {@code false}, {@code 1} or {@code 0}, ignoring case.
+     * A missing value means not done.
+     *
+     * @throws IllegalArgumentException if the value is something else
+     */
+    static boolean done(String value) {
+        if (value == null) return false;
+        switch (value.strip().toLowerCase()) {
+        case "":
+        case "false":
+        case "0":
+            return false;
+        case "true":
+        case "1":
+            return true;
+        default:
+            throw new IllegalArgumentException("invalid done '" + value + "', expected true or false");
+        }
+    }
+
+    /**
+     * Parses a repeat rule such as {@code every 2 weeks}, see {@link Recurrence#parse(String)}.
+     *
+     * @return the rule, or {@code null} if the value is missing or blank
+     * @throws IllegalArgumentException if the rule is not understood
+     */
+    static Recurrence rule(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Recurrence.parse(value);
+        } catch (StarouException e) {
+            throw new IllegalArgumentException("invalid repeat rule '" + value + "'");
+        }
+    }
+}
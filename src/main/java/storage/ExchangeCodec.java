@@ -0,0 +1,57 @@
+package storage;
+
+import task.Task;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Writes tasks to, and reads them from, one file format shared with other programs.
+ * <p>
+ * Both directions stream: tasks are written as the iterator hands them over, and tasks read are passed
+ * on record by record, so the memory used does not depend on how many tasks the file holds.
+ * Codecs keep no state between calls and may be shared.
+ * </p>
+ *
+ * @see ExchangeFormat
+ */
+interface ExchangeCodec {
+    /**
+     * Writes every task the iterator returns, with whatever header and footer the format needs.
+     *
+     * @param tasks the tasks to write, in order
+     * @param out the writer to write to; it is flushed but not closed
+     * @throws IOException if writing fails
+     */
+    void write(Iterator<? extends Task> tasks, Writer out) throws IOException;
+
+    /**
+     * Reads the tasks of a file one record at a time. A record that cannot be decoded is reported to the
+     * sink and skipped, and reading carries on with the next record.
+     *
+     * @param in the file, counting lines so records can be reported by where they start
+     * @param sink where decoded tasks and skipped records go
+     * @throws IOException if the file cannot be read
+     */
+    void read(LineNumberReader in, Sink sink) throws IOException;
+
+    /**
+     * Receives what {@link #read(LineNumberReader, Sink)} finds.
+     */
+    interface Sink {
+        /**
+         * Takes one decoded task.
+         */
+        void accept(Task task);
+
+        /**
+         * Reports a record that was skipped.
+         *
+         * @param line the line the record starts on, from 1
+         * @param reason why it could not be decoded
+         */
+        void skip(long line, String reason);
+    }
+}
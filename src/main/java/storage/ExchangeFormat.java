@@ -0,0 +1,44 @@
+package storage;
+
+import exception.StarouException;
+
+import java.nio.file.Path;
+
+/**
+ * The file formats tasks can be exported to and imported from, told apart by file extension.
+ */
+public enum ExchangeFormat {
+    /** Comma-separated values with a header row, e.g. {@code tasks.csv}. */
+    CSV(".csv", new CsvCodec()),
+    /** One JSON object per line, e.g. {@code tasks.jsonl}. */
+    JSON_LINES(".jsonl", new JsonLinesCodec()),
+    /** An iCalendar file of {@code VTODO}s and {@code VEVENT}s, e.g. {@code tasks.ics}. */
+    ICALENDAR(".ics", new ICalendarCodec());
+
+    private final String extension;
+    private final ExchangeCodec codec;
+
+    ExchangeFormat(String extension, ExchangeCodec codec) {
+        this.extension = extension;
+        this.codec = codec;
+    }
+
+    ExchangeCodec codec() {
+        return codec;
+    }
+
+    /**
+     * Returns the format of a file from its extension, ignoring case.
+     *
+     * @param path the file to export to or import from
+     * @return the matching format
+     * @throws StarouException if the extension is not one of the supported ones
+     */
+    public static ExchangeFormat of(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase();
+        for (ExchangeFormat f : values()) {
+            if (name.endsWith(f.extension)) return f;
+        }
+        throw new StarouException("Unknown file type '" + path.getFileName() + "'. Try: .csv, .jsonl, .ics.");
+    }
+}
@@ -0,0 +1,98 @@
+package storage;
+
+import exception.StarouException;
+
+/**
+ * Describes when {@link Storage} forces written data to the physical disk.
+ * <p>
+ * Writing to a file only hands the bytes to the operating system; they can still be
+ * lost on a power failure until they are synced. Syncing is slow, so the policy lets
+ * users trade durability against latency:
+ * <ul>
+ *     <li>{@code always} - every journal record and every snapshot is synced before the command returns</li>
+ *     <li>{@code every <N>ms} - the journal is synced in the background at most every N milliseconds;
+ *         snapshots are still synced before they replace the save file</li>
+ *     <li>{@code never} - nothing is synced explicitly and the operating system decides</li>
+ * </ul>
+ * </p>
+ */
+public final class FsyncPolicy {
+    /** The kind of policy. */
+    public enum Mode { ALWAYS, INTERVAL, NEVER }
+
+    private static final FsyncPolicy ALWAYS = new FsyncPolicy(Mode.ALWAYS, 0);
+    private static final FsyncPolicy NEVER = new FsyncPolicy(Mode.NEVER, 0);
+
+    private final Mode mode;
+    private final long intervalMillis;
+
+    private FsyncPolicy(Mode mode, long intervalMillis) {
+        this.mode = mode;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public static FsyncPolicy always() {
+        return ALWAYS;
+    }
+
+    public static FsyncPolicy never() {
+        return NEVER;
+    }
+
+    /**
+     * Returns a policy that syncs the journal in the background every {@code millis} milliseconds.
+     *
+     * @param millis the sync interval, must be positive
+     * @return the interval policy
+     */
+    public static FsyncPolicy every(long millis) {
+        if (millis <= 0) {
+            throw new StarouException("Fsync interval must be positive!");
+        }
+        return new FsyncPolicy(Mode.INTERVAL, millis);
+    }
+
+    /**
+     * Parses a policy from its textual form: {@code always}, {@code never},
+     * or an interval such as {@code 500ms} or {@code every 500ms}.
+     *
+     * @param text the policy description
+     * @return the parsed policy
+     * @throws StarouException if the text is not a valid policy
+     */
+    public static FsyncPolicy parse(String text) {
+        String s = text.trim().toLowerCase();
+        if (s.equals("always")) return ALWAYS;
+        if (s.equals("never")) return NEVER;
+        if (s.startsWith("every")) s = s.substring("every".length()).trim();
+        if (s.endsWith("ms")) s = s.substring(0, s.length() - 2).trim();
+        try {
+            return every(Long.parseLong(s));
+        } catch (NumberFormatException e) {
+            throw new StarouException("Unknown fsync policy '" + text + "'. Try: always, never, every <N>ms.");
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /** Whether each journal record must be synced before the command returns. */
+    boolean syncsEveryRecord() {
+        return mode == Mode.ALWAYS;
+    }
+
+    /** Whether snapshots and closed journals must be synced, e.g. before a snapshot replaces the save file. */
+    boolean syncsAtCheckpoints() {
+        return mode != Mode.NEVER;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.INTERVAL ? "every " + intervalMillis + "ms" : mode.name().toLowerCase();
+    }
+}
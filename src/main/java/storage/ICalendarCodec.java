@@ -0,0 +1,428 @@
+package storage;
+
+import exception.StarouException;
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads and writes tasks as an iCalendar file (RFC 5545): todos and deadlines become {@code VTODO}s,
+ * with deadlines due at {@code DUE}, and events become {@code VEVENT}s.
+ * <p>
+ * Times are written without a time zone, as they are kept. When reading, times in UTC or with a
+ * {@code TZID} are converted to the local time zone, and dates without a time start at midnight.
+ * Repeat rules become {@code RRULE}s; rules using more than {@code FREQ}, {@code INTERVAL},
+ * {@code UNTIL} and {@code COUNT} cannot be kept and their record is skipped. A done todo or deadline has
+ * {@code STATUS:COMPLETED}; iCalendar has no such status for events, so a done event carries
+ * {@code X-STAROU-DONE:TRUE}. Other components, such as time zones and alarms, are ignored.
+ * </p>
+ *
+ * <p><b>Example format:</b></p>
+ * <pre>
+ * BEGIN:VCALENDAR
+ * VERSION:2.0
+ * PRODID:-//Starou//Starou//EN
+ * BEGIN:VTODO
+ * UID:2-20251017T120000Z@starou
+ * DTSTAMP:20251017T120000Z
+ * SUMMARY:Submit report
+ * DUE:20251010T235900
+ * STATUS:NEEDS-ACTION
+ * END:VTODO
+ * BEGIN:VEVENT
+ * UID:3-20251017T120000Z@starou
+ * DTSTAMP:20251017T120000Z
+ * SUMMARY:Team meeting
+ * DTSTART:20251012T140000
+ * DTEND:20251012T160000
+ * RRULE:FREQ=WEEKLY
+ * END:VEVENT
+ * END:VCALENDAR
+ * </pre>
+ */
+class ICalendarCodec implements ExchangeCodec {
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    /** Content lines longer than this many bytes are folded onto continuation lines. */
+    private static final int MAX_LINE_BYTES = 75;
+
+    @Override
+    public void write(Iterator<? extends Task> tasks, Writer out) throws IOException {
+        String stamp = UTC_TIME.format(LocalDateTime.now(ZoneOffset.UTC));
+        StringBuilder line = new StringBuilder(128);
+        out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Starou//Starou//EN\r\n");
+        for (long n = 1; tasks.hasNext(); n++) {
+            Task t = tasks.next();
+            String component = t instanceof Event ? "VEVENT" : "VTODO";
+            out.write("BEGIN:" + component + "\r\n");
+            out.write("UID:" + n + "-" + stamp + "@starou\r\n");
+            out.write("DTSTAMP:" + stamp + "\r\n");
+            line.setLength(0);
+            line.append("SUMMARY:");
+            appendText(line, t.description);
+            writeFolded(line, out);
+
+            if (t instanceof Event) {
+                Event e = (Event) t;
+                out.write("DTSTART:" + LOCAL_TIME.format(e.getFrom()) + "\r\n");
+                out.write("DTEND:" + LOCAL_TIME.format(e.getTo()) + "\r\n");
+            } else if (t instanceof Deadline) {
+                Deadline d = (Deadline) t;
+                //A repeating todo counts its occurrences from DTSTART
+                if (d.getRecurrence() != null) out.write("DTSTART:" + LOCAL_TIME.format(d.getBy()) + "\r\n");
+                out.write("DUE:" + LOCAL_TIME.format(d.getBy()) + "\r\n");
+            }
+            Recurrence rule = t.getRecurrence();
+            if (rule != null) out.write("RRULE:" + rruleOf(rule) + "\r\n");
+
+            if (t instanceof Event) {
+                if (t.isDone()) out.write("X-STAROU-DONE:TRUE\r\n");
+            } else {
+                out.write(t.isDone() ? "STATUS:COMPLETED\r\n" : "STATUS:NEEDS-ACTION\r\n");
+            }
+            out.write("END:" + component + "\r\n");
+        }
+        out.write("END:VCALENDAR\r\n");
+        out.flush();
+    }
+
+    private static String rruleOf(Recurrence rule) {
+        StringBuilder sb = new StringBuilder("FREQ=");
+        switch (rule.getUnit()) {
+        case DAYS:
+            sb.append("DAILY");
+            break;
+        case WEEKS:
+            sb.append("WEEKLY");
+            break;
+        case MONTHS:
+            sb.append("MONTHLY");
+            break;
+        default:
+            sb.append("YEARLY");
+        }
+        if (rule.getInterval() > 1) sb.append(";INTERVAL=").append(rule.getInterval());
+        //UNTIL takes the same form as DTSTART, and the last day is included
+        if (rule.getUntil() != null) sb.append(";UNTIL=").append(LOCAL_TIME.format(rule.getUntil().atTime(23, 59, 59)));
+        return sb.toString();
+    }
+
+    private static void appendText(StringBuilder sb, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\':
+            case ';':
+            case ',':
+                sb.append('\\').append(c);
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a content line, folding it so that no line is longer than {@value #MAX_LINE_BYTES} bytes
+     * without splitting a character.
+     */
+    private static void writeFolded(CharSequence line, Writer out) throws IOException {
+        int bytes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (bytes + size > MAX_LINE_BYTES) {
+                out.write("\r\n ");
+                bytes = 1;
+            }
+            out.write(c);
+            bytes += size;
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void read(LineNumberReader in, Sink sink) throws IOException {
+        String component = null;
+        int nested = 0;
+        long start = 0;
+        String problem = null;
+        Map<String, Property> properties = new HashMap<>();
+
+        String next = in.readLine();
+        long nextNumber = in.getLineNumber();
+        while (next != null) {
+            //Unfold continuation lines, which start with a space or tab
+            StringBuilder unfolded = new StringBuilder(next);
+            long number = nextNumber;
+            while ((next = in.readLine()) != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                unfolded.append(next, 1, next.length());
+            }
+            nextNumber = in.getLineNumber();
+            String line = unfolded.toString();
+            if (line.isBlank()) continue;
+
+            Property p;
+            try {
+                p = Property.parse(line);
+            } catch (IllegalArgumentException e) {
+                if (component != null && nested == 0 && problem == null) problem = e.getMessage();
+                continue;
+            }
+
+            if (p.name.equals("BEGIN")) {
+                String name = p.value.strip().toUpperCase();
+                if (component != null) {
+                    nested++;
+                } else if (name.equals("VTODO") || name.equals("VEVENT")) {
+                    component = name;
+                    start = number;
+                    problem = null;
+                    properties.clear();
+                }
+            } else if (p.name.equals("END") && component != null) {
+                if (nested > 0) {
+                    nested--;
+                    continue;
+                }
+                if (!p.value.strip().equalsIgnoreCase(component)) {
+                    problem = "the " + component + " ends with END:" + p.value;
+                }
+                try {
+                    if (problem != null) throw new IllegalArgumentException(problem);
+                    sink.accept(taskOf(component, properties));
+                } catch (IllegalArgumentException e) {
+                    sink.skip(start, e.getMessage());
+                }
+                component = null;
+            } else if (component != null && nested == 0) {
+                properties.putIfAbsent(p.name, p);
+            }
+        }
+        if (component != null) {
+            sink.skip(start, "the " + component + " never ends");
+        }
+    }
+
+    private static Task taskOf(String component, Map<String, Property> properties) {
+        Property summary = properties.get("SUMMARY");
+        if (summary == null) throw new IllegalArgumentException("the " + component + " has no SUMMARY");
+        String description = unescape(summary.value);
+        Property rrule = properties.get("RRULE");
+
+        if (component.equals("VTODO")) {
+            Property status = properties.get("STATUS");
+            boolean done = properties.containsKey("COMPLETED")
+                    || (status != null && status.value.strip().equalsIgnoreCase("COMPLETED"));
+            Property due = properties.get("DUE");
+            if (due == null) {
+                if (rrule != null) throw new IllegalArgumentException("a VTODO without DUE cannot repeat");
+                return Exchange.task("todo", done, description, null, null, null, null);
+            }
+            LocalDateTime by = dateTime(due, "DUE");
+            return Exchange.task("deadline", done, description, by, null, null,
+                    rrule == null ? null : rule(rrule.value, by));
+        }
+
+        Property dtstart = properties.get("DTSTART");
+        if (dtstart == null) throw new IllegalArgumentException("the VEVENT has no DTSTART");
+        LocalDateTime from = dateTime(dtstart, "DTSTART");
+        LocalDateTime to;
+        if (properties.containsKey("DTEND")) {
+            to = dateTime(properties.get("DTEND"), "DTEND");
+        } else if (properties.containsKey("DURATION")) {
+            to = from.plus(duration(properties.get("DURATION").value));
+        } else {
+            //RFC 5545: an event on a date lasts the day, one at a time takes no time
+            to = dtstart.isDate() ? from.plusDays(1) : from;
+        }
+        Property done = properties.get("X-STAROU-DONE");
+        return Exchange.task("event", done != null && Exchange.done(done.value), description, null, from, to,
+                rrule == null ? null : rule(rrule.value, from));
+    }
+
+    /**
+     * Converts a {@code DATE-TIME} or {@code DATE} value to local time, whole minutes.
+     */
+    private static LocalDateTime dateTime(Property p, String name) {
+        String value = p.value.strip();
+        try {
+            if (p.isDate()) {
+                return LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay();
+            }
+            boolean isUtc = value.endsWith("Z");
+            LocalDateTime t = LocalDateTime.parse(isUtc ? value.substring(0, value.length() - 1) : value, LOCAL_TIME);
+            String tzid = p.params.get("TZID");
+            ZoneId zone = isUtc ? ZoneOffset.UTC : tzid != null ? ZoneId.of(tzid) : null;
+            if (zone != null) {
+                t = t.atZone(zone).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return t.truncatedTo(ChronoUnit.MINUTES);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("invalid " + name + " '" + p.value + "'");
+        }
+    }
+
+    /**
+     * Parses a {@code DURATION} such as {@code PT1H30M}, {@code P1D} or {@code P2W}.
+     */
+    private static Duration duration(String value) {
+        String v = value.strip().toUpperCase();
+        try {
+            if (v.matches("[+-]?P\\d+W")) {
+                long weeks = Long.parseLong(v.substring(v.indexOf('P') + 1, v.length() - 1));
+                return Duration.ofDays(7 * weeks).multipliedBy(v.startsWith("-") ? -1 : 1);
+            }
+            return Duration.parse(v);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid DURATION '" + value + "'");
+        }
+    }
+
+    /**
+     * Converts an {@code RRULE} into a repeat rule, turning {@code COUNT} into the day of the last occurrence.
+     */
+    private static Recurrence rule(String value, LocalDateTime first) {
+        ChronoUnit unit = null;
+        int interval = 1;
+        LocalDate until = null;
+        long count = -1;
+        try {
+            for (String part : value.strip().split(";")) {
+                int eq = part.indexOf('=');
+                String key = eq < 0 ? part : part.substring(0, eq).toUpperCase();
+                String v = eq < 0 ? "" : part.substring(eq + 1).strip();
+                switch (key) {
+                case "FREQ":
+                    unit = unitOf(v);
+                    break;
+                case "INTERVAL":
+                    interval = Integer.parseInt(v);
+                    break;
+                case "UNTIL":
+                    until = LocalDate.parse(v.substring(0, Math.min(8, v.length())), DateTimeFormatter.BASIC_ISO_DATE);
+                    break;
+                case "COUNT":
+                    count = Long.parseLong(v);
+                    if (count < 1) throw new IllegalArgumentException("the RRULE has no occurrences");
+                    break;
+                case "WKST":
+                    //Only matters together with BYDAY, which is not supported
+                    break;
+                default:
+                    throw new IllegalArgumentException("the RRULE part " + key + " is not supported");
+                }
+            }
+            if (unit == null) throw new IllegalArgumentException("the RRULE has no FREQ");
+            if (count > 0) {
+                LocalDate last = first.plus(Math.multiplyExact(count - 1, (long) interval), unit).toLocalDate();
+                if (until == null || last.isBefore(until)) until = last;
+            }
+            return Recurrence.of(interval, unit, until);
+        } catch (NumberFormatException | DateTimeException | ArithmeticException | StarouException e) {
+            throw new IllegalArgumentException("invalid RRULE '" + value + "'");
+        }
+    }
+
+    private static ChronoUnit unitOf(String freq) {
+        switch (freq.toUpperCase()) {
+        case "DAILY":
+            return ChronoUnit.DAYS;
+        case "WEEKLY":
+            return ChronoUnit.WEEKS;
+        case "MONTHLY":
+            return ChronoUnit.MONTHS;
+        case "YEARLY":
+            return ChronoUnit.YEARS;
+        default:
+            throw new IllegalArgumentException("cannot repeat " + freq + ", only DAILY, WEEKLY, MONTHLY or YEARLY");
+        }
+    }
+
+    private static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char e = text.charAt(++i);
+                sb.append(e == 'n' || e == 'N' ? '\n' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One content line: {@code NAME;PARAM=value;...:value}.
+     */
+    private static final class Property {
+        final String name;
+        final Map<String, String> params;
+        final String value;
+
+        private Property(String name, Map<String, String> params, String value) {
+            this.name = name;
+            this.params = params;
+            this.value = value;
+        }
+
+        /** Whether the value is a date without a time, {@code VALUE=DATE} or just eight digits. */
+        boolean isDate() {
+            return "DATE".equalsIgnoreCase(params.get("VALUE")) || value.strip().length() == 8;
+        }
+
+        /**
+         * Splits a content line. Colons and semicolons inside quoted parameter values do not count.
+         *
+         * @throws IllegalArgumentException if the line has no value
+         */
+        static Property parse(String line) {
+            int nameEnd = 0;
+            while (nameEnd < line.length() && line.charAt(nameEnd) != ';' && line.charAt(nameEnd) != ':') {
+                nameEnd++;
+            }
+            String name = line.substring(0, nameEnd).strip().toUpperCase();
+            Map<String, String> params = new HashMap<>();
+            int i = nameEnd;
+            while (i < line.length() && line.charAt(i) == ';') {
+                int paramStart = ++i;
+                boolean isQuoted = false;
+                while (i < line.length() && (isQuoted || (line.charAt(i) != ';' && line.charAt(i) != ':'))) {
+                    if (line.charAt(i) == '"') isQuoted = !isQuoted;
+                    i++;
+                }
+                String param = line.substring(paramStart, i);
+                int eq = param.indexOf('=');
+                if (eq > 0) {
+                    params.put(param.substring(0, eq).strip().toUpperCase(), param.substring(eq + 1).replace("\"", ""));
+                }
+            }
+            if (name.isEmpty() || i >= line.length() || line.charAt(i) != ':') {
+                throw new IllegalArgumentException("invalid line '" + line + "'");
+            }
+            return new Property(name, params, line.substring(i + 1));
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only log of task mutations kept next to the snapshot file.
+ * <p>
+ * Instead of rewriting the whole save file after every command, each mutation
+ * is appended to the journal as one small record. Journals are numbered by
+ * generation: the snapshot records the first generation it does <i>not</i>
+ * contain, so every journal with a lower number can be discarded and every
+ * journal with an equal or higher number must be replayed on load.
+ * </p>
+ *
+ * <p><b>Example records:</b></p>
+ * <pre>
+ * A | T | 0 | Read book
+ * I | 2 | T | 0 | Write essay
+ * M | 3
+ * U | 3
+ * X | 2
+ * </pre>
+ */
+class Journal {
+    static final char ADD = 'A';
+    static final char INSERT = 'I';
+    static final char MARK = 'M';
+    static final char UNMARK = 'U';
+    static final char DELETE = 'X';
+
+    private final Path snapshotPath;
+    private final FsyncPolicy fsyncPolicy;
+    private long generation;
+    private FileChannel channel;
+    private boolean isDirty;
+    private boolean isTorn;
+    private int recordCount;
+    private long byteCount;
+
+    /**
+     * Constructs a journal that lives next to the given snapshot file.
+     *
+     * @param snapshotPath the path of the snapshot the journal belongs to
+     * @param fsyncPolicy when appended records are forced to disk
+     */
+    Journal(Path snapshotPath, FsyncPolicy fsyncPolicy) {
+        this.snapshotPath = snapshotPath;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Returns the path of the journal file for the given generation,
+     * e.g. {@code ./data/Starou.txt.journal.3}.
+     */
+    Path pathOf(long gen) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal." + gen);
+    }
+
+    /**
+     * Lists the generations of all journal files currently on disk, in ascending order.
+     *
+     * @return the generations found (possibly empty)
+     * @throws IOException if the directory cannot be read
+     */
+    List<Long> existingGenerations() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        Path dir = snapshotPath.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) return gens;
+
+        String prefix = snapshotPath.getFileName() + ".journal.";
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path p : ds) {
+                try {
+                    gens.add(Long.parseLong(p.getFileName().toString().substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    //Not one of ours
+                }
+            }
+        }
+        gens.sort(null);
+        return gens;
+    }
+
+    /**
+     * Reads every record line of the journal with the given generation.
+     *
+     * @param gen the generation to read
+     * @return the non-empty lines of that journal, in order
+     * @throws IOException if the file cannot be read
+     */
+    List<String> read(long gen) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(pathOf(gen))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Sets the generation that subsequent records are appended to.
+     * Also counts what is already in that journal so thresholds stay accurate after a restart.
+     */
+    synchronized void open(long gen, int existingRecords) throws IOException {
+        close();
+        this.generation = gen;
+        this.recordCount = existingRecords;
+        this.isTorn = false;
+        Path p = pathOf(gen);
+        this.byteCount = Files.exists(p) ? Files.size(p) : 0;
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized int recordCount() {
+        return recordCount;
+    }
+
+    synchronized long byteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Appends one record to the current journal and hands it to the operating system.
+     * Under the {@code always} policy the record is also forced to disk before returning.
+     *
+     * @param record the record line, without a trailing newline
+     * @throws IOException if the journal cannot be written
+     */
+    synchronized void append(String record) throws IOException {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Appends several records with a single write, synced at most once under the {@code always} policy.
+     * If the write fails, the journal is cut back to its last complete record, so a retry does not
+     * land behind half a record; if even that fails, the next append cuts it back first.
+     *
+     * @param records the record lines, without trailing newlines
+     * @throws IOException if the journal cannot be written
+     */
+    synchronized void appendAll(List<String> records) throws IOException {
+        if (records.isEmpty()) return;
+        if (channel == null) {
+            channel = FileChannel.open(pathOf(generation),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+            sb.append(record).append('\n');
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        int length = buf.remaining();
+        try {
+            if (isTorn) {
+                channel.truncate(byteCount);
+                isTorn = false;
+            }
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        } catch (IOException e) {
+            isTorn = true;
+            discardTornRecords();
+            throw e;
+        }
+        byteCount += length;
+        StorageMetrics.journalBytes.add(length);
+        recordCount += records.size();
+        isDirty = true;
+        if (fsyncPolicy.syncsEveryRecord()) sync();
+    }
+
+    /**
+     * Cuts the journal back to the records written in full and closes it, so the next append
+     * reopens it afresh. Failures are left for that append to run into.
+     */
+    private void discardTornRecords() {
+        try {
+            channel.truncate(byteCount);
+            isTorn = false;
+        } catch (IOException e) {
+            //Retried before the next append
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Nothing more to lose
+        }
+        channel = null;
+    }
+
+    /**
+     * Forces any records not yet synced to the physical disk.
+     */
+    synchronized void sync() throws IOException {
+        if (channel != null && isDirty) {
+            channel.force(false);
+            isDirty = false;
+        }
+    }
+
+    /**
+     * Starts a new, empty journal generation. Records appended afterwards go to the new file.
+     *
+     * @return the new generation number
+     */
+    synchronized long rotate() throws IOException {
+        open(generation + 1, 0);
+        return generation;
+    }
+
+    /**
+     * Deletes every journal file older than the given generation.
+     */
+    void deleteBefore(long gen) throws IOException {
+        for (long g : existingGenerations()) {
+            if (g < gen) Files.deleteIfExists(pathOf(g));
+        }
+    }
+
+    /**
+     * Closes the current journal file. Unsynced records are synced first unless the policy
+     * is {@code never}. Used on rotation and shutdown; a later append reopens the file.
+     */
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            if (fsyncPolicy.syncsAtCheckpoints()) sync();
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package storage;
+
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads and writes tasks as JSON Lines: one JSON object per line, so a file can be read record by record
+ * without parsing it as a whole.
+ * <p>
+ * Only the fields a task has are written. When reading, fields may come in any order, unknown fields
+ * are ignored and {@code null} counts as missing. Times are written as {@code yyyy-MM-ddTHH:mm}.
+ * </p>
+ *
+ * <p><b>Example format:</b></p>
+ * <pre>
+ * {"type":"todo","done":true,"description":"Read book"}
+ * {"type":"deadline","done":false,"description":"Submit report","by":"2025-10-10T23:59"}
+ * {"type":"event","done":false,"description":"Team meeting","from":"2025-10-12T14:00","to":"2025-10-12T16:00","repeat":"every week"}
+ * </pre>
+ */
+class JsonLinesCodec implements ExchangeCodec {
+    @Override
+    public void write(Iterator<? extends Task> tasks, Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder(128);
+        while (tasks.hasNext()) {
+            Task t = tasks.next();
+            sb.setLength(0);
+            sb.append("{\"type\":\"").append(Exchange.typeOf(t)).append("\",\"done\":").append(t.isDone());
+            appendField(sb, "description", t.description);
+            if (t instanceof Deadline) {
+                appendField(sb, "by", ((Deadline) t).getBy().toString());
+            } else if (t instanceof Event) {
+                appendField(sb, "from", ((Event) t).getFrom().toString());
+                appendField(sb, "to", ((Event) t).getTo().toString());
+            }
+            Recurrence rule = t.getRecurrence();
+            if (rule != null) appendField(sb, "repeat", rule.toString());
+            sb.append("}\n");
+            out.append(sb);
+        }
+        out.flush();
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        sb.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public void read(LineNumberReader in, Sink sink) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            try {
+                Map<String, String> fields = new ObjectReader(line).read();
+                sink.accept(Exchange.task(fields.get("type"), Exchange.done(fields.get("done")),
+                        fields.get("description"), Exchange.dateTime("by", fields.get("by")),
+                        Exchange.dateTime("from", fields.get("from")), Exchange.dateTime("to", fields.get("to")),
+                        Exchange.rule(fields.get("repeat"))));
+            } catch (IllegalArgumentException e) {
+                sink.skip(in.getLineNumber(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the top-level fields of one JSON object. Strings, numbers, {@code true} and {@code false} are kept
+     * as text; {@code null}, nested objects and arrays are checked and skipped.
+     */
+    private static final class ObjectReader {
+        private final String s;
+        private int i;
+
+        ObjectReader(String s) {
+            this.s = s;
+        }
+
+        Map<String, String> read() {
+            Map<String, String> fields = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                i++;
+            } else {
+                do {
+                    String name = string();
+                    expect(':');
+                    String value = value();
+                    if (value != null) fields.putIfAbsent(name, value);
+                } while (next(',', '}') == ',');
+            }
+            if (peek() != 0) throw error("unexpected text after the object");
+            return fields;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') {
+                skipNested();
+                return null;
+            }
+            int start = i;
+            while (i < s.length() && ",}] \t".indexOf(s.charAt(i)) < 0) {
+                i++;
+            }
+            String word = s.substring(start, i);
+            if (word.equals("null")) return null;
+            if (word.equals("true") || word.equals("false") || word.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return word;
+            }
+            throw error("invalid value '" + word + "'");
+        }
+
+        private void skipNested() {
+            char open = s.charAt(i++);
+            char close = open == '{' ? '}' : ']';
+            if (peek() == close) {
+                i++;
+                return;
+            }
+            do {
+                if (open == '{') {
+                    string();
+                    expect(':');
+                }
+                value();
+            } while (next(',', close) == ',');
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (i < s.length()) {
+                char c = s.charAt(i++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (i == s.length()) break;
+                char e = s.charAt(i++);
+                switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 > s.length()) throw error("incomplete \\u escape");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("invalid \\u escape");
+                    }
+                    i += 4;
+                    break;
+                default:
+                    throw error("invalid escape '\\" + e + "'");
+                }
+            }
+            throw error("a string is never closed");
+        }
+
+        private char next(char a, char b) {
+            char c = peek();
+            if (c != a && c != b) throw error("expected '" + a + "' or '" + b + "'");
+            i++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("expected '" + c + "'");
+            i++;
+        }
+
+        /**
+         * Skips white space and returns the next character without consuming it, or {@code 0} at the end.
+         */
+        private char peek() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            return i < s.length() ? s.charAt(i) : 0;
+        }
+
+        private IllegalArgumentException error(String reason) {
+            return new IllegalArgumentException("invalid JSON at column " + (i + 1) + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package storage;
+
+import task.Task;
+import task.TaskSource;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A binary snapshot mapped into memory, whose tasks are decoded one at a time on request.
+ * <p>
+ * Opening only validates the header and locates the record offset table at the end of the
+ * file, so it takes the same time however many tasks the file holds. The mapped pages live
+ * outside the Java heap and are loaded by the operating system as they are touched.
+ * </p>
+ */
+class MappedSnapshot implements TaskSource {
+    private final MappedByteBuffer buf;
+    private final long generation;
+    private final int version;
+    private final int count;
+    private final int tableOffset;
+
+    private MappedSnapshot(MappedByteBuffer buf, long generation, int version, int count, int tableOffset) {
+        this.buf = buf;
+        this.generation = generation;
+        this.version = version;
+        this.count = count;
+        this.tableOffset = tableOffset;
+    }
+
+    /**
+     * Maps the binary snapshot at {@code path}.
+     *
+     * @param path the snapshot file, in binary format version 2 or later
+     * @return the mapped snapshot
+     * @throws IOException if the file cannot be mapped, is too large to map, or has no offset table
+     */
+    static MappedSnapshot open(Path path) throws IOException {
+        try(FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if(length > Integer.MAX_VALUE) {
+                throw new IOException("Save file is too large to map: " + length + " bytes");
+            }
+            if(length < BinarySnapshotCodec.HEADER_SIZE + 8) {
+                throw new IOException("Save file is too short to be a binary snapshot");
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if(buf.getInt(0) != BinarySnapshotCodec.MAGIC) {
+                throw new IOException("Not a Starou binary save file: " + path);
+            }
+            int version = buf.get(4) & 0xff;
+            if(version < 2) {
+                throw new IOException("Binary save file version " + version + " has no offset table");
+            }
+            long generation = buf.getLong(5);
+            int count = buf.getInt(13);
+            long tableOffset = buf.getLong((int) length - 8);
+            if(tableOffset + 8L * count + 8 != length) {
+                throw new IOException("Binary save file has a corrupted offset table");
+            }
+            return new MappedSnapshot(buf, generation, version, count, (int) tableOffset);
+        }
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Task read(int record) {
+        long offset = buf.getLong(tableOffset + 8 * record);
+        return BinarySnapshotCodec.readRecord(buf, (int) offset, version);
+    }
+}
@@ -0,0 +1,36 @@
+package storage;
+
+import task.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Encodes and decodes a whole snapshot of the task list in one particular file format.
+ *
+ * @see SnapshotFormat
+ */
+interface SnapshotCodec {
+    /**
+     * Reads the snapshot at {@code path}, appending its tasks to {@code into}.
+     * Records that cannot be decoded are skipped with a warning where the format allows it.
+     *
+     * @param path the snapshot file
+     * @param into the list to add the decoded tasks to
+     * @return the journal generation recorded in the snapshot, or {@code 0} if none
+     * @throws IOException if the file cannot be read
+     */
+    long read(Path path, List<Task> into) throws IOException;
+
+    /**
+     * Writes a full snapshot of {@code tasks}.
+     *
+     * @param tasks the tasks to write, in order
+     * @param generation the first journal generation not contained in this snapshot
+     * @param out the stream to write to; it is flushed but not closed
+     * @throws IOException if the snapshot cannot be written
+     */
+    void write(List<Task> tasks, long generation, OutputStream out) throws IOException;
+}
@@ -0,0 +1,54 @@
+package storage;
+
+import java.nio.file.Path;
+
+/**
+ * The file formats a snapshot of the task list can be saved in.
+ */
+public enum SnapshotFormat {
+    /** The human-readable pipe-separated format, e.g. {@code ./data/Starou.txt}. */
+    TEXT(".txt", new TextSnapshotCodec()),
+    /** The compact versioned binary format, e.g. {@code ./data/Starou.bin}. */
+    BINARY(".bin", new BinarySnapshotCodec());
+
+    private final String extension;
+    private final SnapshotCodec codec;
+
+    SnapshotFormat(String extension, SnapshotCodec codec) {
+        this.extension = extension;
+        this.codec = codec;
+    }
+
+    SnapshotCodec codec() {
+        return codec;
+    }
+
+    /**
+     * Returns where a snapshot in this format is kept for the given save file path,
+     * by swapping the file extension. The text format uses the path as given.
+     *
+     * @param filePath the configured save file path
+     * @return the snapshot path for this format
+     */
+    Path pathFor(Path filePath) {
+        if (this == TEXT) return filePath;
+        String name = filePath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return filePath.resolveSibling(base + extension);
+    }
+
+    /**
+     * Parses a format name such as {@code text} or {@code binary}.
+     *
+     * @param name the format name, ignoring case
+     * @return the matching format
+     * @throws exception.StarouException if there is no such format
+     */
+    public static SnapshotFormat parse(String name) {
+        for (SnapshotFormat f : values()) {
+            if (f.name().equalsIgnoreCase(name.trim())) return f;
+        }
+        throw new exception.StarouException("Unknown storage format '" + name + "'. Try: text, binary.");
+    }
+}
@@ -1,39 +1,128 @@
 package storage;
 
-import task.Deadline;
-import task.Event;
+import exception.StarouException;
 import task.Task;
-import task.Todo;
+import task.TaskColumns;
+import task.TaskList;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * Handles reading and writing of {@link Task} data to and from a persistent text file.
  * <p>
  * The {@code Storage} class allows the Starou application to save user tasks
- * and restore them in future sessions. Tasks are serialized in a simple
- * human-readable pipe-separated format.
+ * and restore them in future sessions. By default tasks are serialized in a simple
+ * human-readable pipe-separated format; a compact binary {@link SnapshotFormat} can be
+ * chosen instead, and an existing save file is migrated to it on first load.
+ * </p>
+ * <p>
+ * Individual mutations are not written to the save file directly. They are appended
+ * to a {@link Journal} next to it, and the journal is folded into a fresh snapshot
+ * in the background once it grows past a record or size threshold.
+ * </p>
+ * <p>
+ * Snapshots are written to a temporary file and atomically renamed over the save file,
+ * so a crash mid-write leaves the previous snapshot intact. When data is forced to the
+ * physical disk is controlled by an {@link FsyncPolicy}.
+ * </p>
+ * <p>
+ * Logging a change only queues its record. A writer thread takes whatever has queued up, waiting
+ * up to {@value #GROUP_WINDOW_MILLIS} ms for more, and writes it with one journal write and at most
+ * one sync, so a burst of edits costs one disk round trip instead of one each. Every log method returns
+ * a future that completes once its record is durable under the {@link FsyncPolicy}; callers may wait
+ * for it or not. How the queue behaves is reported by {@link #metrics()}.
+ * </p>
+ * <p>
+ * Records are queued in the order they are logged, and several threads may log changes at once;
+ * keeping that order the same as the order of the changes is up to the caller, see {@link TaskRepository}.
  * </p>
  *
  * <p><b>Example format:</b></p>
  * <pre>
+ * # generation 4
  * T | 1 | Read book
  * D | 0 | Submit report | 2025-10-12 23:59
  * E | 1 | Conference | 2025-10-14 09:00 | 2025-10-14 17:00
  * </pre>
  */
 public class Storage {
+    private static final int DEFAULT_MAX_JOURNAL_RECORDS = 10_000;
+    private static final long DEFAULT_MAX_JOURNAL_BYTES = 1 << 20;
+    private static final FsyncPolicy DEFAULT_FSYNC_POLICY = FsyncPolicy.every(1000);
+    private static final long GROUP_WINDOW_MILLIS = 1;
+    private static final int MAX_GROUP_RECORDS = 4096;
+    private static final long SHUTDOWN_FLUSH_MILLIS = 2000;
+    private static final Commit STOP = new Commit(List.of(), null);
+
     private final Path filePath;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private final SnapshotFormat format;
+    private final Path snapshotPath;
+    private final Journal journal;
+    private final Archive archive;
+    private final int maxJournalRecords;
+    private final long maxJournalBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "starou-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private final BlockingQueue<Commit> queue = new LinkedBlockingQueue<>();
+    private final CommitMetrics metrics = new CommitMetrics();
+    private final Thread writer = new Thread(this::writeLoop, "starou-writer");
+    private final Thread flushOnExit = new Thread(this::flushOnExit, "starou-flush");
+    private volatile Future<?> pendingCompaction;
+    private volatile boolean isCompacting;
+    /** Why the journal could not be written, until a snapshot succeeds; {@code null} while all is well. */
+    private volatile StarouException failure;
+    private List<String> batch;
+    private int queuedRecords;
+    private long queuedBytes;
+    private boolean isClosed;
+
+    /**
+     * Records logged together, and what to do once they are written.
+     */
+    private static final class Commit {
+        final List<String> records;
+        /** A copy of the list to compact into a snapshot right after these records, or {@code null}. */
+        final List<Task> snapshot;
+        /** Whether the snapshot replaces a journal that failed, instead of one that grew too long. */
+        final boolean isRecovery;
+        final long loggedAt = System.nanoTime();
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Commit(List<String> records, List<Task> snapshot) {
+            this(records, snapshot, false);
+        }
+
+        Commit(List<String> records, List<Task> snapshot, boolean isRecovery) {
+            this.records = records;
+            this.snapshot = snapshot;
+            this.isRecovery = isRecovery;
+        }
+    }
 
     /**
      * Constructs a new {@code Storage} object for managing task data at the specified path.
@@ -41,99 +130,643 @@ public class Storage {
      * @param relativePath the relative file path (e.g., {@code "./data/Starou.txt"})
      */
     public Storage(String relativePath) {
+        this(relativePath, DEFAULT_FSYNC_POLICY);
+    }
+
+    /**
+     * Constructs a new {@code Storage} object with the given fsync policy.
+     *
+     * @param relativePath the relative file path (e.g., {@code "./data/Starou.txt"})
+     * @param fsyncPolicy when written data is forced to the physical disk
+     */
+    public Storage(String relativePath, FsyncPolicy fsyncPolicy) {
+        this(relativePath, SnapshotFormat.TEXT, fsyncPolicy);
+    }
+
+    /**
+     * Constructs a new {@code Storage} object that keeps its snapshot in the given format.
+     *
+     * @param relativePath the relative file path (e.g., {@code "./data/Starou.txt"})
+     * @param format the snapshot file format
+     * @param fsyncPolicy when written data is forced to the physical disk
+     */
+    public Storage(String relativePath, SnapshotFormat format, FsyncPolicy fsyncPolicy) {
+        this(relativePath, format, DEFAULT_MAX_JOURNAL_RECORDS, DEFAULT_MAX_JOURNAL_BYTES, fsyncPolicy);
+    }
+
+    /**
+     * Constructs a new {@code Storage} object with custom journal compaction thresholds.
+     *
+     * @param relativePath the relative file path (e.g., {@code "./data/Starou.txt"})
+     * @param format the snapshot file format
+     * @param maxJournalRecords number of journal records that triggers a compaction
+     * @param maxJournalBytes journal size in bytes that triggers a compaction
+     * @param fsyncPolicy when written data is forced to the physical disk
+     */
+    public Storage(String relativePath, SnapshotFormat format, int maxJournalRecords, long maxJournalBytes,
+                   FsyncPolicy fsyncPolicy) {
         this.filePath = Paths.get(relativePath);
+        this.format = format;
+        this.snapshotPath = format.pathFor(filePath);
+        this.journal = new Journal(filePath, fsyncPolicy);
+        this.archive = new Archive(filePath);
+        this.maxJournalRecords = maxJournalRecords;
+        this.maxJournalBytes = maxJournalBytes;
+        this.fsyncPolicy = fsyncPolicy;
+
+        if(fsyncPolicy.mode() == FsyncPolicy.Mode.INTERVAL) {
+            long interval = fsyncPolicy.intervalMillis();
+            compactor.scheduleWithFixedDelay(this::syncJournal, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+    }
+
+    private void syncJournal() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to sync journal: " + e.getMessage());
+        }
     }
 
     /**
      * Loads tasks from the save file.
      * <p>
      * If the file does not exist or is empty, an empty list is returned.
-     * Each line in the file is parsed into a corresponding {@link Task}
-     * instance such as {@link Todo}, {@link Deadline}, or {@link Event}.
+     * Each record in the file is decoded into a corresponding {@link Task}
+     * instance such as {@link task.Todo}, {@link task.Deadline}, or {@link task.Event}.
+     * Any journal records written since the snapshot are then replayed on top of it.
      * </p>
      *
      * @return a list of tasks loaded from the file (never {@code null})
      */
     public ArrayList<Task> load() {
+        long start = System.nanoTime();
         ArrayList<Task> list = new ArrayList<>();
-        if(!Files.exists(filePath)) return list;
-
-        try(BufferedReader br = Files.newBufferedReader(filePath)) {
-            String line;
-            while((line = br.readLine()) != null) {
-                line = line.trim();
-                if(line.isEmpty()) continue;
-                Task t = parseLine(line);
-                if(t != null) list.add(t);
-            }
-        } catch (IOException e) {
-            System.err.println("[WARN] Failed to read save file: " + e.getMessage());
+        migrateIfNeeded();
+        long generation = readSnapshot(list);
+        replayJournals(list, generation);
+        StorageMetrics.loaded(start, list.size());
+        return list;
+    }
+
+    /**
+     * Loads tasks into a compact {@link TaskColumns} store instead of one object per task.
+     * <p>
+     * Works with every format. The snapshot is appended to the columns as it is read, and a
+     * task only becomes an object again once a command touches it, so a loaded list of millions
+     * of tasks takes a fraction of the heap of {@link #load()} and gives the garbage collector
+     * little to trace. Queries scan the columns rather than building indexes over every task, so it
+     * stays that way. If the journal puts back tasks whose deletion was undone, the tasks are
+     * loaded normally first and then copied into columns.
+     * </p>
+     *
+     * @return the loaded task list (never {@code null})
+     */
+    public TaskList loadColumnar() {
+        long start = System.nanoTime();
+        migrateIfNeeded();
+        if(journalHasInserts()) {
+            //A list built on columns cannot insert tasks in the middle, only put back the ones it removed itself
+            return new TaskList(TaskColumns.of(load()));
+        }
+        TaskColumns columns = new TaskColumns(0);
+        long generation = readSnapshot(columns.appender());
+        TaskList list = new TaskList(columns.finish());
+        if(replayJournals(list, generation) > 0) {
+            //Pack the result again, so deleted tasks leave no gaps in the ids and marked ones are not kept as objects
+            list = new TaskList(TaskColumns.of(list));
         }
+        StorageMetrics.loaded(start, list.size());
         return list;
     }
 
     /**
-     * Parses a single line of task data from the save file into a {@link Task} object.
+     * Loads tasks with the save file mapped into memory instead of read up front.
      * <p>
-     * The expected format for each task is:
-     * <ul>
-     *     <li>{@code T | 1 | description}</li>
-     *     <li>{@code D | 0 | description | by}</li>
-     *     <li>{@code E | 1 | description | from | to}</li>
-     * </ul>
+     * Only available with the binary format. Tasks are decoded when a command first touches
+     * them, so start-up time and heap use no longer grow with the size of the save file.
+     * If the file cannot be mapped, or the journal puts back tasks whose deletion was undone,
+     * this falls back to a normal {@link #load()}.
      * </p>
-     * Lines that do not match these formats are ignored.
      *
-     * @param line a single line from the save file
-     * @return the parsed {@link Task}, or {@code null} if the line is invalid or corrupted
+     * @return the loaded task list (never {@code null})
+     * @throws StarouException if the storage does not use the binary format
      */
-    private Task parseLine(String line) {
+    public TaskList loadMapped() {
+        if(format != SnapshotFormat.BINARY) {
+            throw new StarouException("Mapped loading needs the binary storage format!");
+        }
+        long start = System.nanoTime();
+        migrateIfNeeded();
+        if(journalHasInserts()) {
+            //A mapped list cannot insert tasks in the middle, only put back the ones it removed itself
+            return new TaskList(load());
+        }
+        if(!Files.exists(snapshotPath)) {
+            TaskList list = new TaskList();
+            replayJournals(list, 0);
+            StorageMetrics.loaded(start, list.size());
+            return list;
+        }
+
         try {
-            String [] parts = line.split("\\s*\\|\\s*");
-            if(parts.length < 3) return null;
+            MappedSnapshot mapped = MappedSnapshot.open(snapshotPath);
+            TaskList list = new TaskList(mapped);
+            replayJournals(list, mapped.generation());
+            StorageMetrics.loaded(start, list.size());
+            return list;
+        } catch (IOException e) {
+            System.err.println("[WARN] Cannot map save file, loading it fully: " + e.getMessage());
+            return new TaskList(load());
+        }
+    }
 
-            char type = parts[0].charAt(0);
-            boolean done = parts[1].equals("1");
+    private boolean journalHasInserts() {
+        try {
+            for(long gen : journal.existingGenerations()) {
+                for(String record : journal.read(gen)) {
+                    if(record.charAt(0) == Journal.INSERT) return true;
+                }
+            }
+        } catch (IOException e) {
+            //Reported when the journal is replayed
+        }
+        return false;
+    }
+
+    private long readSnapshot(List<Task> list) {
+        if(!Files.exists(snapshotPath)) return 0;
+        try {
+            return format.codec().read(snapshotPath, list);
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to read save file: " + e.getMessage());
+            return 0;
+        }
+    }
 
-            switch(type) {
-                case 'T': {
-                    Todo t = new Todo(parts[2]);
-                    if(done) t.mark();
-                    return t;
+    /**
+     * Replays every journal not yet folded into the snapshot of the given generation,
+     * then opens the newest journal for appending.
+     *
+     * @return the number of records replayed
+     */
+    private int replayJournals(List<Task> list, long generation) {
+        int total = 0;
+        try {
+            long current = generation;
+            int replayed = 0;
+            for(long gen : journal.existingGenerations()) {
+                if(gen < generation) {
+                    //Already folded into the snapshot by an interrupted compaction
+                    continue;
+                }
+                List<String> records = journal.read(gen);
+                for(String record : records) {
+                    replay(list, record);
                 }
-                case 'D': {
-                    if(parts.length < 4) return null;
-                    LocalDateTime by = LocalDateTime.parse(parts[3].trim(), formatter);
+                current = gen;
+                replayed = records.size();
+                total += replayed;
+            }
+            journal.deleteBefore(generation);
+            journal.open(current, replayed);
+            synchronized(this) {
+                queuedRecords = journal.recordCount();
+                queuedBytes = journal.byteCount();
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to read journal: " + e.getMessage());
+        }
+        return total;
+    }
 
-                    Deadline d = new Deadline(parts[2], by);
-                    if (done) d.mark();
-                    return d;
+    /**
+     * Converts a snapshot saved in another format into the configured one, once.
+     * <p>
+     * This happens when the configured snapshot does not exist yet but one in another
+     * format does. The new snapshot keeps the old generation, so the journal carries over
+     * unchanged, and the old file is kept with a {@code .migrated} suffix as a backup.
+     * </p>
+     */
+    private void migrateIfNeeded() {
+        if(Files.exists(snapshotPath)) return;
+        for(SnapshotFormat other : SnapshotFormat.values()) {
+            Path oldPath = other.pathFor(filePath);
+            if(other == format || !Files.exists(oldPath)) continue;
+            try {
+                List<Task> tasks = new ArrayList<>();
+                long generation = other.codec().read(oldPath, tasks);
+                writeSnapshot(tasks, generation);
+                Files.move(oldPath, oldPath.resolveSibling(oldPath.getFileName() + ".migrated"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                System.err.println("[INFO] Migrated " + tasks.size() + " tasks from " + oldPath + " to " + snapshotPath);
+            } catch (IOException e) {
+                System.err.println("[WARN] Failed to migrate save file: " + e.getMessage());
+            }
+            return;
+        }
+    }
+
+    /**
+     * Applies a single journal record to the list being loaded.
+     * Records that cannot be applied are skipped with a warning, like corrupted snapshot lines.
+     *
+     * @param list the tasks loaded so far
+     * @param record one line of the journal
+     */
+    private void replay(List<Task> list, String record) {
+        try {
+            String payload = record.substring(record.indexOf('|') + 1).trim();
+            switch(record.charAt(0)) {
+                case Journal.ADD: {
+                    Task t = TextSnapshotCodec.parseLine(payload);
+                    if(t != null) list.add(t);
+                    return;
                 }
-                case 'E' : {
-                    if(parts.length < 5) return null;
-                    LocalDateTime from = LocalDateTime.parse(parts[3].trim(), formatter);
-                    LocalDateTime to = LocalDateTime.parse(parts[4].trim(), formatter);
-
-                    Event e = new Event(parts[2], from, to);
-                    if (done) e.mark();
-                    return e;
+                case Journal.INSERT: {
+                    int split = payload.indexOf('|');
+                    Task t = TextSnapshotCodec.parseLine(payload.substring(split + 1).trim());
+                    if(t != null) list.add(Integer.parseInt(payload.substring(0, split).trim()) - 1, t);
+                    return;
                 }
+                case Journal.MARK:
+                    list.get(Integer.parseInt(payload) - 1).mark();
+                    return;
+                case Journal.UNMARK:
+                    list.get(Integer.parseInt(payload) - 1).unmark();
+                    return;
+                case Journal.DELETE:
+                    list.remove(Integer.parseInt(payload) - 1);
+                    return;
                 default:
-                    return null;
+                    System.err.println("[WARN] Skip corrupted journal record: " + record);
+                    StorageMetrics.corruptedLines.increment();
             }
-        } catch (Exception ex) {
-            //Skip corrupted line
-            System.err.println("[WARN] Skip corrupted line: " + line);
-            return null;
+        } catch (RuntimeException ex) {
+            System.err.println("[WARN] Skip corrupted journal record: " + record);
+            StorageMetrics.corruptedLines.increment();
         }
     }
 
+    /**
+     * Writes tasks to a new compressed archive segment, forced to disk before this returns.
+     * The caller removes them from the list afterwards, so they are never only in memory.
+     *
+     * @param tasks the tasks to archive
+     * @throws StarouException if the segment cannot be written
+     */
+    public void archive(List<Task> tasks) {
+        if(tasks.isEmpty()) return;
+        try {
+            archive.append(tasks);
+            StorageMetrics.archivedTasks.add(tasks.size());
+        } catch (IOException e) {
+            throw new StarouException("Failed to write archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the archived tasks one at a time, oldest segment first, without keeping them in memory.
+     * The rest of a segment that cannot be read is skipped with a warning.
+     *
+     * @param action called with each archived task
+     */
+    public void forEachArchived(Consumer<Task> action) {
+        List<Long> segments;
+        try {
+            segments = archive.segments();
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to list archive: " + e.getMessage());
+            return;
+        }
+        for(long segment : segments) {
+            try {
+                archive.read(segment, action);
+            } catch (IOException e) {
+                System.err.println("[WARN] Skip unreadable archive segment " + archive.pathOf(segment)
+                        + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Records that a task was appended to the end of the list.
+     *
+     * @param tasks the current list of tasks, used if the journal needs compacting
+     * @param task the task that was added
+     * @return a future that completes once the record is durable, or fails if it cannot be written
+     */
+    public CompletableFuture<Void> logAdd(List<Task> tasks, Task task) {
+        return append(tasks, Journal.ADD + " | " + task.toStorageString());
+    }
+
+    /**
+     * Records that a task was put back at the given position, e.g. when a delete was undone.
+     *
+     * @param tasks the current list of tasks, used if the journal needs compacting
+     * @param index the 1-based position the task now has
+     * @param task the task that was inserted
+     * @return a future that completes once the record is durable, or fails if it cannot be written
+     */
+    public CompletableFuture<Void> logInsert(List<Task> tasks, int index, Task task) {
+        return append(tasks, Journal.INSERT + " | " + index + " | " + task.toStorageString());
+    }
+
+    /**
+     * Records that the task at the given position was marked or unmarked.
+     *
+     * @param tasks the current list of tasks, used if the journal needs compacting
+     * @param index the 1-based position of the task
+     * @param isDone whether the task is now done
+     * @return a future that completes once the record is durable, or fails if it cannot be written
+     */
+    public CompletableFuture<Void> logMark(List<Task> tasks, int index, boolean isDone) {
+        return append(tasks, (isDone ? Journal.MARK : Journal.UNMARK) + " | " + index);
+    }
+
+    /**
+     * Records that the task at the given position was deleted.
+     *
+     * @param tasks the current list of tasks, used if the journal needs compacting
+     * @param index the 1-based position the task had before it was removed
+     * @return a future that completes once the record is durable, or fails if it cannot be written
+     */
+    public CompletableFuture<Void> logDelete(List<Task> tasks, int index) {
+        return append(tasks, Journal.DELETE + " | " + index);
+    }
+
+    private synchronized CompletableFuture<Void> append(List<Task> tasks, String record) {
+        if(batch != null) {
+            batch.add(record);
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(tasks, List.of(record));
+    }
+
+    /**
+     * Queues records for the writer thread. Once the journal has grown past a threshold, a copy of
+     * the list is queued with them, so the writer can rotate the journal right after these records
+     * and compact exactly what they describe.
+     */
+    private synchronized CompletableFuture<Void> enqueue(List<Task> tasks, List<String> records) {
+        if(isClosed) {
+            throw new StarouException("Storage is closed!");
+        }
+        queuedRecords += records.size();
+        for(String record : records) {
+            queuedBytes += record.length() + 1;
+        }
+        List<Task> snapshot = null;
+        if(tasks != null && !isCompacting && (queuedRecords >= maxJournalRecords || queuedBytes >= maxJournalBytes)) {
+            snapshot = tasks instanceof TaskList ? ((TaskList) tasks).snapshot() : new ArrayList<>(tasks);
+            isCompacting = true;
+            queuedRecords = 0;
+            queuedBytes = 0;
+        }
+        Commit commit = new Commit(records, snapshot);
+        metrics.queued(records.size());
+        queue.add(commit);
+        return commit.durable;
+    }
+
+    /**
+     * Returns a future that completes once everything logged so far is durable.
+     *
+     * @return the future, failing if an earlier record could not be written
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(null, List.of());
+    }
+
+    /**
+     * Returns the counters of the journal writer, such as its queue depth and commit latency.
+     */
+    public CommitMetrics metrics() {
+        return metrics;
+    }
+
+    public FsyncPolicy fsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Takes queued records in groups and writes each group with one journal write, until stopped.
+     * A group ends after {@link #MAX_GROUP_RECORDS} records, after the window, or at a compaction.
+     */
+    private void writeLoop() {
+        List<Commit> group = new ArrayList<>();
+        try {
+            while (true) {
+                Commit next = queue.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GROUP_WINDOW_MILLIS);
+                int records = 0;
+                while (next != null && next != STOP) {
+                    group.add(next);
+                    records += next.records.size();
+                    if (next.snapshot != null || records >= MAX_GROUP_RECORDS) break;
+                    next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                commit(group, records);
+                group.clear();
+                if (next == STOP) return;
+            }
+        } catch (InterruptedException e) {
+            for (Commit c : group) {
+                c.durable.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void commit(List<Commit> group, int count) {
+        if (group.isEmpty()) return;
+        Commit last = group.get(group.size() - 1);
+        if (failure != null) {
+            //The journal misses records, so nothing may follow them until a snapshot covers the gap
+            for (Commit c : group) {
+                if (!c.isRecovery) c.durable.completeExceptionally(failure);
+            }
+            metrics.failed(count);
+            if (last.isRecovery) recover(last);
+            return;
+        }
+
+        List<String> records = new ArrayList<>(count);
+        for (Commit c : group) {
+            records.addAll(c.records);
+        }
+        try {
+            if(!records.isEmpty()) {
+                write(records);
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to save tasks, refusing changes until they are saved in full: "
+                    + e.getMessage());
+            failure = new StarouException("Failed to save tasks: " + e.getMessage()
+                    + ". The next change will try to save them all again.");
+            for (Commit c : group) {
+                c.durable.completeExceptionally(failure);
+            }
+            if(last.snapshot != null) {
+                //The journal was not rotated, so let the next threshold crossing try compacting again
+                isCompacting = false;
+            }
+            metrics.failed(records.size());
+            return;
+        }
+
+        if(last.snapshot != null && !last.isRecovery) {
+            compactInBackground(last.snapshot);
+        }
+        metrics.committed(records.size());
+        long now = System.nanoTime();
+        for (Commit c : group) {
+            metrics.latency(now - c.loggedAt);
+            c.durable.complete(null);
+        }
+    }
+
+    /**
+     * Appends records to the journal, trying once more if the first write fails.
+     * A failed write leaves no partial record behind, see {@link Journal#appendAll(List)}.
+     */
+    private void write(List<String> records) throws IOException {
+        if(filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        try {
+            journal.appendAll(records);
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to write journal, retrying: " + e.getMessage());
+            journal.appendAll(records);
+        }
+    }
+
+    /**
+     * Returns whether changes are being saved, which stops after the journal could not be written
+     * until {@link #saveAfterFailure(List)} succeeds.
+     */
+    public boolean isWritable() {
+        return failure == null;
+    }
+
+    /**
+     * Snapshots the whole list after the journal could not be written, since the list still holds
+     * the changes the journal lost, and accepts changes again once that succeeds. Records logged
+     * before are turned away first. The caller must keep the list from changing meanwhile.
+     *
+     * @param tasks the current list of tasks
+     * @throws StarouException if the tasks still cannot be saved; no change may be made then
+     */
+    public void saveAfterFailure(List<Task> tasks) {
+        if(failure == null) return;
+        List<Task> copy = tasks instanceof TaskList ? ((TaskList) tasks).snapshot() : new ArrayList<>(tasks);
+        Commit recovery = new Commit(List.of(), copy, true);
+        queue.add(recovery);
+        await(recovery.durable);
+    }
+
+    /**
+     * Replaces the journal the failed write left behind with a snapshot and a fresh journal generation.
+     * Runs on the writer thread, after every record queued before it has been turned away.
+     */
+    private void recover(Commit recovery) {
+        try {
+            awaitCompaction();
+            long generation = journal.rotate();
+            writeSnapshot(recovery.snapshot, generation);
+            journal.deleteBefore(generation);
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to save tasks: " + e.getMessage());
+            recovery.durable.completeExceptionally(new StarouException("Failed to save tasks: " + e.getMessage()
+                    + ". Nothing can be changed until they are saved again."));
+            return;
+        }
+        synchronized(this) {
+            queuedRecords = 0;
+            queuedBytes = 0;
+        }
+        isCompacting = false;
+        failure = null;
+        System.err.println("[INFO] Saved all tasks after the journal failed; changes are accepted again.");
+        recovery.durable.complete(null);
+    }
+
+    /**
+     * Starts collecting journal records in memory instead of writing them one by one.
+     * They are written together by {@link #commitBatch(List)} or dropped by {@link #abortBatch()}.
+     *
+     * @throws StarouException if a batch is already open
+     */
+    public synchronized void beginBatch() {
+        if(batch != null) {
+            throw new StarouException("A batch is already in progress!");
+        }
+        batch = new ArrayList<>();
+    }
+
+    /**
+     * Queues every record collected since {@link #beginBatch()} to be written in a single journal write.
+     *
+     * @param tasks the current list of tasks, used if the journal needs compacting
+     * @return a future that completes once the whole batch is durable, or fails if it cannot be written
+     */
+    public synchronized CompletableFuture<Void> commitBatch(List<Task> tasks) {
+        List<String> records = batch;
+        batch = null;
+        if(records == null || records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(tasks, records);
+    }
+
+    /**
+     * Drops every record collected since {@link #beginBatch()}, e.g. after the batch was rolled back.
+     */
+    public synchronized void abortBatch() {
+        batch = null;
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot on the background thread.
+     * <p>
+     * The list was copied when the last record before the rotation was logged, and the
+     * journal is rotated right after that record is written, so the snapshot reflects exactly
+     * the records written before the rotation. Mark and unmark records are idempotent, so it
+     * does not matter if the snapshot also picks up a later change to a task's status:
+     * replaying the newer journal yields the same result.
+     * </p>
+     */
+    private void compactInBackground(List<Task> copy) {
+        long generation;
+        try {
+            generation = journal.rotate();
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to rotate journal: " + e.getMessage());
+            isCompacting = false;
+            return;
+        }
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                writeSnapshot(copy, generation);
+                journal.deleteBefore(generation);
+            } catch (IOException e) {
+                System.err.println("[WARN] Failed to compact journal: " + e.getMessage());
+            } finally {
+                isCompacting = false;
+            }
+        });
+    }
+
     /**
      * Saves the provided list of tasks to the save file.
      * <p>
      * The file will be created if it does not exist, and any existing content
      * will be overwritten. Each task is serialized using its
-     * {@link Task#toStorageString()} method.
+     * {@link Task#toStorageString()} method. Journal records made obsolete
+     * by the new snapshot are removed. Records still queued are written first.
      * </p>
      *
      * @param tasks the list of tasks to save
@@ -141,17 +774,122 @@ public class Storage {
      */
     public void save(List<Task> tasks) {
         try {
-            if(filePath.getParent() != null) {
-                Files.createDirectories(filePath.getParent());
-            }
-            try(BufferedWriter bw = Files.newBufferedWriter(filePath)) {
-                for(Task t : tasks) {
-                    bw.write(t.toStorageString());
-                    bw.newLine();
-                }
+            await(flush());
+            awaitCompaction();
+            synchronized(this) {
+                queuedRecords = 0;
+                queuedBytes = 0;
             }
+            long generation = journal.rotate();
+            writeSnapshot(tasks, generation);
+            journal.deleteBefore(generation);
         } catch (IOException e) {
             throw new RuntimeException("[WARN] Failed to save tasks: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Writes a snapshot to a temporary file next to the save file and atomically renames it
+     * into place, so readers and crashes only ever see the old or the new snapshot in full.
+     */
+    private void writeSnapshot(List<Task> tasks, long generation) throws IOException {
+        if(filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            format.codec().write(tasks, generation, Channels.newOutputStream(ch));
+            if(fsyncPolicy.syncsAtCheckpoints()) ch.force(true);
+            StorageMetrics.snapshotBytes.add(ch.size());
+        }
+
+        try {
+            Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if(fsyncPolicy.syncsAtCheckpoints()) syncDirectory();
+    }
+
+    /**
+     * Syncs the directory entry of the save file so the rename itself survives a power failure.
+     * Not every platform allows opening a directory; there the rename is left to the OS.
+     */
+    private void syncDirectory() {
+        Path dir = filePath.toAbsolutePath().getParent();
+        try(FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            //Directories cannot be synced on this platform
+        }
+    }
+
+    private void awaitCompaction() {
+        if(pendingCompaction == null) return;
+        try {
+            pendingCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("[WARN] Failed to compact journal: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Waits for a future returned by a log method, rethrowing its failure unwrapped.
+     *
+     * @param durable the future to wait for
+     * @throws RuntimeException if the records could not be written
+     */
+    public static void await(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Writes what is still queued when the JVM is stopped without {@link #close()}, e.g. by Ctrl+C.
+     */
+    private void flushOnExit() {
+        try {
+            flush().get(SHUTDOWN_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+            journal.close();
+        } catch (StarouException e) {
+            //Already closed
+        } catch (InterruptedException | ExecutionException | TimeoutException | IOException e) {
+            System.err.println("[WARN] Failed to save tasks on exit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the queued records, waits for any background compaction to finish and closes the journal.
+     * Should be called once before the application exits.
+     */
+    public void close() {
+        synchronized(this) {
+            if(isClosed) return;
+            isClosed = true;
+            queue.add(STOP);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(flushOnExit);
+        } catch (IllegalStateException e) {
+            //Already shutting down
+        }
+        awaitCompaction();
+        compactor.shutdown();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("[WARN] Failed to close journal: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package storage;
+
+import metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link Metrics} that storage classes update, looked up once.
+ */
+final class StorageMetrics {
+    static final LongAdder journalBytes = Metrics.counter("starou_storage_bytes_written_total", "file", "journal");
+    static final LongAdder snapshotBytes = Metrics.counter("starou_storage_bytes_written_total", "file", "snapshot");
+    static final LongAdder archiveBytes = Metrics.counter("starou_storage_bytes_written_total", "file", "archive");
+    static final LongAdder exportBytes = Metrics.counter("starou_storage_bytes_written_total", "file", "export");
+    static final LongAdder importedTasks = Metrics.counter("starou_storage_imported_tasks_total");
+    static final LongAdder skippedRecords = Metrics.counter("starou_storage_skipped_records_total");
+    static final LongAdder archivedTasks = Metrics.counter("starou_storage_archived_tasks_total");
+    static final LongAdder corruptedLines = Metrics.counter("starou_storage_corrupted_lines_total");
+    static final AtomicLong loadMillis = new AtomicLong();
+    static final AtomicLong loadedTasks = new AtomicLong();
+
+    static {
+        Metrics.gauge("starou_storage_load_milliseconds", loadMillis::get);
+        Metrics.gauge("starou_storage_loaded_tasks", loadedTasks::get);
+    }
+
+    private StorageMetrics() {
+    }
+
+    /**
+     * Records how long the last load took and how many tasks it produced.
+     */
+    static void loaded(long startNanos, int tasks) {
+        loadMillis.set((System.nanoTime() - startNanos) / 1_000_000);
+        loadedTasks.set(tasks);
+    }
+}
@@ -0,0 +1,701 @@
+package storage;
+
+import exception.InvalidCommandException;
+import exception.StarouException;
+import task.Deadline;
+import task.Event;
+import task.Task;
+import task.TaskList;
+import task.TaskListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe store of tasks that journals every change, shared by all front-ends.
+ * <p>
+ * The {@link TaskList} and {@link Storage} it wraps are guarded by one {@link StampedLock}:
+ * <ul>
+ *     <li>Adds and deletes hold the write lock while they change the list and journal the change,
+ *         so they take effect, and reach the journal, in one order that every reader agrees on.</li>
+ *     <li>Marks hold only the read lock, so they run alongside reads and each other. Each task is also
+ *         guarded by one of a few striped locks, so that two marks of the same task are applied and
+ *         journaled in the same order. Every mark bumps the task's {@linkplain Task#getVersion() version}.</li>
+ *     <li>Reads copy what they need and return it as a {@link Selection} to render after the lock is gone.
+ *         Pages are copied under an optimistic read, falling back to the read lock only if a write got in
+ *         the way; queries through the indexes hold the read lock.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Every change is also recorded in an {@link UndoHistory}, so {@link #undo()} and {@link #redo()} can
+ * step back and forth through the most recent changes, whoever made them. Undoing is journaled like
+ * any other change, record by record.
+ * </p>
+ * <p>
+ * Changes are journaled in the background, see {@link Storage}. Under the {@code always} fsync policy
+ * each change waits, after releasing the lock, until it is durable; otherwise it returns at once and
+ * {@link Change#durable} tells when it is.
+ * </p>
+ */
+public class TaskRepository {
+    private static final int STRIPES = 64;
+    private static final long DEFAULT_UNDO_BYTES = 16 << 20;
+
+    private final TaskList tasks;
+    private final Storage storage;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final UndoHistory history;
+
+    /**
+     * Constructs a repository over a loaded list and the storage it was loaded from.
+     */
+    public TaskRepository(TaskList tasks, Storage storage) {
+        this(tasks, storage, DEFAULT_UNDO_BYTES);
+    }
+
+    /**
+     * Constructs a repository whose undo history may take about {@code undoBytes} of memory.
+     *
+     * @param tasks the loaded list
+     * @param storage the storage it was loaded from
+     * @param undoBytes the memory cap of the undo history
+     */
+    public TaskRepository(TaskList tasks, Storage storage, long undoBytes) {
+        this.tasks = tasks;
+        this.storage = storage;
+        this.history = new UndoHistory(undoBytes);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * The result of a change: the task, its 0-based position and the list size right after the change.
+     */
+    public static final class Change {
+        public final Task task;
+        public final int position;
+        public final int size;
+        /** Completes once the change is durable, or fails if it could not be journaled. */
+        public final CompletableFuture<Void> durable;
+        /** For an added event: the events already in the list that it clashes with. Empty otherwise. */
+        public final Selection clashes;
+
+        Change(Task task, int position, int size, CompletableFuture<Void> durable) {
+            this(task, position, size, durable, new Selection());
+        }
+
+        Change(Task task, int position, int size, CompletableFuture<Void> durable, Selection clashes) {
+            this.task = task;
+            this.position = position;
+            this.size = size;
+            this.durable = durable;
+            this.clashes = clashes;
+        }
+    }
+
+    /**
+     * The result of an undo or redo: the changes it reverted or reapplied, in the order they were first
+     * made, and the list size afterwards.
+     */
+    public static final class Revision {
+        public final List<UndoHistory.Entry> changes;
+        public final int size;
+        /** Completes once the revision is durable, or fails if it could not be journaled. */
+        public final CompletableFuture<Void> durable;
+
+        Revision(List<UndoHistory.Entry> changes, int size, CompletableFuture<Void> durable) {
+            this.changes = changes;
+            this.size = size;
+            this.durable = durable;
+        }
+    }
+
+    /**
+     * Tasks copied out of the list together with their 0-based positions and the list size at that moment.
+     */
+    public static final class Selection {
+        private final List<Task> found = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private int total;
+
+        public int size() {
+            return found.size();
+        }
+
+        public boolean isEmpty() {
+            return found.isEmpty();
+        }
+
+        public Task task(int i) {
+            return found.get(i);
+        }
+
+        public int position(int i) {
+            return positions.get(i);
+        }
+
+        /** The number of tasks in the whole list when the selection was made. */
+        public int total() {
+            return total;
+        }
+
+        void add(Task task, int position) {
+            found.add(task);
+            positions.add(position);
+        }
+
+        void clear() {
+            found.clear();
+            positions.clear();
+        }
+    }
+
+    /**
+     * Returns the number of tasks.
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tasks.size();
+        if (lock.validate(stamp)) return size;
+        stamp = lock.readLock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Appends a task and journals it. An event is first checked against the events already in the list,
+     * which the interval tree of events answers in O(log n) plus one step per clash.
+     *
+     * @param task the new task
+     * @return the change, with the new size and, for an event, what it clashes with
+     */
+    public Change add(Task task) {
+        ensureWritable();
+        Change change;
+        long stamp = lock.writeLock();
+        try {
+            Selection clashes = new Selection();
+            if (task instanceof Event) {
+                Event e = (Event) task;
+                tasks.ensureIndexed();
+                for (Event other : tasks.clashesWith(e.getFrom(), e.getTo())) {
+                    clashes.add(other, tasks.indexOf(other));
+                }
+            }
+            tasks.add(task);
+            history.recordAdd(tasks.size() - 1, task);
+            change = new Change(task, tasks.size() - 1, tasks.size(), storage.logAdd(tasks, task), clashes);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return acknowledged(change);
+    }
+
+    /**
+     * Appends many tasks at once, e.g. one chunk of an import, journaling them in a single write.
+     * Imports run to millions of tasks, far more than the undo history could hold, so they are not
+     * recorded in it; the history is cleared instead, as what it holds would no longer line up.
+     *
+     * @param added the tasks to append, in order
+     * @return the number of tasks afterwards
+     */
+    public int addAll(List<Task> added) {
+        ensureWritable();
+        CompletableFuture<Void> durable;
+        int size;
+        long stamp = lock.writeLock();
+        try {
+            storage.beginBatch();
+            for (Task t : added) {
+                tasks.add(t);
+                storage.logAdd(tasks, t);
+            }
+            durable = storage.commitBatch(tasks);
+            history.clear();
+            size = tasks.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (storage.fsyncPolicy().syncsEveryRecord()) {
+            Storage.await(durable);
+        }
+        return size;
+    }
+
+    /**
+     * Deletes the task at a position and journals it.
+     *
+     * @param index the 0-based position
+     * @return the change, with the removed task and the new size
+     * @throws InvalidCommandException if there is no task at that position
+     */
+    public Change remove(int index) {
+        ensureWritable();
+        Change change;
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index);
+            Task removed = tasks.remove(index);
+            history.recordDelete(index, removed);
+            change = new Change(removed, index, tasks.size(), storage.logDelete(tasks, index + 1));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return acknowledged(change);
+    }
+
+    /**
+     * Marks or unmarks the task at a position and journals it, without blocking reads or other marks.
+     *
+     * @param index the 0-based position
+     * @param isDone the new completion status
+     * @return the change, with the updated task
+     * @throws InvalidCommandException if there is no task at that position
+     */
+    public Change setDone(int index, boolean isDone) {
+        ensureWritable();
+        Change change;
+        long stamp = lock.readLock();
+        try {
+            checkIndex(index);
+            Task t = tasks.get(index);
+            ReentrantLock stripe = stripes[(int) (t.getId() % STRIPES)];
+            stripe.lock();
+            try {
+                history.recordMark(index, isDone, t.isDone());
+                tasks.setDone(index, isDone);
+                change = new Change(t, index, tasks.size(), storage.logMark(tasks, index + 1, isDone));
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return acknowledged(change);
+    }
+
+    /**
+     * Moves completed tasks out of the list into a new compressed archive segment and journals their deletion.
+     * <p>
+     * The segment is on disk before any task leaves the list, so a crash can at worst leave a task in both.
+     * Archived tasks cannot be put back, and the positions in the undo history no longer fit the list,
+     * so the history is cleared.
+     * </p>
+     *
+     * @param endedBefore only archive deadlines due and events ending before this time, leaving todos,
+     *                    which have no date, alone; {@code null} to archive every completed task
+     * @return the number of tasks archived
+     * @throws exception.StarouException if the archive cannot be written; the list is then unchanged
+     */
+    public int archiveDone(LocalDateTime endedBefore) {
+        ensureWritable();
+        List<Task> found = new ArrayList<>();
+        CompletableFuture<Void> durable;
+        long stamp = lock.writeLock();
+        try {
+            int[] positions = new int[tasks.size()];
+            int position = 0;
+            for (Task t : tasks) {
+                if (t.isDone() && (endedBefore == null || endsBefore(t, endedBefore))) {
+                    positions[found.size()] = position;
+                    found.add(t);
+                }
+                position++;
+            }
+            if (found.isEmpty()) return 0;
+
+            storage.archive(found);
+            storage.beginBatch();
+            //From the back, so the positions still ahead stay valid
+            for (int i = found.size() - 1; i >= 0; i--) {
+                tasks.remove(positions[i]);
+                storage.logDelete(tasks, positions[i] + 1);
+            }
+            durable = storage.commitBatch(tasks);
+            history.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (storage.fsyncPolicy().syncsEveryRecord()) {
+            Storage.await(durable);
+        }
+        return found.size();
+    }
+
+    /**
+     * Streams the archived tasks one at a time, oldest first. Needs no lock, as segments are never
+     * changed once written.
+     *
+     * @param action called with each archived task
+     */
+    public void forEachArchived(Consumer<Task> action) {
+        storage.forEachArchived(action);
+    }
+
+    private static boolean endsBefore(Task t, LocalDateTime time) {
+        if (t instanceof Deadline) return ((Deadline) t).getBy().isBefore(time);
+        if (t instanceof Event) return ((Event) t).getTo().isBefore(time);
+        return false;
+    }
+
+    /**
+     * Reverts the most recent change, or group of changes such as a batch, that has not been undone yet.
+     *
+     * @return what was reverted, or {@code null} if there is nothing to undo
+     */
+    public Revision undo() {
+        return revise(true);
+    }
+
+    /**
+     * Reapplies the change, or group of changes, that was undone last.
+     * Redoing is only possible until a new change is made.
+     *
+     * @return what was reapplied, or {@code null} if there is nothing to redo
+     */
+    public Revision redo() {
+        return revise(false);
+    }
+
+    private Revision revise(boolean isUndo) {
+        ensureWritable();
+        Revision revision;
+        long stamp = lock.writeLock();
+        try {
+            List<UndoHistory.Entry> changes = isUndo ? history.undo() : history.redo();
+            if (changes.isEmpty()) return null;
+            storage.beginBatch();
+            try {
+                for (int i = 0; i < changes.size(); i++) {
+                    UndoHistory.Entry e = changes.get(isUndo ? changes.size() - 1 - i : i);
+                    apply(e, isUndo);
+                }
+            } catch (RuntimeException e) {
+                storage.abortBatch();
+                throw e;
+            }
+            revision = new Revision(changes, tasks.size(), storage.commitBatch(tasks));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (storage.fsyncPolicy().syncsEveryRecord()) {
+            Storage.await(revision.durable);
+        }
+        return revision;
+    }
+
+    /**
+     * Reverts or reapplies one recorded change and journals it. Must hold the write lock.
+     */
+    private void apply(UndoHistory.Entry e, boolean isUndo) {
+        if (e.kind == UndoHistory.Kind.MARK) {
+            boolean isDone = isUndo ? e.wasDone : e.isDone;
+            tasks.setDone(e.position, isDone);
+            storage.logMark(tasks, e.position + 1, isDone);
+            return;
+        }
+
+        //Undoing an add removes the task again, undoing a delete puts it back; redoing does the opposite
+        boolean putsBack = (e.kind == UndoHistory.Kind.ADD) != isUndo;
+        if (putsBack) {
+            tasks.add(e.position, e.task);
+            if (e.position == tasks.size() - 1) {
+                storage.logAdd(tasks, e.task);
+            } else {
+                storage.logInsert(tasks, e.position + 1, e.task);
+            }
+        } else {
+            tasks.remove(e.position);
+            storage.logDelete(tasks, e.position + 1);
+        }
+    }
+
+    /**
+     * Makes sure a change about to be made can be saved. After the journal failed, the whole list
+     * is saved first, with no change in between, and the change is refused if that fails too.
+     *
+     * @throws exception.StarouException if the tasks cannot be saved
+     */
+    private void ensureWritable() {
+        if (storage.isWritable()) return;
+        long stamp = lock.writeLock();
+        try {
+            storage.saveAfterFailure(tasks);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Waits until the change is durable if the fsync policy promises that before a command returns.
+     */
+    private Change acknowledged(Change change) {
+        if (storage.fsyncPolicy().syncsEveryRecord()) {
+            Storage.await(change.durable);
+        }
+        return change;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= tasks.size()) {
+            throw new InvalidCommandException("Index must be between 1 and " + tasks.size() + "!");
+        }
+    }
+
+    /**
+     * Copies up to {@code count} tasks starting at a position.
+     */
+    public Selection page(int from, int count) {
+        return readOptimistically(list -> {
+            Selection s = new Selection();
+            int position = from;
+            for (Task t : list.range(from, count)) {
+                s.add(t, position++);
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Copies up to {@code count} tasks with ids greater than {@code id}.
+     */
+    public Selection pageAfter(long id, int count) {
+        return readOptimistically(list -> {
+            Selection s = new Selection();
+            int position = list.positionAfter(id);
+            for (Task t : list.range(position, count)) {
+                s.add(t, position++);
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Returns an iterator over every task that copies them out a page at a time, like {@link #pageAfter(long, int)},
+     * so the whole list can be walked without holding a lock or a copy of all of it. Tasks added or
+     * deleted meanwhile may or may not be seen.
+     *
+     * @param pageSize how many tasks to copy at once
+     * @return the iterator
+     */
+    public Iterator<Task> pages(int pageSize) {
+        return new Iterator<>() {
+            private Selection page = pageAfter(0, pageSize);
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == page.size() && page.size() == pageSize) {
+                    page = pageAfter(page.task(page.size() - 1).getId(), pageSize);
+                    next = 0;
+                }
+                return next < page.size();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return page.task(next++);
+            }
+        };
+    }
+
+    /**
+     * Runs a query that returns positions, such as {@link TaskList#find(String...)}, and copies the tasks found.
+     *
+     * @param query the query to run against the list; it must not change the list
+     * @return the tasks found, in the order the query returned them
+     */
+    public Selection selectPositions(Function<TaskList, int[]> query) {
+        ensureIndexed();
+        return read(list -> {
+            Selection s = new Selection();
+            for (int pos : query.apply(list)) {
+                s.add(list.range(pos, 1).get(0), pos);
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Runs a query that returns tasks, such as {@link TaskList#overdue(java.time.LocalDateTime)},
+     * and copies the tasks found with their positions.
+     *
+     * @param query the query to run against the list; it must not change the list
+     * @return the tasks found, in the order the query returned them
+     */
+    public Selection selectTasks(Function<TaskList, List<? extends Task>> query) {
+        ensureIndexed();
+        return read(list -> {
+            Selection s = new Selection();
+            for (Task t : query.apply(list)) {
+                s.add(t, list.indexOf(t));
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Runs a query whose result holds no tasks, such as {@link TaskList#freeSlots}, under the read lock.
+     *
+     * @param query the query to run against the list; it must not change the list
+     * @return what the query returns
+     */
+    public <R> R query(Function<TaskList, R> query) {
+        ensureIndexed();
+        long stamp = lock.readLock();
+        try {
+            return query.apply(tasks);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the tasks with the given ids that are still in the list, with their positions.
+     *
+     * @param ids the task ids
+     * @return the tasks found, in the order of {@code ids}
+     */
+    public Selection selectIds(long... ids) {
+        return read(list -> {
+            Selection s = new Selection();
+            for (long id : ids) {
+                int pos = list.positionOf(id);
+                if (pos >= 0) s.add(list.range(pos, 1).get(0), pos);
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Registers a listener on the list and reports every task already in it, with adds and deletes held off.
+     * Listeners are called while the lock is held, so they must not call back into the repository.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(TaskListener listener) {
+        long stamp = lock.writeLock();
+        try {
+            tasks.addListener(listener);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs a read-only action optimistically and, if an add or delete interfered, again under the read lock.
+     * Only for actions that stay bounded even on a list changing under them, like copying a page.
+     */
+    private Selection readOptimistically(Function<TaskList, Selection> action) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Selection s = action.apply(tasks);
+                s.total = tasks.size();
+                if (lock.validate(stamp)) return s;
+            } catch (RuntimeException e) {
+                //Saw the list mid-change; retry under the lock
+            }
+        }
+        return read(action);
+    }
+
+    /**
+     * Runs a read-only action under the read lock, so no add or delete can happen meanwhile.
+     */
+    private Selection read(Function<TaskList, Selection> action) {
+        long stamp = lock.readLock();
+        try {
+            Selection s = action.apply(tasks);
+            s.total = tasks.size();
+            return s;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void ensureIndexed() {
+        if (tasks.isIndexed() || tasks.scansColumns()) return;
+        long stamp = lock.writeLock();
+        try {
+            tasks.ensureIndexed();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs an action with the list and storage to itself, e.g. a batch that must be applied or undone as a whole.
+     * <p>
+     * Changes the action records in {@link #history()} are undone and redone as one group. If the action
+     * throws, it must have reverted its changes already, and they are dropped from the history.
+     * </p>
+     *
+     * @param action the action, given the list and the storage
+     * @return what the action returns
+     */
+    public <R> R exclusively(BiFunction<TaskList, Storage, R> action) {
+        ensureWritable();
+        R result;
+        long stamp = lock.writeLock();
+        try {
+            history.beginGroup();
+            try {
+                result = action.apply(tasks, storage);
+            } catch (RuntimeException e) {
+                history.discardGroup();
+                throw e;
+            }
+            history.endGroup();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (storage.fsyncPolicy().syncsEveryRecord()) {
+            Storage.await(storage.flush());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the undo history, for actions run {@linkplain #exclusively(BiFunction) exclusively}
+     * that change the list directly and must record what they did.
+     */
+    public UndoHistory history() {
+        return history;
+    }
+
+    /**
+     * Waits for running commands to finish and closes the storage. If the journal failed earlier,
+     * the whole list is saved one last time.
+     */
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            if (!storage.isWritable()) {
+                try {
+                    storage.saveAfterFailure(tasks);
+                } catch (StarouException e) {
+                    System.err.println("[WARN] " + e.getMessage());
+                }
+            }
+            storage.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package storage;
+
+import task.Deadline;
+import task.Event;
+import task.Recurrence;
+import task.Task;
+import task.Todo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and writes snapshots in the human-readable pipe-separated text format.
+ * <p>
+ * Large snapshots are read in parallel: the file is mapped into memory and cut into byte ranges
+ * that each end at a newline, every range is decoded and parsed on the common fork-join pool,
+ * and the tasks are appended in file order once all ranges are done.
+ * </p>
+ *
+ * <p><b>Example format:</b></p>
+ * <pre>
+ * # generation 4
+ * T | 1 | Read book
+ * D | 0 | Submit report | 2025-10-12 23:59
+ * E | 1 | Conference | 2025-10-14 09:00 | 2025-10-14 17:00
+ * D | 0 | Pay rent | 2025-11-01 09:00 | every month
+ * </pre>
+ */
+class TextSnapshotCodec implements SnapshotCodec {
+    private static final String GENERATION_HEADER = "# generation ";
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Pattern FIELD_SEPARATOR = Pattern.compile("\\s*\\|\\s*");
+    /** Files are only split into ranges of at least this many bytes, so small ones are read on the calling thread. */
+    private static final long MIN_CHUNK_BYTES = 256 * 1024;
+    /** More ranges than threads, so a thread that finishes early can take over another range. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int AVERAGE_LINE_CHARS = 40;
+
+    @Override
+    public long read(Path path, List<Task> into) throws IOException {
+        long size = Files.size(path);
+        int chunks = (int) Math.min((long) ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD,
+                size / MIN_CHUNK_BYTES);
+        if(chunks <= 1 || size > Integer.MAX_VALUE) {
+            return readSequentially(path, into);
+        }
+
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int[] bounds = new int[chunks + 1];
+        bounds[chunks] = (int) size;
+        for(int i = 1; i < chunks; i++) {
+            int b = Math.max((int) (size * i / chunks), bounds[i - 1]);
+            while(b < size && buffer.get(b - 1) != '\n') b++;
+            bounds[i] = b;
+        }
+        List<ForkJoinTask<Chunk>> parts = new ArrayList<>(chunks);
+        for(int i = 0; i < chunks; i++) {
+            MappedByteBuffer range = buffer.slice(bounds[i], bounds[i + 1] - bounds[i]);
+            parts.add(ForkJoinTask.adapt(() -> parseChunk(range)));
+        }
+        ForkJoinTask.invokeAll(parts);
+
+        long generation = 0;
+        int total = 0;
+        for(ForkJoinTask<Chunk> part : parts) {
+            total += part.join().tasks.size();
+        }
+        if(into instanceof ArrayList) {
+            ((ArrayList<Task>) into).ensureCapacity(into.size() + total);
+        }
+        for(ForkJoinTask<Chunk> part : parts) {
+            Chunk c = part.join();
+            into.addAll(c.tasks);
+            if(c.generation >= 0) generation = c.generation;
+        }
+        return generation;
+    }
+
+    private static long readSequentially(Path path, List<Task> into) throws IOException {
+        Chunk chunk = new Chunk(into);
+        try(BufferedReader br = Files.newBufferedReader(path)) {
+            String line;
+            while((line = br.readLine()) != null) {
+                chunk.accept(line);
+            }
+        }
+        return Math.max(chunk.generation, 0);
+    }
+
+    /**
+     * Decodes one range of the file, which starts at the beginning of a line and ends after a newline
+     * or at the end of the file. A newline byte never occurs inside a multi-byte UTF-8 character,
+     * so every range decodes on its own.
+     */
+    private static Chunk parseChunk(MappedByteBuffer range) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(range);
+        Chunk chunk = new Chunk(new ArrayList<>(chars.length() / AVERAGE_LINE_CHARS));
+        int start = 0;
+        int length = chars.length();
+        for(int i = 0; i <= length; i++) {
+            if(i == length || chars.get(i) == '\n') {
+                if(i > start) chunk.accept(chars.subSequence(start, i).toString());
+                start = i + 1;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * The tasks parsed from one part of the file, and the generation if its header was there.
+     */
+    private static final class Chunk {
+        final List<Task> tasks;
+        long generation = -1;
+
+        Chunk(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+
+        void accept(String line) {
+            line = line.trim();
+            if(line.isEmpty()) return;
+            if(line.startsWith(GENERATION_HEADER)) {
+                generation = parseGeneration(line);
+                return;
+            }
+            Task t = parseLine(line);
+            if(t != null) tasks.add(t);
+        }
+    }
+
+    private static long parseGeneration(String header) {
+        try {
+            return Long.parseLong(header.substring(GENERATION_HEADER.length()).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[WARN] Skip corrupted line: " + header);
+            StorageMetrics.corruptedLines.increment();
+            return 0;
+        }
+    }
+
+    /**
+     * Parses a single line of task data from the save file into a {@link Task} object.
+     * <p>
+     * The expected format for each task is:
+     * <ul>
+     *     <li>{@code T | 1 | description}</li>
+     *     <li>{@code D | 0 | description | by}</li>
+     *     <li>{@code E | 1 | description | from | to}</li>
+     *     <li>{@code D | 0 | description | by | every week}, and likewise for events, if the task repeats</li>
+     * </ul>
+     * </p>
+     * Lines that do not match these formats are ignored and counted as corrupted.
+     *
+     * @param line a single line from the save file
+     * @return the parsed {@link Task}, or {@code null} if the line is invalid or corrupted
+     */
+    static Task parseLine(String line) {
+        Task t = decodeLine(line);
+        if(t == null) {
+            StorageMetrics.corruptedLines.increment();
+        }
+        return t;
+    }
+
+    private static Task decodeLine(String line) {
+        try {
+            String [] parts = FIELD_SEPARATOR.split(line);
+            if(parts.length < 3) return null;
+
+            char type = parts[0].charAt(0);
+            boolean done = parts[1].equals("1");
+
+            switch(type) {
+                case 'T': {
+                    Todo t = new Todo(parts[2]);
+                    if(done) t.mark();
+                    return t;
+                }
+                case 'D': {
+                    if(parts.length < 4) return null;
+                    LocalDateTime by = LocalDateTime.parse(parts[3].trim(), formatter);
+
+                    Recurrence rule = parts.length > 4 ? Recurrence.parse(parts[4]) : null;
+
+                    Deadline d = new Deadline(parts[2], by, rule);
+                    if (done) d.mark();
+                    return d;
+                }
+                case 'E' : {
+                    if(parts.length < 5) return null;
+                    LocalDateTime from = LocalDateTime.parse(parts[3].trim(), formatter);
+                    LocalDateTime to = LocalDateTime.parse(parts[4].trim(), formatter);
+
+                    Recurrence rule = parts.length > 5 ? Recurrence.parse(parts[5]) : null;
+
+                    Event e = new Event(parts[2], from, to, rule);
+                    if (done) e.mark();
+                    return e;
+                }
+                default:
+                    return null;
+            }
+        } catch (Exception ex) {
+            //Skip corrupted line
+            System.err.println("[WARN] Skip corrupted line: " + line);
+            return null;
+        }
+    }
+
+    @Override
+    public void write(List<Task> tasks, long generation, OutputStream out) throws IOException {
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        bw.write(GENERATION_HEADER + generation);
+        bw.newLine();
+        for(Task t : tasks) {
+            bw.write(t.toStorageString());
+            bw.newLine();
+        }
+        bw.flush();
+    }
+}
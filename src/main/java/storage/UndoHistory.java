@@ -0,0 +1,240 @@
+package storage;
+
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded history of recent changes to a task list, kept so they can be undone and redone.
+ * <p>
+ * Each change is stored as one compact entry rather than a copy of the list: a {@code long} holding the
+ * kind of change, the position and the completion status before and after, plus a reference to the task
+ * for adds and deletes. Entries live in a ring buffer; changes made together, such as a batch, form one
+ * group that is undone and redone as a whole. The oldest groups are dropped once the entries take more
+ * than the memory cap, so undoing stays cheap however long the list is.
+ * </p>
+ * <p>
+ * The entries before the cursor can be undone, those after it redone. Recording a new change drops
+ * everything that could be redone. All methods are synchronized, since marks are recorded concurrently.
+ * </p>
+ */
+public final class UndoHistory {
+    /** The kind of a recorded change. */
+    public enum Kind { ADD, DELETE, MARK }
+
+    private static final int INITIAL_CAPACITY = 64;
+    /** The estimated bytes of one entry: its {@code long}, its task reference and some slack. */
+    private static final int ENTRY_BYTES = 16;
+    /** The estimated bytes of a task kept alive by an entry, on top of its description. */
+    private static final int TASK_BYTES = 64;
+
+    private static final long KIND_MASK = 0b11;
+    private static final long IS_DONE = 1 << 2;
+    private static final long WAS_DONE = 1 << 3;
+    private static final long GROUP_START = 1 << 4;
+
+    private final long maxBytes;
+    private long[] entries = new long[INITIAL_CAPACITY];
+    private Task[] tasks = new Task[INITIAL_CAPACITY];
+    private int head;
+    private int count;
+    private int cursor;
+    private long bytes;
+    private int groupStart = -1;
+
+    /**
+     * One recorded change, as handed out by {@link #undo()} and {@link #redo()}.
+     */
+    public static final class Entry {
+        public final Kind kind;
+        /** The 0-based position the change was made at. */
+        public final int position;
+        /** The added or deleted task, or {@code null} for a mark. */
+        public final Task task;
+        /** For a mark, the status the task was given. */
+        public final boolean isDone;
+        /** For a mark, the status the task had before. */
+        public final boolean wasDone;
+
+        Entry(Kind kind, int position, Task task, boolean isDone, boolean wasDone) {
+            this.kind = kind;
+            this.position = position;
+            this.task = task;
+            this.isDone = isDone;
+            this.wasDone = wasDone;
+        }
+    }
+
+    /**
+     * Constructs an empty history.
+     *
+     * @param maxBytes roughly how much memory the entries may take
+     */
+    public UndoHistory(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized void recordAdd(int position, Task task) {
+        record(Kind.ADD, position, task, false, false);
+    }
+
+    public synchronized void recordDelete(int position, Task task) {
+        record(Kind.DELETE, position, task, false, false);
+    }
+
+    public synchronized void recordMark(int position, boolean isDone, boolean wasDone) {
+        record(Kind.MARK, position, null, isDone, wasDone);
+    }
+
+    /**
+     * Makes the changes recorded until {@link #endGroup()} one group, undone and redone together.
+     */
+    public synchronized void beginGroup() {
+        dropRedo();
+        groupStart = count;
+    }
+
+    public synchronized void endGroup() {
+        groupStart = -1;
+        evict();
+    }
+
+    /**
+     * Forgets the changes recorded since {@link #beginGroup()}, e.g. because they were rolled back.
+     */
+    public synchronized void discardGroup() {
+        if (groupStart < 0) return;
+        while (count > groupStart) {
+            dropNewest();
+        }
+        cursor = count;
+        groupStart = -1;
+    }
+
+    /**
+     * Moves the cursor back over the newest group that can be undone.
+     *
+     * @return the changes of that group in the order they were made, or an empty list if there is none
+     */
+    public synchronized List<Entry> undo() {
+        if (cursor == 0) return List.of();
+        int end = cursor;
+        do {
+            cursor--;
+        } while (cursor > 0 && (entries[slot(cursor)] & GROUP_START) == 0);
+        return entriesBetween(cursor, end);
+    }
+
+    /**
+     * Moves the cursor forward over the oldest group that can be redone.
+     *
+     * @return the changes of that group in the order they were made, or an empty list if there is none
+     */
+    public synchronized List<Entry> redo() {
+        if (cursor == count) return List.of();
+        int start = cursor;
+        do {
+            cursor++;
+        } while (cursor < count && (entries[slot(cursor)] & GROUP_START) == 0);
+        return entriesBetween(start, cursor);
+    }
+
+    /**
+     * Forgets every change, e.g. after tasks left the list in a way that cannot be undone.
+     */
+    public synchronized void clear() {
+        while (count > 0) {
+            dropNewest();
+        }
+        cursor = 0;
+        head = 0;
+        groupStart = -1;
+    }
+
+    /**
+     * Returns roughly how much memory the entries take.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private void record(Kind kind, int position, Task task, boolean isDone, boolean wasDone) {
+        dropRedo();
+        if (count == entries.length) {
+            grow();
+        }
+        boolean startsGroup = groupStart < 0 || count == groupStart;
+        long entry = kind.ordinal() | (isDone ? IS_DONE : 0) | (wasDone ? WAS_DONE : 0)
+                | (startsGroup ? GROUP_START : 0) | ((long) position << 32);
+        int slot = slot(count);
+        entries[slot] = entry;
+        tasks[slot] = task;
+        bytes += costOf(task);
+        count++;
+        cursor = count;
+        if (groupStart < 0) {
+            evict();
+        }
+    }
+
+    private void dropRedo() {
+        while (count > cursor) {
+            dropNewest();
+        }
+    }
+
+    private void dropNewest() {
+        int slot = slot(count - 1);
+        bytes -= costOf(tasks[slot]);
+        tasks[slot] = null;
+        count--;
+    }
+
+    /**
+     * Drops the oldest groups until the entries fit the memory cap, keeping the group being recorded.
+     * A single group larger than the cap cannot be undone at all, so it is dropped too.
+     */
+    private void evict() {
+        while (bytes > maxBytes && count > 0) {
+            do {
+                bytes -= costOf(tasks[head]);
+                tasks[head] = null;
+                head = (head + 1) % entries.length;
+                count--;
+                cursor--;
+            } while (count > 0 && (entries[head] & GROUP_START) == 0);
+        }
+        if (cursor < 0) cursor = 0;
+    }
+
+    private void grow() {
+        long[] newEntries = new long[entries.length * 2];
+        Task[] newTasks = new Task[entries.length * 2];
+        for (int i = 0; i < count; i++) {
+            newEntries[i] = entries[slot(i)];
+            newTasks[i] = tasks[slot(i)];
+        }
+        entries = newEntries;
+        tasks = newTasks;
+        head = 0;
+    }
+
+    private int slot(int i) {
+        return (head + i) % entries.length;
+    }
+
+    private static long costOf(Task task) {
+        return ENTRY_BYTES + (task == null ? 0 : TASK_BYTES + 2L * task.description.length());
+    }
+
+    private List<Entry> entriesBetween(int from, int to) {
+        List<Entry> found = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            long e = entries[slot(i)];
+            found.add(new Entry(Kind.values()[(int) (e & KIND_MASK)], (int) (e >>> 32), tasks[slot(i)],
+                    (e & IS_DONE) != 0, (e & WAS_DONE) != 0));
+        }
+        return found;
+    }
+}
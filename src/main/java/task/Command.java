@@ -0,0 +1,88 @@
+package task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * One command typed by the user, as understood by {@link Parser#parse(String)}.
+ * <p>
+ * Which fields are set depends on the {@link Kind}; the others are {@code null}, or {@code 0} for
+ * {@link #index}. Everything is checked while parsing, so a command that parsed can be run without
+ * looking at the text again.
+ * </p>
+ */
+public final class Command {
+    /** What a command does. */
+    public enum Kind {
+        LIST, MARK, UNMARK, DELETE, FIND, FIND_ARCHIVED, DUE, OVERDUE, ON, CONFLICTS, FREE, ADD, ARCHIVE, IMPORT, EXPORT, EXPORT_REPLACE, UNDO, REDO, BEGIN, STATS, BYE
+    }
+
+    public final Kind kind;
+    /** For {@code mark}, {@code unmark} and {@code delete}: the 1-based position of the task. */
+    public final int index;
+    /** For {@code todo}, {@code deadline} and {@code event}: the task to add. */
+    public final Task task;
+    /** For {@code find} and {@code find --archived}: the keyword or query. */
+    public final String keyword;
+    /** For {@code import}, {@code export} and {@code export --replace}: the file, as typed. */
+    public final String file;
+    /**
+     * For {@code due} and {@code conflicts}: the first day of the range; for {@code on} and {@code free}: the day.
+     * {@code null} for {@code conflicts} without a range.
+     */
+    public final LocalDate from;
+    /**
+     * For {@code due} and {@code conflicts}: the last day of the range, inclusive. For {@code archive}: the day archived deadlines
+     * and events must have ended before, or {@code null} to archive every completed task.
+     */
+    public final LocalDate to;
+    /** For {@code list} with options: the page asked for; {@code null} for the whole list. */
+    public final Parser.ListPage page;
+    /** For {@code free}: the shortest free slot asked for. */
+    public final Duration duration;
+
+    private Command(Kind kind, int index, Task task, String keyword, String file, LocalDate from, LocalDate to,
+                    Parser.ListPage page, Duration duration) {
+        this.kind = kind;
+        this.index = index;
+        this.task = task;
+        this.keyword = keyword;
+        this.file = file;
+        this.from = from;
+        this.to = to;
+        this.page = page;
+        this.duration = duration;
+    }
+
+    static Command of(Kind kind) {
+        return new Command(kind, 0, null, null, null, null, null, null, null);
+    }
+
+    static Command list(Parser.ListPage page) {
+        return new Command(Kind.LIST, 0, null, null, null, null, null, page, null);
+    }
+
+    static Command at(Kind kind, int index) {
+        return new Command(kind, index, null, null, null, null, null, null, null);
+    }
+
+    static Command add(Task task) {
+        return new Command(Kind.ADD, 0, task, null, null, null, null, null, null);
+    }
+
+    static Command find(Kind kind, String keyword) {
+        return new Command(kind, 0, null, keyword, null, null, null, null, null);
+    }
+
+    static Command file(Kind kind, String path) {
+        return new Command(kind, 0, null, null, path, null, null, null, null);
+    }
+
+    static Command between(Kind kind, LocalDate from, LocalDate to) {
+        return new Command(kind, 0, null, null, null, from, to, null, null);
+    }
+
+    static Command free(LocalDate day, Duration duration) {
+        return new Command(Kind.FREE, 0, null, null, null, day, day, null, duration);
+    }
+}
@@ -0,0 +1,151 @@
+package task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Sorted indexes over the dates of {@link Deadline} and {@link Event} tasks,
+ * used by the {@code due}, {@code overdue} and {@code on} commands.
+ * <p>
+ * Deadlines are kept in navigable maps keyed by their due time, one with every deadline
+ * and one with only the deadlines not yet done. Events are kept in an {@link IntervalTree}
+ * so every event overlapping a time window can be found without scanning the others, and the tree is
+ * kept up to date as events come and go, so checking a new event for clashes never looks at the rest.
+ * Repeating deadlines and events have no single date, so they are only kept in sets of ids and
+ * {@link TaskList} works out their occurrences for the window each query asks about.
+ * Only task ids are stored, so the index never holds on to task objects.
+ * Marking changes the map of pending deadlines while other threads may be querying,
+ * so that map is guarded by its own monitor.
+ * </p>
+ */
+class DateIndex implements TaskListener {
+    private final NavigableMap<LocalDateTime, List<Long>> deadlines = new TreeMap<>();
+    private final NavigableMap<LocalDateTime, List<Long>> pending = new TreeMap<>();
+    private final IntervalTree<Long> events = new IntervalTree<>();
+    private final Set<Long> repeatingDeadlines = new TreeSet<>();
+    private final Set<Long> repeatingEvents = new TreeSet<>();
+
+    @Override
+    public void onAdd(Task task) {
+        if (task.getRecurrence() != null) {
+            (task instanceof Deadline ? repeatingDeadlines : repeatingEvents).add(task.id);
+        } else if (task instanceof Deadline) {
+            Deadline d = (Deadline) task;
+            put(deadlines, d);
+            synchronized (pending) {
+                if (!d.isDone()) put(pending, d);
+            }
+        } else if (task instanceof Event) {
+            Event e = (Event) task;
+            events.insert(minutes(e.getFrom()), minutes(e.getTo()), e.id, e.id);
+        }
+    }
+
+    @Override
+    public void onRemove(Task task) {
+        if (task.getRecurrence() != null) {
+            (task instanceof Deadline ? repeatingDeadlines : repeatingEvents).remove(task.id);
+        } else if (task instanceof Deadline) {
+            Deadline d = (Deadline) task;
+            take(deadlines, d);
+            synchronized (pending) {
+                take(pending, d);
+            }
+        } else if (task instanceof Event) {
+            Event e = (Event) task;
+            events.remove(minutes(e.getFrom()), e.id);
+        }
+    }
+
+    @Override
+    public void onUpdate(Task task) {
+        if (task instanceof Deadline && task.getRecurrence() == null) {
+            Deadline d = (Deadline) task;
+            synchronized (pending) {
+                take(pending, d);
+                if (!d.isDone()) put(pending, d);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the deadlines due in {@code [from, to)}, earliest first.
+     */
+    List<Long> deadlinesBetween(LocalDateTime from, LocalDateTime to) {
+        return flatten(deadlines.subMap(from, true, to, false));
+    }
+
+    /**
+     * Returns the ids of the deadlines not yet done that were due before {@code now}, earliest first.
+     */
+    List<Long> overdue(LocalDateTime now) {
+        synchronized (pending) {
+            return flatten(pending.headMap(now, false));
+        }
+    }
+
+    /**
+     * Returns the ids of the events that overlap {@code [from, to)}, in order of start time.
+     */
+    List<Long> eventsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Long> found = new ArrayList<>();
+        events.overlapping(minutes(from), minutes(to) - 1, found::add);
+        return found;
+    }
+
+    /**
+     * Returns the ids of every event that does not repeat, in order of start time.
+     */
+    List<Long> events() {
+        List<Long> found = new ArrayList<>(events.size());
+        events.forEach(found::add);
+        return found;
+    }
+
+    /**
+     * Returns the ids of the repeating deadlines, in ascending order.
+     */
+    Set<Long> repeatingDeadlines() {
+        return repeatingDeadlines;
+    }
+
+    /**
+     * Returns the ids of the repeating events, in ascending order.
+     */
+    Set<Long> repeatingEvents() {
+        return repeatingEvents;
+    }
+
+    private static void put(NavigableMap<LocalDateTime, List<Long>> map, Deadline d) {
+        map.computeIfAbsent(d.getBy(), k -> new ArrayList<>(1)).add(d.id);
+    }
+
+    private static void take(NavigableMap<LocalDateTime, List<Long>> map, Deadline d) {
+        List<Long> bucket = map.get(d.getBy());
+        if (bucket == null) return;
+        bucket.remove(Long.valueOf(d.id));
+        if (bucket.isEmpty()) map.remove(d.getBy());
+    }
+
+    private static List<Long> flatten(Map<LocalDateTime, List<Long>> map) {
+        List<Long> found = new ArrayList<>();
+        for (List<Long> bucket : map.values()) {
+            found.addAll(bucket);
+        }
+        return found;
+    }
+
+    /**
+     * Converts a date-time to whole minutes since the epoch, the resolution tasks are stored at.
+     */
+    static long minutes(LocalDateTime t) {
+        return Math.floorDiv(t.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
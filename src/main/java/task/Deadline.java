@@ -1,14 +1,43 @@
 package task;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class Deadline extends Task {
     protected LocalDateTime by;
+    private final Recurrence recurrence;
 
     public Deadline(String description, LocalDateTime by) {
+        this(description, by, null);
+    }
+
+    /**
+     * Constructs a deadline that repeats by the given rule, with {@code by} as its first occurrence.
+     *
+     * @param recurrence the rule, or {@code null} for a one-off deadline
+     */
+    public Deadline(String description, LocalDateTime by, Recurrence recurrence) {
         super(description);
         this.by = by;
+        this.recurrence = recurrence;
+    }
+
+    public LocalDateTime getBy() {
+        return by;
+    }
+
+    @Override
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Returns a copy of this recurring deadline due at one of its occurrences, with the same id and status.
+     */
+    Deadline occurrence(LocalDateTime at) {
+        Deadline d = new Deadline(description, at, recurrence);
+        d.id = id;
+        if (isDone()) d.mark();
+        return d;
     }
 
     @Override
@@ -17,13 +46,18 @@ public class Deadline extends Task {
     }
 
     @Override
-    protected String extraInfo() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d yyyy, h:mma");
-        return "(by: " + by.format(formatter) + ")";
+    protected void appendExtraInfo(StringBuilder sb) {
+        sb.append("(by: ");
+        appendDisplayDate(sb, by);
+        if (recurrence != null) sb.append(", ").append(recurrence);
+        sb.append(')');
     }
 
     @Override
     public String toStorageString() {
-        return String.format("D | %d | %s | %s", isDone ? 1 : 0, description, by.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+        StringBuilder sb = appendStoragePrefix(new StringBuilder(description.length() + 32)).append(" | ");
+        appendStorageDate(sb, by);
+        if (recurrence != null) sb.append(" | ").append(recurrence);
+        return sb.toString();
     }
 }
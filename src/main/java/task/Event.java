@@ -1,16 +1,51 @@
 package task;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class Event extends Task {
     private final LocalDateTime from;
     private final LocalDateTime to;
+    private final Recurrence recurrence;
 
     public Event(String description, LocalDateTime from, LocalDateTime to) {
+        this(description, from, to, null);
+    }
+
+    /**
+     * Constructs an event that repeats by the given rule, with {@code from} and {@code to} as its first occurrence.
+     *
+     * @param recurrence the rule, or {@code null} for a one-off event
+     */
+    public Event(String description, LocalDateTime from, LocalDateTime to, Recurrence recurrence) {
         super(description);
         this.from = from;
         this.to = to;
+        this.recurrence = recurrence;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    @Override
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Returns a copy of this recurring event starting at one of its occurrences, lasting as long as the first,
+     * with the same id and status.
+     */
+    Event occurrence(LocalDateTime start) {
+        Event e = new Event(description, start, start.plus(Duration.between(from, to)), recurrence);
+        e.id = id;
+        if (isDone()) e.mark();
+        return e;
     }
 
     @Override
@@ -19,13 +54,22 @@ public class Event extends Task {
     }
 
     @Override
-    protected String extraInfo() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d yyyy, h:mma");
-        return String.format("(from: %s to %s)", from.format(formatter), to.format(formatter));
+    protected void appendExtraInfo(StringBuilder sb) {
+        sb.append("(from: ");
+        appendDisplayDate(sb, from);
+        sb.append(" to ");
+        appendDisplayDate(sb, to);
+        if (recurrence != null) sb.append(", ").append(recurrence);
+        sb.append(')');
     }
 
     @Override
     public String toStorageString() {
-        return String.format("E | %d | %s | %s | %s", isDone ? 1 : 0, description, from.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")), to.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+        StringBuilder sb = appendStoragePrefix(new StringBuilder(description.length() + 48)).append(" | ");
+        appendStorageDate(sb, from);
+        sb.append(" | ");
+        appendStorageDate(sb, to);
+        if (recurrence != null) sb.append(" | ").append(recurrence);
+        return sb.toString();
     }
 }
@@ -0,0 +1,172 @@
+package task;
+
+import java.util.function.Consumer;
+
+/**
+ * A balanced (AVL) interval tree keyed by interval start, where every node also
+ * remembers the largest interval end in its subtree.
+ * <p>
+ * Inserting and removing an interval takes O(log n), and finding all k intervals
+ * that overlap a query window takes O(log n + k). Intervals with the same start are
+ * ordered by a unique id, so duplicates are allowed.
+ * </p>
+ *
+ * @param <T> the type of value attached to each interval
+ */
+class IntervalTree<T> {
+    private Node<T> root;
+    private int size;
+
+    private static final class Node<T> {
+        final long start;
+        final long end;
+        final long id;
+        final T value;
+        long maxEnd;
+        int height = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, long id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the interval {@code [start, end]}.
+     *
+     * @param id a unique id used to order intervals with the same start
+     */
+    void insert(long start, long end, long id, T value) {
+        root = insert(root, new Node<>(start, end, id, value));
+        size++;
+    }
+
+    /**
+     * Removes the interval with the given start and id, if present.
+     *
+     * @return {@code true} if an interval was removed
+     */
+    boolean remove(long start, long id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    /**
+     * Reports every interval that overlaps {@code [lo, hi]}, in order of start.
+     */
+    void overlapping(long lo, long hi, Consumer<T> action) {
+        overlapping(root, lo, hi, action);
+    }
+
+    /**
+     * Reports every interval in order of start, then id.
+     */
+    void forEach(Consumer<T> action) {
+        overlapping(root, Long.MIN_VALUE, Long.MAX_VALUE, action);
+    }
+
+    private void overlapping(Node<T> n, long lo, long hi, Consumer<T> action) {
+        if (n == null || n.maxEnd < lo) return;
+        overlapping(n.left, lo, hi, action);
+        if (n.start > hi) return;
+        if (n.end >= lo) action.accept(n.value);
+        overlapping(n.right, lo, hi, action);
+    }
+
+    private static int compare(long start, long id, Node<?> n) {
+        int c = Long.compare(start, n.start);
+        return c != 0 ? c : Long.compare(id, n.id);
+    }
+
+    private Node<T> insert(Node<T> n, Node<T> added) {
+        if (n == null) return added;
+        if (compare(added.start, added.id, n) < 0) {
+            n.left = insert(n.left, added);
+        } else {
+            n.right = insert(n.right, added);
+        }
+        return balance(n);
+    }
+
+    private Node<T> remove(Node<T> n, long start, long id) {
+        if (n == null) return null;
+        int c = compare(start, id, n);
+        if (c < 0) {
+            n.left = remove(n.left, start, id);
+        } else if (c > 0) {
+            n.right = remove(n.right, start, id);
+        } else {
+            size--;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            Node<T> min = n.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            min.right = removeMin(n.right);
+            min.left = n.left;
+            return balance(min);
+        }
+        return balance(n);
+    }
+
+    private Node<T> removeMin(Node<T> n) {
+        if (n.left == null) return n.right;
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node<?> n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long max = n.end;
+        if (n.left != null) max = Math.max(max, n.left.maxEnd);
+        if (n.right != null) max = Math.max(max, n.right.maxEnd);
+        n.maxEnd = max;
+    }
+
+    private Node<T> balance(Node<T> n) {
+        update(n);
+        int factor = height(n.left) - height(n.right);
+        if (factor > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (factor < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node<T> rotateRight(Node<T> n) {
+        Node<T> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private Node<T> rotateLeft(Node<T> n) {
+        Node<T> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
@@ -0,0 +1,192 @@
+package task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * An inverted trigram index over task descriptions, used by the {@code find} command.
+ * <p>
+ * Every run of three characters in a description (case-folded) maps to a sorted list of
+ * the ids of tasks containing it. A substring query only has to intersect the lists for
+ * its own trigrams, which is usually far smaller than the whole task list, and then
+ * check the few remaining candidates. Keywords shorter than three characters cannot
+ * be answered from the index.
+ * </p>
+ * <p>
+ * Deleting a task does not touch the id lists, which can be long for common trigrams.
+ * Stale ids are skipped when candidates are checked, and a list is compacted once
+ * more than half of it is stale, so deletes stay cheap however large the list is.
+ * </p>
+ */
+class KeywordIndex implements TaskListener {
+    private static final int GRAM = 3;
+
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private final LongFunction<Task> resolver;
+    private final LongPredicate isLive;
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param resolver looks up a task by id, returning {@code null} if it no longer exists
+     * @param isLive tells whether a task id still exists, without decoding the task
+     */
+    KeywordIndex(LongFunction<Task> resolver, LongPredicate isLive) {
+        this.resolver = resolver;
+        this.isLive = isLive;
+    }
+
+    @Override
+    public void onAdd(Task task) {
+        String s = task.description;
+        for (int i = 0; i + GRAM <= s.length(); i++) {
+            postings.computeIfAbsent(gram(s, i), k -> new Posting()).add(task.id);
+        }
+    }
+
+    @Override
+    public void onRemove(Task task) {
+        String s = task.description;
+        for (int i = 0; i + GRAM <= s.length(); i++) {
+            Long key = gram(s, i);
+            Posting p = postings.get(key);
+            if (p == null) continue;
+            p.stale++;
+            if (p.stale > Posting.MIN_COMPACT && p.stale * 2 > p.size) {
+                p.compact(isLive);
+                if (p.size == 0) postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Finds the ids of tasks whose description contains every keyword, ignoring case.
+     *
+     * @param keywords the keywords to look for
+     * @return the matching ids in ascending order, or {@code null} if no keyword is long
+     *         enough to use the index and the caller has to scan instead
+     */
+    long[] search(String... keywords) {
+        List<Posting> lists = new ArrayList<>();
+        for (String k : keywords) {
+            for (int i = 0; i + GRAM <= k.length(); i++) {
+                Posting p = postings.get(gram(k, i));
+                if (p == null) return new long[0];
+                lists.add(p);
+            }
+        }
+        if (lists.isEmpty()) return null;
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int count = candidates.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            count = retainAll(candidates, count, lists.get(l));
+        }
+
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            Task t = resolver.apply(candidates[i]);
+            if (t != null && containsAll(t.description, keywords)) {
+                candidates[matched++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, matched);
+    }
+
+    /**
+     * Keeps only the candidates also present in {@code p}. Both are sorted, so the search
+     * range in {@code p} only moves forward.
+     *
+     * @return the number of candidates left at the front of the array
+     */
+    private static int retainAll(long[] candidates, int count, Posting p) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < p.size; i++) {
+            int pos = Arrays.binarySearch(p.ids, from, p.size, candidates[i]);
+            if (pos >= 0) {
+                candidates[kept++] = candidates[i];
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns whether {@code text} contains every keyword, ignoring case, without allocating.
+     */
+    static boolean containsAll(String text, String... keywords) {
+        for (String k : keywords) {
+            if (!containsIgnoreCase(text, k)) return false;
+        }
+        return true;
+    }
+
+    static boolean containsIgnoreCase(String text, String keyword) {
+        int last = text.length() - keyword.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, keyword, 0, keyword.length())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Packs the case-folded trigram starting at {@code i} into a single key.
+     */
+    private static Long gram(String s, int i) {
+        return ((long) Character.toLowerCase(s.charAt(i)) << 32)
+                | ((long) Character.toLowerCase(s.charAt(i + 1)) << 16)
+                | Character.toLowerCase(s.charAt(i + 2));
+    }
+
+    /**
+     * A growable, sorted array of task ids.
+     */
+    private static final class Posting {
+        static final int MIN_COMPACT = 16;
+
+        private long[] ids = new long[4];
+        private int size;
+        private int stale;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                //Out-of-order insert, e.g. a deleted task being restored
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) return;
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int pos, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        /**
+         * Drops the ids of tasks that no longer exist.
+         */
+        void compact(LongPredicate isLive) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (isLive.test(ids[i])) ids[kept++] = ids[i];
+            }
+            size = kept;
+            stale = 0;
+        }
+    }
+}
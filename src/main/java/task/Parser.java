@@ -1,177 +1,651 @@
 package task;
 import exception.*;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Month;
+import java.time.Year;
 
 /**
- * The {@code Parser} class provides utility methods to parse user input
- * into {@link Task} objects or specific command arguments.
+ * The {@code Parser} class turns the commands typed by the user into {@link Command} objects.
  * <p>
- * It supports parsing commands for creating {@link Todo}, {@link Deadline},
- * and {@link Event} tasks, as well as finding keywords in the task list.
- * Invalid or malformed commands result in an {@link InvalidCommandException}.
+ * A command is read in a single pass from left to right without regular expressions: its first word
+ * decides what follows, and the rest is read word by word into a typed command, with the task built,
+ * indexes converted and dates checked digit by digit rather than through a {@code DateTimeFormatter}.
+ * Invalid or malformed commands result in an {@link InvalidCommandException} that names the position
+ * in the input where the problem is.
+ * </p>
+ * <p>
+ * Options such as {@code /by}, {@code /from} and {@code /to} only count as whole words, and the last
+ * ones win, so a description may contain them too: {@code event go /to school /from ... /to ...}.
  * </p>
  */
 public class Parser {
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String UNKNOWN_COMMAND = "Unknown command. Try: list, todo, deadline, event, mark, unmark, "
+            + "delete, find, due, overdue, on, conflicts, free, archive, import, export, undo, redo, begin, stats, bye.";
+    private static final String DUE_USAGE = "Please enter a range: due <yyyy-MM-dd> <yyyy-MM-dd>";
+    private static final String CONFLICTS_USAGE = "Please enter a range: conflicts <yyyy-MM-dd> <yyyy-MM-dd>, "
+            + "or just conflicts";
+    private static final String FREE_USAGE = "Please enter a day and a duration: free <yyyy-MM-dd> <duration>, "
+            + "e.g. free 2025-10-12 1h30m";
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm";
+    /** The shape of a date, {@code d} standing for a digit. */
+    private static final String DATE_SHAPE = "dddd-dd-dd";
+    private static final String TIME_SHAPE = "dddd-dd-dd dd:dd";
 
-    /**
-     * Determines whether a user input string represents a valid add command.
-     * <p>
-     * A command is considered an "add" command if it starts with
-     * {@code todo}, {@code deadline}, or {@code event}.
-     * </p>
-     *
-     * @param input the raw user input string
-     * @return {@code true} if the input starts with an add command keyword; {@code false} otherwise
-     */
-    public static boolean isAddCommand(String input) {
-        if (input == null) return false;
-        String s = input.trim();
-        return s.startsWith("todo") || s.startsWith("deadline") || s.startsWith("event");
+    private final String input;
+    private int pos;
+    private int tokenStart;
+
+    private Parser(String input) {
+        this.input = input;
     }
 
     /**
-     * Parses a user input string and constructs the corresponding {@link Task} object.
+     * Parses one command.
      * <p>
      * Supports the following formats:
      * <ul>
+     *     <li>{@code list}, {@code list --page <N> [--size <K>]} or {@code list --after <id> [--size <K>]}</li>
+     *     <li>{@code mark <index>}, {@code unmark <index>} and {@code delete <index>}</li>
      *     <li>{@code todo <description>}</li>
      *     <li>{@code deadline <description> /by <yyyy-MM-dd HH:mm>}</li>
      *     <li>{@code event <description> /from <yyyy-MM-dd HH:mm> /to <yyyy-MM-dd HH:mm>}</li>
+     *     <li>{@code find <keyword or query>}, see {@link Query}</li>
+     *     <li>{@code due <yyyy-MM-dd> <yyyy-MM-dd>} and {@code on <yyyy-MM-dd>}</li>
+     *     <li>{@code conflicts [<yyyy-MM-dd> <yyyy-MM-dd>]} and {@code free <yyyy-MM-dd> <duration>}</li>
+     *     <li>{@code import <file>} and {@code export [--replace] <file>}</li>
+     *     <li>{@code overdue}, {@code undo}, {@code redo}, {@code begin}, {@code stats} and {@code bye}</li>
      * </ul>
      * </p>
      *
      * @param input the full user command string
+     * @return the command
+     * @throws InvalidCommandException if the command is unknown or its arguments are missing or invalid
+     */
+    public static Command parse(String input) {
+        if (input == null) {
+            throw new InvalidCommandException("Please enter a valid command!");
+        }
+        return new Parser(input.trim()).command();
+    }
+
+    /**
+     * Parses a {@code todo}, {@code deadline} or {@code event} command into the task it adds.
+     *
+     * @param input the full user command string
      * @return a {@link Task} instance of type {@link Todo}, {@link Deadline}, or {@link Event}
      * @throws InvalidCommandException if the command format is invalid or unsupported
      */
     public static Task parseAddCommand(String input) {
-        if (input == null || input.trim().isEmpty()) {
+        Command c = parse(input);
+        if (c.kind != Command.Kind.ADD) {
+            throw new InvalidCommandException("Unknown command! Try: todo, deadline, event!");
+        }
+        return c.task;
+    }
+
+    /**
+     * Extracts the keyword, or query, from a {@code find} command.
+     *
+     * @param input the full user command string
+     * @return the keyword following the {@code find} command
+     * @throws InvalidCommandException if the keyword is missing or empty
+     */
+    public static String parseFindCommand(String input) {
+        Command c = parse(input);
+        if (c.kind != Command.Kind.FIND) {
+            throw new InvalidCommandException("Please enter a valid keyword!");
+        }
+        return c.keyword;
+    }
+
+    private Command command() {
+        String word = nextToken() ? token() : "";
+        switch (word) {
+        case "":
             throw new InvalidCommandException("Please enter a valid command!");
+        case "list":
+            return Command.list(atEnd() ? null : listPage());
+        case "mark":
+            return Command.at(Command.Kind.MARK, index());
+        case "unmark":
+            return Command.at(Command.Kind.UNMARK, index());
+        case "delete":
+            return Command.at(Command.Kind.DELETE, index());
+        case "find":
+            return find();
+        case "archive":
+            return archive();
+        case "import":
+            return Command.file(Command.Kind.IMPORT, file(word));
+        case "export":
+            return export();
+        case "due":
+            return range(Command.Kind.DUE, DUE_USAGE);
+        case "on":
+            return on();
+        case "conflicts":
+            return atEnd() ? Command.between(Command.Kind.CONFLICTS, null, null)
+                    : range(Command.Kind.CONFLICTS, CONFLICTS_USAGE);
+        case "free":
+            return free();
+        case "todo":
+            return Command.add(todo());
+        case "deadline":
+            return Command.add(deadline());
+        case "event":
+            return Command.add(event());
+        case "overdue":
+            return noArguments(Command.Kind.OVERDUE, word);
+        case "undo":
+            return noArguments(Command.Kind.UNDO, word);
+        case "redo":
+            return noArguments(Command.Kind.REDO, word);
+        case "begin":
+            return noArguments(Command.Kind.BEGIN, word);
+        case "stats":
+            return noArguments(Command.Kind.STATS, word);
+        case "bye":
+            return noArguments(Command.Kind.BYE, word);
+        default:
+            throw new InvalidCommandException(UNKNOWN_COMMAND);
         }
+    }
 
-        String s = input.trim();
+    private Command noArguments(Command.Kind kind, String word) {
+        expectEnd("'" + word + "'");
+        return Command.of(kind);
+    }
 
-        if (s.startsWith("todo")) {
-            return parseTodo(s);
-        } else if (s.startsWith("deadline")) {
-            return parseDeadline(s);
-        } else if (s.startsWith("event")) {
-            return parseEvent(s);
-        } else {
-            throw new InvalidCommandException("Unknown command! Try: todo, deadline, event!");
+    /**
+     * Reads the task index of {@code mark}, {@code unmark} or {@code delete}.
+     */
+    private int index() {
+        if (!nextToken()) {
+            throw new InvalidCommandException("Command lacks task index!");
+        }
+        int value = 0;
+        for (int i = tokenStart; i < pos; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new InvalidCommandException("Task index must be a positive integer, not '" + token()
+                        + "' at position " + (tokenStart + 1) + "!");
+            }
+            value = value * 10 + digit;
         }
+        expectEnd("the task index");
+        return value;
     }
 
     /**
-     * Parses a {@code todo} command and constructs a {@link Todo} task.
-     *
-     * @param s the user input starting with {@code todo}
-     * @return a new {@link Todo} task
-     * @throws InvalidCommandException if the description is missing or empty
+     * Reads {@code find <keyword or query>} or {@code find --archived <keyword or query>}.
      */
-    private static Task parseTodo(String s) {
-        String desc = s.substring("todo".length()).trim();
-        if (desc.isEmpty()) {
+    private Command find() {
+        int start = pos;
+        if (nextToken() && tokenIs("--archived")) {
+            return Command.find(Command.Kind.FIND_ARCHIVED, keyword());
+        }
+        pos = start;
+        return Command.find(Command.Kind.FIND, keyword());
+    }
+
+    /**
+     * Reads {@code export <file>} or {@code export --replace <file>}.
+     */
+    private Command export() {
+        int start = pos;
+        if (nextToken() && tokenIs("--replace")) {
+            return Command.file(Command.Kind.EXPORT_REPLACE, file("export --replace"));
+        }
+        pos = start;
+        return Command.file(Command.Kind.EXPORT, file("export"));
+    }
+
+    /**
+     * Reads {@code archive} or {@code archive --older-than <days>}. The age becomes the day
+     * that archived deadlines and events must have ended before.
+     */
+    private Command archive() {
+        if (!nextToken()) {
+            return Command.between(Command.Kind.ARCHIVE, null, null);
+        }
+        if (!tokenIs("--older-than")) {
+            throw new InvalidCommandException("Unknown option '" + token() + "' at position " + (tokenStart + 1)
+                    + ". Try: archive, or archive --older-than <days>.");
+        }
+        if (!nextToken()) {
+            throw new InvalidCommandException("Please give a value after '--older-than'!");
+        }
+        int days = parseNumber("--older-than", token(), 0);
+        expectEnd("the number of days");
+        return Command.between(Command.Kind.ARCHIVE, null, LocalDate.now().minusDays(days));
+    }
+
+    private String keyword() {
+        skipSpaces();
+        if (pos == input.length()) {
+            throw new InvalidCommandException("Please enter a keyword after 'find'!");
+        }
+        return input.substring(pos);
+    }
+
+    /**
+     * Reads the file of an {@code import} or {@code export} command, which runs to the end of the input.
+     */
+    private String file(String word) {
+        skipSpaces();
+        if (pos == input.length()) {
+            throw new InvalidCommandException("Please enter a file after '" + word + "', e.g. " + word + " tasks.csv");
+        }
+        return input.substring(pos);
+    }
+
+    /**
+     * Reads the range of a {@code due} or {@code conflicts} command: {@code <yyyy-MM-dd> <yyyy-MM-dd>}.
+     */
+    private Command range(Command.Kind kind, String usage) {
+        if (!nextToken()) throw new InvalidCommandException(usage);
+        int fromStart = tokenStart;
+        int fromEnd = pos;
+        if (!nextToken()) throw new InvalidCommandException(usage);
+        int toStart = tokenStart;
+        int toEnd = pos;
+        if (!atEnd()) throw new InvalidCommandException(usage);
+
+        LocalDate from = date(fromStart, fromEnd);
+        LocalDate to = date(toStart, toEnd);
+        if (to.isBefore(from)) {
+            throw new InvalidCommandException("The end date must not be before the start date!");
+        }
+        return Command.between(kind, from, to);
+    }
+
+    /**
+     * Reads the day of an {@code on} command: {@code on <yyyy-MM-dd>}.
+     */
+    private Command on() {
+        if (!nextToken()) {
+            throw new InvalidCommandException("Please enter a date: on <yyyy-MM-dd>");
+        }
+        int start = tokenStart;
+        int end = pos;
+        expectEnd("the date");
+        LocalDate day = date(start, end);
+        return Command.between(Command.Kind.ON, day, day);
+    }
+
+    /**
+     * Reads a {@code free} command: {@code free <yyyy-MM-dd> <duration>}.
+     */
+    private Command free() {
+        if (!nextToken()) throw new InvalidCommandException(FREE_USAGE);
+        int dayStart = tokenStart;
+        int dayEnd = pos;
+        if (!nextToken()) throw new InvalidCommandException(FREE_USAGE);
+        int lengthStart = tokenStart;
+        int lengthEnd = pos;
+        expectEnd("the duration");
+        return Command.free(date(dayStart, dayEnd), duration(lengthStart, lengthEnd));
+    }
+
+    /**
+     * Reads a duration such as {@code 45m}, {@code 2h} or {@code 1h30m} from {@code input[start, end)}.
+     * It must be longer than nothing and at most a day.
+     */
+    private Duration duration(int start, int end) {
+        int i = start;
+        long minutes = 0;
+        for (char unit : new char[] {'h', 'm'}) {
+            int digitsStart = i;
+            long n = 0;
+            while (i < end && isDigit(input.charAt(i))) {
+                n = Math.min(n * 10 + (input.charAt(i++) - '0'), Integer.MAX_VALUE);
+            }
+            if (i > digitsStart && i < end && input.charAt(i) == unit) {
+                minutes += unit == 'h' ? n * 60 : n;
+                i++;
+            } else {
+                i = digitsStart;
+            }
+        }
+        if (i == start || i < end) {
+            throw new InvalidCommandException("Invalid duration '" + input.substring(start, end) + "' at position "
+                    + (i + 1) + ". Please use e.g. 45m, 2h or 1h30m!");
+        }
+        if (minutes == 0 || minutes > 24 * 60) {
+            throw new InvalidCommandException("Invalid duration '" + input.substring(start, end) + "' at position "
+                    + (start + 1) + ": it must be longer than 0m and at most 24h.");
+        }
+        return Duration.ofMinutes(minutes);
+    }
+
+    /**
+     * Reads a {@code todo} command: {@code todo <description>}.
+     */
+    private Task todo() {
+        skipSpaces();
+        if (pos == input.length()) {
             throw new InvalidCommandException("Please enter task description after todo!");
         }
-        return new Todo(desc);
+        return new Todo(input.substring(pos));
     }
 
     /**
-     * Parses a {@code deadline} command and constructs a {@link Deadline} task.
-     * <p>
-     * Expected format:
-     * {@code deadline <description> /by <yyyy-MM-dd HH:mm>}
-     * </p>
-     *
-     * @param s the user input starting with {@code deadline}
-     * @return a new {@link Deadline} task with its due date
-     * @throws InvalidCommandException if description or {@code /by} clause is missing or invalid
+     * Reads a {@code deadline} command: {@code deadline <description> /by <yyyy-MM-dd HH:mm> [/every <rule>]}.
+     * The description ends at the last {@code /by}; a repeat rule follows the first {@code /every} after it.
      */
-    private static Task parseDeadline(String s) {
-        String rest = s.substring("deadline".length()).trim();
-        if (rest.isEmpty()) {
+    private Task deadline() {
+        skipSpaces();
+        int descStart = pos;
+        if (descStart == input.length()) {
             throw new InvalidCommandException("Deadline needs a description and '/by <time>' !");
         }
-
-        if (!rest.contains("/by")) {
+        int by = -1;
+        int every = -1;
+        while (nextToken()) {
+            if (tokenIs("/by")) {
+                by = tokenStart;
+                every = -1;
+            } else if (tokenIs("/every") && by >= 0 && every < 0) {
+                every = tokenStart;
+            }
+        }
+        if (by < 0) {
             throw new InvalidCommandException("Deadline needs '/by <time>' !");
         }
 
-        String[] parts = rest.split("/by", 2);
-        if (parts.length < 2 || parts[1].trim().isEmpty()) {
+        int valueStart = skipSpaces(by + "/by".length());
+        int valueEnd = every < 0 ? input.length() : trimEnd(valueStart, every);
+        if (valueStart >= valueEnd) {
             throw new InvalidCommandException("Please enter a value after '/by' !");
         }
-
-        String desc = parts[0].trim();
-        LocalDateTime by = LocalDateTime.parse(parts[1].trim(), formatter);
-
+        LocalDateTime time = dateTime(valueStart, valueEnd);
+        Recurrence rule = every < 0 ? null : recurrence(every);
+        String desc = input.substring(descStart, by).trim();
         if (desc.isEmpty()) {
             throw new InvalidCommandException("Deadline description cannot be empty.");
         }
-
-        return new Deadline(desc, by);
+        return new Deadline(desc, time, rule);
     }
 
     /**
-     * Parses an {@code event} command and constructs an {@link Event} task.
-     * <p>
-     * Expected format:
-     * {@code event <description> /from <yyyy-MM-dd HH:mm> /to <yyyy-MM-dd HH:mm>}
-     * </p>
-     *
-     * @param s the user input starting with {@code event}
-     * @return a new {@link Event} task with start and end times
-     * @throws InvalidCommandException if description, {@code /from}, or {@code /to} parts are missing or invalid
+     * Reads an {@code event} command:
+     * {@code event <description> /from <yyyy-MM-dd HH:mm> /to <yyyy-MM-dd HH:mm> [/every <rule>]}.
+     * The end time follows the last {@code /to}, the start time the last {@code /from} before it,
+     * and a repeat rule the first {@code /every} after the end time.
      */
-    private static Task parseEvent(String s) {
-        String rest = s.substring("event".length()).trim();
-        if (rest.isEmpty()) {
+    private Task event() {
+        skipSpaces();
+        int descStart = pos;
+        if (descStart == input.length()) {
             throw new InvalidCommandException("Event needs a description and '/from ... /to ...' !");
         }
-
-        if (!rest.contains("/from") || !rest.contains("/to")) {
+        int lastFrom = -1;
+        int from = -1;
+        int to = -1;
+        int every = -1;
+        while (nextToken()) {
+            if (tokenIs("/from")) {
+                lastFrom = tokenStart;
+            } else if (tokenIs("/to")) {
+                to = tokenStart;
+                from = lastFrom;
+                every = -1;
+            } else if (tokenIs("/every") && to >= 0 && every < 0) {
+                every = tokenStart;
+            }
+        }
+        if (from < 0 || to < 0) {
             throw new InvalidCommandException("Event needs '/from ... /to ...' !");
         }
 
-        String[] parts = rest.split("/from|/to");
-        String desc = parts[0].replaceFirst("event", "").trim();
-        LocalDateTime from = LocalDateTime.parse(parts[1].trim(), formatter);
-        LocalDateTime to = LocalDateTime.parse(parts[2].trim(), formatter);
-
+        int fromStart = skipSpaces(from + "/from".length());
+        if (fromStart == to) {
+            throw new InvalidCommandException("Please enter a value after '/from' !");
+        }
+        int toStart = skipSpaces(to + "/to".length());
+        int toEnd = every < 0 ? input.length() : trimEnd(toStart, every);
+        if (toStart >= toEnd) {
+            throw new InvalidCommandException("Please enter a value after '/to' !");
+        }
+        LocalDateTime start = dateTime(fromStart, trimEnd(fromStart, to));
+        LocalDateTime end = dateTime(toStart, toEnd);
+        Recurrence rule = every < 0 ? null : recurrence(every);
+        String desc = input.substring(descStart, from).trim();
         if (desc.isEmpty()) {
             throw new InvalidCommandException("Please enter a description!");
         }
+        if (end.isBefore(start)) {
+            throw new InvalidCommandException("The event cannot end before it starts, see position " + (toStart + 1) + "!");
+        }
+        return new Event(desc, start, end, rule);
+    }
 
-        return new Event(desc, from, to);
+    /**
+     * Reads the repeat rule after the {@code /every} at {@code every}, which runs to the end of the input.
+     */
+    private Recurrence recurrence(int every) {
+        int ruleStart = skipSpaces(every + "/every".length());
+        if (ruleStart == input.length()) {
+            throw new InvalidCommandException("Please enter a rule after '/every' !");
+        }
+        try {
+            return Recurrence.parse(input.substring(ruleStart));
+        } catch (InvalidCommandException e) {
+            throw new InvalidCommandException("Invalid repeat rule at position " + (ruleStart + 1) + ": " + e.getMessage());
+        }
     }
 
     /**
-     * Extracts the keyword from a {@code find} command for searching tasks.
-     * <p>
-     * Expected format:
-     * {@code find <keyword>}
-     * </p>
+     * One page of the task list requested by a {@code list} command with options.
+     * Either {@link #page} is set (from 1) or {@link #afterId} is (from 0), never both.
+     */
+    public static final class ListPage {
+        /** The default number of tasks per page. */
+        public static final int DEFAULT_SIZE = 20;
+
+        public final int page;
+        public final int size;
+        public final long afterId;
+
+        private ListPage(int page, int size, long afterId) {
+            this.page = page;
+            this.size = size;
+            this.afterId = afterId;
+        }
+
+        /** Whether the page continues after a task id rather than being numbered. */
+        public boolean isCursor() {
+            return afterId >= 0;
+        }
+    }
+
+    /**
+     * Reads the page options of a {@code list} command:
+     * {@code list --page <N> [--size <K>]} or {@code list --after <id> [--size <K>]}.
+     * Only {@code --size} means page 1.
+     */
+    private ListPage listPage() {
+        int page = -1;
+        int size = -1;
+        long afterId = -1;
+        while (nextToken()) {
+            String option = token();
+            int optionStart = tokenStart;
+            if (!nextToken()) {
+                throw new InvalidCommandException("Please give a value after '" + option + "'!");
+            }
+            String value = token();
+            switch (option) {
+            case "--page":
+                if (page >= 0) throw new InvalidCommandException("--page is given twice!");
+                page = parseNumber("--page", value, 1);
+                break;
+            case "--size":
+                if (size >= 0) throw new InvalidCommandException("--size is given twice!");
+                size = parseNumber("--size", value, 1);
+                break;
+            case "--after":
+                if (afterId >= 0) throw new InvalidCommandException("--after is given twice!");
+                afterId = parseNumber("--after", value, 0);
+                break;
+            default:
+                throw new InvalidCommandException("Unknown option '" + option + "' at position " + (optionStart + 1)
+                        + ". Try: list --page <N> --size <K>, or list --after <id>.");
+            }
+        }
+        if (page >= 0 && afterId >= 0) {
+            throw new InvalidCommandException("Use either --page or --after, not both!");
+        }
+        if (afterId < 0 && page < 0) {
+            page = 1;
+        }
+        return new ListPage(afterId >= 0 ? 0 : page, size < 0 ? ListPage.DEFAULT_SIZE : size, afterId);
+    }
+
+    private static int parseNumber(String option, String value, int min) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= min) return n;
+        } catch (NumberFormatException e) {
+            //Reported below
+        }
+        throw new InvalidCommandException(option + " must be a number of at least " + min + "!");
+    }
+
+    /**
+     * Reads {@code yyyy-MM-dd HH:mm} from {@code input[start, end)}.
+     */
+    private LocalDateTime dateTime(int start, int end) {
+        checkShape(start, end, TIME_SHAPE, "time", TIME_FORMAT);
+        LocalDate date = yearMonthDay(start, end, "time");
+        int hour = digits(start + 11, 2);
+        if (hour > 23) {
+            throw outOfRange(start, end, start + 11, "time", "there is no hour " + hour);
+        }
+        int minute = digits(start + 14, 2);
+        if (minute > 59) {
+            throw outOfRange(start, end, start + 14, "time", "there is no minute " + minute);
+        }
+        return date.atTime(hour, minute);
+    }
+
+    /**
+     * Reads {@code yyyy-MM-dd} from {@code input[start, end)}.
+     */
+    private LocalDate date(int start, int end) {
+        checkShape(start, end, DATE_SHAPE, "date", DATE_FORMAT);
+        return yearMonthDay(start, end, "date");
+    }
+
+    /**
+     * Converts the {@code yyyy-MM-dd} at {@code start}, whose shape has been checked, into a date.
+     */
+    private LocalDate yearMonthDay(int start, int end, String what) {
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        if (month < 1 || month > 12) {
+            throw outOfRange(start, end, start + 5, what, "there is no month " + month);
+        }
+        int day = digits(start + 8, 2);
+        if (day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            throw outOfRange(start, end, start + 8, what,
+                    input.substring(start, start + 7) + " has no day " + day);
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Checks that {@code input[start, end)} has the given shape, where {@code d} stands for a digit
+     * and anything else for itself.
+     */
+    private void checkShape(int start, int end, String shape, String what, String format) {
+        for (int i = 0; i < shape.length(); i++) {
+            int at = start + i;
+            char expected = shape.charAt(i);
+            if (at >= end || (expected == 'd' ? !isDigit(input.charAt(at)) : input.charAt(at) != expected)) {
+                throw badShape(start, end, at, what, format);
+            }
+        }
+        if (end > start + shape.length()) {
+            throw badShape(start, end, start + shape.length(), what, format);
+        }
+    }
+
+    private InvalidCommandException badShape(int start, int end, int at, String what, String format) {
+        return new InvalidCommandException("Invalid " + what + " '" + input.substring(start, end) + "' at position "
+                + (at + 1) + ". Please use " + format + "!");
+    }
+
+    private InvalidCommandException outOfRange(int start, int end, int at, String what, String reason) {
+        return new InvalidCommandException("Invalid " + what + " '" + input.substring(start, end) + "' at position "
+                + (at + 1) + ": " + reason + ".");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (input.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Moves past the next word, leaving its start in {@code tokenStart}.
      *
-     * @param input the full user command string
-     * @return the keyword following the {@code find} command
-     * @throws InvalidCommandException if the keyword is missing or empty
+     * @return {@code false} if there are no more words
      */
-    public static String parseFindCommand(String input) {
-        if (input == null || input.trim().isEmpty()) {
-            throw new InvalidCommandException("Please enter a valid keyword!");
+    private boolean nextToken() {
+        skipSpaces();
+        tokenStart = pos;
+        while (pos < input.length() && !Character.isWhitespace(input.charAt(pos))) {
+            pos++;
         }
+        return pos > tokenStart;
+    }
 
-        String keyword = input.substring("find".length()).trim();
-        if (keyword.isEmpty()) {
-            throw new InvalidCommandException("Please enter a keyword after 'find'!");
+    private boolean tokenIs(String word) {
+        return pos - tokenStart == word.length() && input.startsWith(word, tokenStart);
+    }
+
+    private String token() {
+        return input.substring(tokenStart, pos);
+    }
+
+    private boolean atEnd() {
+        skipSpaces();
+        return pos == input.length();
+    }
+
+    private void expectEnd(String after) {
+        if (nextToken()) {
+            throw new InvalidCommandException("Unexpected '" + token() + "' at position " + (tokenStart + 1)
+                    + " after " + after + "!");
         }
+    }
 
-        return keyword;
+    private void skipSpaces() {
+        pos = skipSpaces(pos);
     }
 
+    private int skipSpaces(int from) {
+        while (from < input.length() && Character.isWhitespace(input.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
 
+    private int trimEnd(int start, int end) {
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
 }
@@ -0,0 +1,635 @@
+package task;
+
+import exception.InvalidCommandException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compiled search query for the {@code find} command.
+ * <p>
+ * Queries combine terms with {@code AND}, {@code OR}, {@code NOT} and parentheses.
+ * Terms placed next to each other are joined with {@code AND}. The supported terms are:
+ * <ul>
+ *     <li>{@code book} or {@code "read book"} - the description contains the text, ignoring case</li>
+ *     <li>{@code type:T}, {@code type:D}, {@code type:E} - the task is a todo, deadline or event</li>
+ *     <li>{@code done:1}, {@code done:0} - the task is or is not done</li>
+ *     <li>{@code by<2025-12-01} - a deadline due before a date; also {@code <=}, {@code >}, {@code >=}
+ *         and {@code =}, with dates as {@code yyyy-MM-dd} or {@code yyyy-MM-ddTHH:mm}</li>
+ *     <li>{@code from>=...}, {@code to<...} - the same comparisons on event start and end times</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Parsing turns the query into a plan. Terms the {@link KeywordIndex} or {@link DateIndex}
+ * can answer produce exact sets of task ids; an {@code AND} intersects those sets and then
+ * checks the remaining terms only on the survivors, cheapest first. Only if no term can
+ * use an index is the whole list scanned.
+ * </p>
+ */
+public final class Query {
+    private static final String[] FIELDS = {"type", "done", "by", "from", "to"};
+
+    private final Node root;
+
+    private Query(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns whether the text uses any query syntax: an {@code AND}, {@code OR} or {@code NOT}, or a field term
+     * such as {@code done:0}. Anything else, quotes and parentheses included, is searched for as one phrase.
+     * The words are scanned in place, without splitting the text.
+     *
+     * @param text the text after {@code find}
+     * @return {@code true} if the text should be parsed as a query
+     */
+    public static boolean isQuery(String text) {
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < text.length() && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (isWord(text, start, i, "AND") || isWord(text, start, i, "OR") || isWord(text, start, i, "NOT")) {
+                return true;
+            }
+            //A field term may open a group, as in (done:0 OR type:T)
+            while (start < i && text.charAt(start) == '(') {
+                start++;
+            }
+            if (fieldEnd(text, start, i) >= 0) return true;
+        }
+        return false;
+    }
+
+    private static boolean isWord(String text, int start, int end, String word) {
+        return end - start == word.length() && text.startsWith(word, start);
+    }
+
+    /**
+     * Returns where the field name of a field term in {@code text[start, end)} ends, or {@code -1} if the
+     * word is not one: a field name, then a comparison, then at least one character of value.
+     */
+    private static int fieldEnd(String text, int start, int end) {
+        for (String field : FIELDS) {
+            if (!text.startsWith(field, start)) continue;
+            int at = start + field.length();
+            int op = operatorLength(text, at, end);
+            if (op > 0 && at + op < end) return at;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the length of the comparison at {@code at}: 2 for {@code <=} and {@code >=}, 1 for {@code :},
+     * {@code <}, {@code >} and {@code =}, or 0 if there is none.
+     */
+    private static int operatorLength(String text, int at, int end) {
+        if (at >= end) return 0;
+        char c = text.charAt(at);
+        if ((c == '<' || c == '>') && at + 1 < end && text.charAt(at + 1) == '=') return 2;
+        return c == ':' || c == '<' || c == '>' || c == '=' ? 1 : 0;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param text the query text
+     * @return the compiled query
+     * @throws InvalidCommandException if the query is malformed, reporting the position of the problem
+     */
+    public static Query parse(String text) {
+        QueryParser parser = new QueryParser(text);
+        Node root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw parser.error("Unexpected '" + parser.peek().text + "'");
+        }
+        return new Query(root);
+    }
+
+    /**
+     * Returns a query matching the tasks whose description contains the text as one phrase, ignoring case,
+     * as {@code find} does for text without query syntax.
+     *
+     * @param text the phrase
+     * @return the query
+     */
+    public static Query phrase(String text) {
+        return new Query(new Keyword(text));
+    }
+
+    /**
+     * Returns whether one task matches the query, checking it directly rather than through any index.
+     * Used for tasks that are not in a {@link TaskList}, such as archived ones read from disk.
+     *
+     * @param t the task
+     * @return {@code true} if the task matches
+     */
+    public boolean test(Task t) {
+        return root.test(t);
+    }
+
+    /**
+     * Evaluates the query against a task list.
+     *
+     * @return the matching 0-based positions, in list order
+     */
+    int[] evaluate(TaskList tasks) {
+        long[] ids = root.exact(tasks);
+        if (ids != null) {
+            int[] positions = new int[ids.length];
+            int count = 0;
+            for (long id : ids) {
+                int pos = tasks.positionOf(id);
+                if (pos >= 0) positions[count++] = pos;
+            }
+            return Arrays.copyOf(positions, count);
+        }
+
+        int[] positions = new int[tasks.size()];
+        int count = 0;
+        int i = 0;
+        for (Task t : tasks) {
+            if (root.test(t)) positions[count++] = i;
+            i++;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * A node of the query plan.
+     */
+    private abstract static class Node {
+        /** Whether the task matches this node. */
+        abstract boolean test(Task t);
+
+        /** The relative cost of {@link #test(Task)}, used to check cheap terms first. */
+        abstract int cost();
+
+        /**
+         * Returns the exact ids of the matching tasks in ascending order using the indexes,
+         * or {@code null} if this node cannot be answered from an index.
+         */
+        long[] exact(TaskList tasks) {
+            return null;
+        }
+    }
+
+    private static final class And extends Node {
+        private final List<Node> children;
+
+        And(List<Node> children) {
+            children.sort(Comparator.comparingInt(Node::cost));
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Task t) {
+            return matchesAll(children, t);
+        }
+
+        @Override
+        int cost() {
+            return children.stream().mapToInt(Node::cost).sum();
+        }
+
+        @Override
+        long[] exact(TaskList tasks) {
+            long[] ids = null;
+            List<Node> residual = new ArrayList<>();
+            for (Node n : children) {
+                long[] found = n.exact(tasks);
+                if (found == null) {
+                    residual.add(n);
+                } else {
+                    ids = ids == null ? found : intersect(ids, found);
+                }
+            }
+            if (ids == null || residual.isEmpty()) return ids;
+
+            //residual keeps the cost order of children, so the cheapest checks still run first
+            int kept = 0;
+            for (long id : ids) {
+                Task t = tasks.byId(id);
+                if (t != null && matchesAll(residual, t)) ids[kept++] = id;
+            }
+            return Arrays.copyOf(ids, kept);
+        }
+
+        private static boolean matchesAll(List<Node> nodes, Task t) {
+            for (Node n : nodes) {
+                if (!n.test(t)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends Node {
+        private final List<Node> children;
+
+        Or(List<Node> children) {
+            children.sort(Comparator.comparingInt(Node::cost));
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Task t) {
+            for (Node n : children) {
+                if (n.test(t)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        int cost() {
+            return children.stream().mapToInt(Node::cost).sum();
+        }
+
+        @Override
+        long[] exact(TaskList tasks) {
+            long[] ids = new long[0];
+            for (Node n : children) {
+                long[] found = n.exact(tasks);
+                if (found == null) return null;
+                ids = union(ids, found);
+            }
+            return ids;
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node child;
+
+        Not(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean test(Task t) {
+            return !child.test(t);
+        }
+
+        @Override
+        int cost() {
+            return child.cost();
+        }
+    }
+
+    private static final class Keyword extends Node {
+        private final String keyword;
+
+        Keyword(String keyword) {
+            this.keyword = keyword;
+        }
+
+        @Override
+        boolean test(Task t) {
+            return KeywordIndex.containsIgnoreCase(t.description, keyword);
+        }
+
+        @Override
+        int cost() {
+            return 4;
+        }
+
+        @Override
+        long[] exact(TaskList tasks) {
+            return tasks.keywordIds(keyword);
+        }
+    }
+
+    private static final class TypeIs extends Node {
+        private final Class<? extends Task> type;
+
+        TypeIs(Class<? extends Task> type) {
+            this.type = type;
+        }
+
+        @Override
+        boolean test(Task t) {
+            return type.isInstance(t);
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+    }
+
+    private static final class DoneIs extends Node {
+        private final boolean isDone;
+
+        DoneIs(boolean isDone) {
+            this.isDone = isDone;
+        }
+
+        @Override
+        boolean test(Task t) {
+            return t.isDone() == isDone;
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+    }
+
+    /**
+     * Compares a date of the task: {@code by} of a deadline, or {@code from}/{@code to} of an event.
+     * Tasks without that date never match.
+     */
+    private static final class DateCompare extends Node {
+        private final String field;
+        private final String op;
+        private final LocalDateTime value;
+
+        DateCompare(String field, String op, LocalDateTime value) {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(Task t) {
+            LocalDateTime date;
+            if (field.equals("by") && t instanceof Deadline) {
+                date = ((Deadline) t).getBy();
+            } else if (field.equals("from") && t instanceof Event) {
+                date = ((Event) t).getFrom();
+            } else if (field.equals("to") && t instanceof Event) {
+                date = ((Event) t).getTo();
+            } else {
+                return false;
+            }
+            int c = date.compareTo(value);
+            switch (op) {
+            case "<":
+                return c < 0;
+            case "<=":
+                return c <= 0;
+            case ">":
+                return c > 0;
+            case ">=":
+                return c >= 0;
+            default:
+                return c == 0;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 2;
+        }
+
+        @Override
+        long[] exact(TaskList tasks) {
+            if (!field.equals("by")) return null;
+            LocalDateTime next = value.plusMinutes(1);
+            switch (op) {
+            case "<":
+                return tasks.deadlineIds(LocalDateTime.MIN, value);
+            case "<=":
+                return tasks.deadlineIds(LocalDateTime.MIN, next);
+            case ">":
+                return tasks.deadlineIds(next, LocalDateTime.MAX);
+            case ">=":
+                return tasks.deadlineIds(value, LocalDateTime.MAX);
+            default:
+                return tasks.deadlineIds(value, next);
+            }
+        }
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * A word, quoted phrase or parenthesis of the query, with its position for error messages.
+     */
+    private static final class Token {
+        final String text;
+        final int position;
+        final boolean isQuoted;
+
+        Token(String text, int position, boolean isQuoted) {
+            this.text = text;
+            this.position = position;
+            this.isQuoted = isQuoted;
+        }
+    }
+
+    /**
+     * A recursive-descent parser for the query grammar:
+     * <pre>
+     * or   := and ("OR" and)*
+     * and  := not ("AND"? not)*
+     * not  := "NOT" not | atom
+     * atom := "(" or ")" | field | word | "phrase"
+     * </pre>
+     */
+    private static final class QueryParser {
+        private final String text;
+        private final List<Token> tokens = new ArrayList<>();
+        private int next;
+
+        QueryParser(String text) {
+            this.text = text;
+            tokenize();
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(new Token(String.valueOf(c), i, false));
+                    i++;
+                } else if (c == '"') {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0) {
+                        throw new InvalidCommandException("Unclosed quote at position " + (i + 1) + " of the query!");
+                    }
+                    tokens.add(new Token(text.substring(i + 1, end), i, true));
+                    i = end + 1;
+                } else {
+                    int start = i;
+                    while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                            && text.charAt(i) != '(' && text.charAt(i) != ')' && text.charAt(i) != '"') {
+                        i++;
+                    }
+                    tokens.add(new Token(text.substring(start, i), start, false));
+                }
+            }
+        }
+
+        Token peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+
+        private boolean accept(String keyword) {
+            Token t = peek();
+            if (t != null && !t.isQuoted && t.text.equals(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        InvalidCommandException error(String message) {
+            Token t = peek();
+            int position = t == null ? text.length() : t.position;
+            return new InvalidCommandException(message + " at position " + (position + 1) + " of the query!");
+        }
+
+        Node parseOr() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (accept("OR")) {
+                children.add(parseAnd());
+            }
+            return children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        private Node parseAnd() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseNot());
+            while (true) {
+                if (accept("AND")) {
+                    children.add(parseNot());
+                    continue;
+                }
+                Token t = peek();
+                if (t == null || (!t.isQuoted && (t.text.equals("OR") || t.text.equals(")")))) break;
+                children.add(parseNot());
+            }
+            return children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        private Node parseNot() {
+            if (accept("NOT")) {
+                return new Not(parseNot());
+            }
+            return parseAtom();
+        }
+
+        private Node parseAtom() {
+            Token t = peek();
+            if (t == null) {
+                throw error("Missing search term");
+            }
+            if (t.isQuoted) {
+                next++;
+                return new Keyword(t.text);
+            }
+            if (t.text.equals("(")) {
+                next++;
+                Node inner = parseOr();
+                if (!accept(")")) {
+                    throw error("Missing ')'");
+                }
+                return inner;
+            }
+            if (t.text.equals(")") || t.text.equals("AND") || t.text.equals("OR")) {
+                throw error("Unexpected '" + t.text + "'");
+            }
+
+            int fieldEnd = fieldEnd(t.text, 0, t.text.length());
+            Node node;
+            if (fieldEnd < 0) {
+                node = new Keyword(t.text);
+            } else {
+                int valueStart = fieldEnd + operatorLength(t.text, fieldEnd, t.text.length());
+                node = parseField(t.text.substring(0, fieldEnd), t.text.substring(fieldEnd, valueStart),
+                        t.text.substring(valueStart));
+            }
+            next++;
+            return node;
+        }
+
+        private Node parseField(String field, String op, String value) {
+            switch (field) {
+            case "type":
+                requireColon(field, op);
+                switch (value.toUpperCase()) {
+                case "T":
+                    return new TypeIs(Todo.class);
+                case "D":
+                    return new TypeIs(Deadline.class);
+                case "E":
+                    return new TypeIs(Event.class);
+                default:
+                    throw error("type must be T, D or E");
+                }
+            case "done":
+                requireColon(field, op);
+                if (!value.equals("0") && !value.equals("1")) {
+                    throw error("done must be 0 or 1");
+                }
+                return new DoneIs(value.equals("1"));
+            default:
+                if (op.equals(":")) {
+                    op = "=";
+                }
+                return new DateCompare(field, op, parseDateTime(value));
+            }
+        }
+
+        private void requireColon(String field, String op) {
+            if (!op.equals(":")) {
+                throw error(field + " only supports ':'");
+            }
+        }
+
+        private LocalDateTime parseDateTime(String value) {
+            try {
+                return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+            } catch (DateTimeParseException e) {
+                throw error("Invalid date '" + value + "', use yyyy-MM-dd or yyyy-MM-ddTHH:mm");
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Counts live slots with a Fenwick (binary indexed) tree so that positions can be
+ * translated to slots and back in O(log n).
+ * <p>
+ * A {@link TaskList} does not move tasks between slots when one is deleted. Deleting a task
+ * only marks its slot as dead here, so removing from the front of a huge list no longer shifts
+ * the rest of it, while {@link #select(int)} still finds the slot shown at any 1-based
+ * position the user types. When the list compacts its slots, it builds a new index.
+ * </p>
+ */
+final class RankIndex {
+    private int[] tree;
+    private int slots;
+
+    /**
+     * Constructs an index over {@code liveSlots} slots that are all live, in O(n).
+     */
+    RankIndex(int liveSlots) {
+        tree = new int[Math.max(16, liveSlots + 1)];
+        slots = liveSlots;
+        for (int i = 1; i <= slots; i++) {
+            tree[i] += 1;
+            int parent = i + (i & -i);
+            if (parent <= slots) tree[parent] += tree[i];
+        }
+    }
+
+    /**
+     * Constructs an index over {@code slots} slots, of which those set in {@code live} are live, in O(n).
+     */
+    RankIndex(BitSet live, int slots) {
+        tree = new int[Math.max(16, slots + 1)];
+        this.slots = slots;
+        for (int i = 1; i <= slots; i++) {
+            if (live.get(i - 1)) tree[i] += 1;
+            int parent = i + (i & -i);
+            if (parent <= slots) tree[parent] += tree[i];
+        }
+    }
+
+    private RankIndex(int[] tree, int slots) {
+        this.tree = tree;
+        this.slots = slots;
+    }
+
+    /**
+     * Adds a new live slot after the last one.
+     */
+    void append() {
+        int i = ++slots;
+        if (i == tree.length) {
+            tree = Arrays.copyOf(tree, tree.length * 2);
+        }
+        //Node i covers slots (i - lowbit(i), i]: the new slot plus the live slots before it in that range
+        tree[i] = 1 + prefix(i - 1) - prefix(i - (i & -i));
+    }
+
+    /**
+     * Changes the live count of a slot by {@code delta} ({@code +1} to revive, {@code -1} to kill).
+     */
+    void add(int slot, int delta) {
+        for (int i = slot + 1; i <= slots; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of live slots before {@code slot}, i.e. its 0-based position if it is live.
+     */
+    int rank(int slot) {
+        return prefix(slot);
+    }
+
+    private int prefix(int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the slot of the live task at the given 0-based position.
+     * The position must be smaller than the number of live slots.
+     */
+    int select(int position) {
+        int pos = 0;
+        int remaining = position + 1;
+        for (int step = Integer.highestOneBit(slots); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= slots && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns an independent copy, e.g. for a frozen snapshot of the list.
+     */
+    RankIndex copy() {
+        return new RankIndex(Arrays.copyOf(tree, slots + 1), slots);
+    }
+}
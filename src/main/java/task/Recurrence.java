@@ -0,0 +1,298 @@
+package task;
+
+import exception.InvalidCommandException;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+
+/**
+ * The rule a recurring {@link Deadline} or {@link Event} repeats by, e.g. {@code every 2 weeks until 2026-06-30}.
+ * <p>
+ * A recurring task is stored once, with the date of its first occurrence and this rule. The k-th
+ * occurrence is computed from the first as {@code first + k * interval}, so occurrences are only
+ * worked out for the window a query asks about and nothing grows with how far ahead the schedule
+ * reaches. Monthly and yearly rules count from the first occurrence every time, so a task on the
+ * 31st falls on the last day of shorter months without drifting.
+ * </p>
+ */
+public final class Recurrence {
+    private static final String USAGE = "Try e.g. '/every week', '/every 2 days' or '/every month until 2026-06-30'.";
+
+    private final int interval;
+    private final ChronoUnit unit;
+    /** The last day an occurrence may fall on, or {@code null} if the rule never ends. */
+    private final LocalDate until;
+
+    private Recurrence(int interval, ChronoUnit unit, LocalDate until) {
+        this.interval = interval;
+        this.unit = unit;
+        this.until = until;
+    }
+
+    /**
+     * Returns a rule repeating every {@code interval} units, e.g. when reading it from another calendar format.
+     *
+     * @param interval how many units lie between occurrences, at least 1
+     * @param unit {@link ChronoUnit#DAYS}, {@link ChronoUnit#WEEKS}, {@link ChronoUnit#MONTHS} or {@link ChronoUnit#YEARS}
+     * @param until the last day an occurrence may fall on, or {@code null} if the rule never ends
+     * @return the rule
+     * @throws InvalidCommandException if the interval or unit is not supported
+     */
+    public static Recurrence of(int interval, ChronoUnit unit, LocalDate until) {
+        if (interval < 1) {
+            throw new InvalidCommandException("'" + interval + "' is not a valid interval! " + USAGE);
+        }
+        if (unit != ChronoUnit.DAYS && unit != ChronoUnit.WEEKS && unit != ChronoUnit.MONTHS && unit != ChronoUnit.YEARS) {
+            throw new InvalidCommandException("Cannot repeat every " + unit + "! " + USAGE);
+        }
+        return new Recurrence(interval, unit, until);
+    }
+
+    /**
+     * Parses a rule such as {@code week}, {@code 3 days} or {@code every month until 2026-06-30}.
+     * The leading {@code every} is optional.
+     * <p>
+     * Rules are read again for every repeating task whenever the save file is loaded, so the words are
+     * walked by hand and the date checked digit by digit, as {@link Parser} does for commands.
+     * </p>
+     *
+     * @param rule the rule text
+     * @return the parsed rule
+     * @throws InvalidCommandException if the rule is not understood
+     */
+    public static Recurrence parse(String rule) {
+        Words words = new Words(rule);
+        if (words.next() && words.is("every")) {
+            words.next();
+        }
+        if (words.isEmpty()) {
+            throw new InvalidCommandException("Please say how often it repeats! " + USAGE);
+        }
+
+        int interval = 1;
+        if (isDigit(rule.charAt(words.start))) {
+            interval = number(rule, words.start, words.end);
+            if (interval < 1) {
+                throw new InvalidCommandException("'" + words.text() + "' is not a valid interval! " + USAGE);
+            }
+            if (!words.next()) {
+                throw new InvalidCommandException("Please give a unit after " + interval + "! " + USAGE);
+            }
+        }
+        ChronoUnit unit = unitOf(words.text());
+
+        LocalDate until = null;
+        if (words.next() && words.is("until")) {
+            if (!words.next()) {
+                throw new InvalidCommandException("Please give a date after 'until'! " + USAGE);
+            }
+            until = date(rule, words.start, words.end);
+            if (until == null) {
+                throw new InvalidCommandException("Invalid date '" + words.text() + "' after 'until'. Please use yyyy-MM-dd!");
+            }
+            words.next();
+        }
+        if (!words.isEmpty()) {
+            throw new InvalidCommandException("Unexpected '" + words.text() + "' in the repeat rule! " + USAGE);
+        }
+        return new Recurrence(interval, unit, until);
+    }
+
+    /**
+     * Reads the digits of {@code s[start, end)} as a number, or returns {@code 0} if they are not all digits
+     * or overflow.
+     */
+    private static int number(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) return 0;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Reads {@code s[start, end)} as {@code yyyy-MM-dd}, or returns {@code null} if it is not a valid date.
+     */
+    private static LocalDate date(String s, int start, int end) {
+        if (end - start != 10 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-') return null;
+        int year = number(s, start, start + 4);
+        int month = number(s, start + 5, start + 7);
+        int day = number(s, start + 8, start + 10);
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) return null;
+        if (year == 0 && !s.startsWith("0000", start)) return null;
+        return LocalDate.of(year, month, day);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Walks the words of a rule, keeping the bounds of the current one instead of splitting the text.
+     */
+    private static final class Words {
+        private final String s;
+        private int start;
+        private int end;
+
+        Words(String s) {
+            this.s = s;
+        }
+
+        /**
+         * Moves to the next word.
+         *
+         * @return {@code false} if there are no more words
+         */
+        boolean next() {
+            start = end;
+            while (start < s.length() && Character.isWhitespace(s.charAt(start))) {
+                start++;
+            }
+            end = start;
+            while (end < s.length() && !Character.isWhitespace(s.charAt(end))) {
+                end++;
+            }
+            return !isEmpty();
+        }
+
+        boolean isEmpty() {
+            return end == start;
+        }
+
+        boolean is(String word) {
+            return end - start == word.length() && s.startsWith(word, start);
+        }
+
+        String text() {
+            return s.substring(start, end);
+        }
+    }
+
+    private static ChronoUnit unitOf(String word) {
+        switch (word) {
+        case "day":
+        case "days":
+            return ChronoUnit.DAYS;
+        case "week":
+        case "weeks":
+            return ChronoUnit.WEEKS;
+        case "month":
+        case "months":
+            return ChronoUnit.MONTHS;
+        case "year":
+        case "years":
+            return ChronoUnit.YEARS;
+        default:
+            throw new InvalidCommandException("Unknown repeat unit '" + word + "'! " + USAGE);
+        }
+    }
+
+    /**
+     * Returns how many units lie between two occurrences.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the unit the interval is counted in: days, weeks, months or years.
+     */
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Returns the last day an occurrence may fall on, or {@code null} if the rule never ends.
+     */
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    /**
+     * Returns the first occurrence strictly after {@code after}.
+     *
+     * @param first the first occurrence of the task
+     * @param after the time the occurrence must come after
+     * @return the occurrence, or {@code null} if the rule has ended by then
+     */
+    public LocalDateTime next(LocalDateTime first, LocalDateTime after) {
+        long k = firstIndexAtOrAfter(first, after);
+        try {
+            LocalDateTime t = at(first, k);
+            if (!t.isAfter(after)) t = at(first, k + 1);
+            return isOver(t) ? null : t;
+        } catch (DateTimeException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Passes every occurrence in {@code [from, to)} to the action, earliest first.
+     * Only the occurrences inside the window are computed.
+     *
+     * @param first the first occurrence of the task
+     * @param from the start of the window (inclusive)
+     * @param to the end of the window (exclusive)
+     * @param action called with each occurrence
+     */
+    public void forEachBetween(LocalDateTime first, LocalDateTime from, LocalDateTime to,
+                               Consumer<LocalDateTime> action) {
+        try {
+            for (long k = firstIndexAtOrAfter(first, from); ; k++) {
+                LocalDateTime t = at(first, k);
+                if (!t.isBefore(to) || isOver(t)) return;
+                action.accept(t);
+            }
+        } catch (DateTimeException | ArithmeticException e) {
+            //Past the largest date there is
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence at or after {@code t}.
+     * Whole units between the two dates give the answer to within one step.
+     */
+    private long firstIndexAtOrAfter(LocalDateTime first, LocalDateTime t) {
+        if (!t.isAfter(first)) return 0;
+        long k = unit.between(first, t) / interval;
+        try {
+            while (k > 0 && !at(first, k - 1).isBefore(t)) k--;
+            while (at(first, k).isBefore(t)) k++;
+        } catch (DateTimeException | ArithmeticException e) {
+            //Leave it to the caller, which stops at the same limit
+        }
+        return k;
+    }
+
+    private LocalDateTime at(LocalDateTime first, long k) {
+        return first.plus(Math.multiplyExact(k, interval), unit);
+    }
+
+    private boolean isOver(LocalDateTime t) {
+        return until != null && t.toLocalDate().isAfter(until);
+    }
+
+    /**
+     * Returns the rule as it is shown and saved, e.g. {@code every 2 weeks until 2026-06-30}.
+     */
+    @Override
+    public String toString() {
+        String name = unit.name().toLowerCase();
+        StringBuilder sb = new StringBuilder("every ");
+        if (interval == 1) {
+            sb.append(name, 0, name.length() - 1);
+        } else {
+            sb.append(interval).append(' ').append(name);
+        }
+        if (until != null) sb.append(" until ").append(until);
+        return sb.toString();
+    }
+}
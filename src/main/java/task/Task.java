@@ -1,5 +1,12 @@
 package task;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
+
 /**
  * Represents an abstract task in the Starou task management system.
  * <p>
@@ -9,8 +16,33 @@ package task;
  * </p>
  */
 public abstract class Task {
+    static final DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("MMM d yyyy, h:mma");
+    static final DateTimeFormatter storageFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String[] monthNames = new String[12];
+    private static final String[] amPmNames = new String[2];
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Task.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+        //Take the names from the formatter so the output matches it in every locale
+        DateTimeFormatter month = DateTimeFormatter.ofPattern("MMM", displayFormatter.getLocale());
+        for (Month m : Month.values()) {
+            monthNames[m.ordinal()] = month.format(m);
+        }
+        DateTimeFormatter amPm = DateTimeFormatter.ofPattern("a", displayFormatter.getLocale());
+        amPmNames[0] = amPm.format(LocalTime.of(0, 0));
+        amPmNames[1] = amPm.format(LocalTime.of(12, 0));
+    }
+
     public final String description;
-    protected boolean isDone;
+    /** The version in the high bits and whether the task is done in the lowest bit. */
+    private volatile long state;
+    long id;
 
     /**
      * Constructs a new {@code Task} with the given description.
@@ -20,15 +52,62 @@ public abstract class Task {
      */
     public Task(String description) {
         this.description = description;
-        this.isDone = false;
+    }
+
+    /**
+     * Returns the id assigned to this task when it was added to a {@link TaskList}.
+     * Unlike its position, the id does not change when other tasks are deleted.
+     *
+     * @return the task id, or {@code 0} if the task has not been added to a list
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the rule this task repeats by, or {@code null} if it does not repeat.
+     * Only deadlines and events can repeat.
+     */
+    public Recurrence getRecurrence() {
+        return null;
+    }
+
+    public boolean isDone() {
+        return (state & 1) != 0;
+    }
+
+    /**
+     * Returns how many times the task has been marked or unmarked. The version only grows,
+     * so a reader can tell whether the task changed between two looks at it.
+     *
+     * @return the version, starting at {@code 0}
+     */
+    public long getVersion() {
+        return state >>> 1;
     }
 
     public void mark() {
-        this.isDone = true;
+        setDone(true);
     }
 
     public void unmark() {
-        this.isDone = false;
+        setDone(false);
+    }
+
+    /**
+     * Sets whether the task is done and increments its version, atomically and without locking.
+     *
+     * @param isDone the new completion status
+     * @return the new version
+     */
+    public long setDone(boolean isDone) {
+        while (true) {
+            long current = state;
+            long next = (((current >>> 1) + 1) << 1) | (isDone ? 1 : 0);
+            if (STATE.compareAndSet(this, current, next)) {
+                return next >>> 1;
+            }
+        }
     }
 
     /**
@@ -41,7 +120,7 @@ public abstract class Task {
      * @return the completion status icon
      */
     public String getStatusIcon() {
-        return isDone ? "X" : " "; //X if the task is done, blank if the task isn't
+        return isDone() ? "X" : " "; //X if the task is done, blank if the task isn't
     }
 
     /**
@@ -64,7 +143,57 @@ public abstract class Task {
      *
      * @return a string containing extra task information, or an empty string if none
      */
-    protected String extraInfo() { return "";}
+    protected String extraInfo() {
+        StringBuilder sb = new StringBuilder();
+        appendExtraInfo(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the information returned by {@link #extraInfo()} to the builder.
+     * Subclasses with extra information override this so rendering needs no intermediate strings.
+     *
+     * @param sb the builder to append to
+     */
+    protected void appendExtraInfo(StringBuilder sb) {
+    }
+
+    /**
+     * Appends a date as {@link #displayFormatter} would, e.g. {@code Oct 10 2025, 11:59PM},
+     * without the intermediate objects the formatter creates.
+     */
+    static void appendDisplayDate(StringBuilder sb, LocalDateTime t) {
+        if (t.getYear() < 1 || t.getYear() > 9999) {
+            displayFormatter.formatTo(t, sb);
+            return;
+        }
+        int hour = t.getHour() % 12;
+        sb.append(monthNames[t.getMonthValue() - 1]).append(' ').append(t.getDayOfMonth()).append(' ');
+        appendPadded(sb, t.getYear(), 4).append(", ").append(hour == 0 ? 12 : hour).append(':');
+        appendPadded(sb, t.getMinute(), 2).append(amPmNames[t.getHour() / 12]);
+    }
+
+    /**
+     * Appends a date as {@link #storageFormatter} would, e.g. {@code 2025-10-10 23:59}.
+     */
+    static void appendStorageDate(StringBuilder sb, LocalDateTime t) {
+        if (t.getYear() < 1 || t.getYear() > 9999) {
+            storageFormatter.formatTo(t, sb);
+            return;
+        }
+        appendPadded(sb, t.getYear(), 4).append('-');
+        appendPadded(sb, t.getMonthValue(), 2).append('-');
+        appendPadded(sb, t.getDayOfMonth(), 2).append(' ');
+        appendPadded(sb, t.getHour(), 2).append(':');
+        appendPadded(sb, t.getMinute(), 2);
+    }
+
+    private static StringBuilder appendPadded(StringBuilder sb, int value, int width) {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) sb.append('0');
+        }
+        return sb.append(value);
+    }
 
     /**
      * Returns a string representation of this task for saving to persistent storage.
@@ -77,6 +206,29 @@ public abstract class Task {
      */
     public abstract String toStorageString();
 
+    /**
+     * Appends the storage prefix shared by all tasks, e.g. {@code "D | 1 | submit report"}.
+     */
+    StringBuilder appendStoragePrefix(StringBuilder sb) {
+        return sb.append(getTypeIcon()).append(" | ").append(isDone() ? 1 : 0).append(" | ").append(description);
+    }
+
+    /**
+     * Appends the display form of this task, exactly as {@link #toString()} returns it,
+     * without creating intermediate strings.
+     *
+     * @param sb the builder to append to
+     */
+    public void appendTo(StringBuilder sb) {
+        sb.append('[').append(getTypeIcon()).append("][").append(getStatusIcon()).append("] ").append(description);
+        int mark = sb.length();
+        sb.append(' ');
+        appendExtraInfo(sb);
+        if (sb.length() == mark + 1) {
+            sb.setLength(mark);
+        }
+    }
+
     /**
      * Returns a user-friendly string representation of this task.
      * <p>
@@ -88,8 +240,8 @@ public abstract class Task {
      */
     @Override
     public String toString() {
-        String base = String.format("[%s][%s] %s", getTypeIcon(), getStatusIcon(), description);
-        String extra = extraInfo();
-        return extra.isEmpty() ? base : base + " " + extra;
+        StringBuilder sb = new StringBuilder(description.length() + 48);
+        appendTo(sb);
+        return sb.toString();
     }
 }
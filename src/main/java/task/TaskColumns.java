@@ -0,0 +1,289 @@
+package task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Tasks stored column by column in primitive arrays, instead of as one object graph per task.
+ * <p>
+ * Every task takes one byte for its type, one bit for whether it is done, two {@code long}s of
+ * minutes since the epoch for its dates ({@code by} or {@code from}, and {@code to}) and one
+ * {@code int} naming its description. Repeat rules, which few tasks have, are kept in an array that is
+ * only allocated once the first one is appended. Descriptions are deduplicated and their UTF-8 bytes kept
+ * back to back in a single arena, so a million copies of "Read book" cost four bytes each.
+ * A loaded list of millions of tasks is a handful of large arrays the garbage collector
+ * does not need to trace, rather than several small objects per task.
+ * </p>
+ * <p>
+ * Tasks are only appended while loading; afterwards the columns are read-only and {@link #read(int)}
+ * decodes a task as a new object whenever a {@link TaskList} built on the columns needs one.
+ * Such a list answers queries by scanning the columns directly rather than building indexes,
+ * so the dates and descriptions stay in these arrays and only the tasks found are decoded.
+ * </p>
+ */
+public final class TaskColumns implements TaskSource {
+    private static final byte TODO = 0;
+    private static final byte DEADLINE = 1;
+    private static final byte EVENT = 2;
+
+    private byte[] types;
+    private long[] done;
+    private long[] starts;
+    private long[] ends;
+    private int[] descriptionIds;
+    /** The repeat rule of each task, or {@code null} while no task repeats. */
+    private Recurrence[] rules;
+    private int count;
+
+    private byte[] arena;
+    private int arenaLength;
+    /** Where each distinct description starts in the arena; one more entry marks the end of the last. */
+    private int[] descriptionOffsets;
+    private int descriptionCount;
+    /** Only needed while appending, to find descriptions already in the arena. */
+    private Map<String, Integer> distinct;
+
+    /**
+     * Constructs empty columns with room for the given number of tasks before they have to grow.
+     *
+     * @param capacity the expected number of tasks
+     */
+    public TaskColumns(int capacity) {
+        capacity = Math.max(16, capacity);
+        this.types = new byte[capacity];
+        this.done = new long[(capacity + 63) >>> 6];
+        this.starts = new long[capacity];
+        this.ends = new long[capacity];
+        this.descriptionIds = new int[capacity];
+        this.arena = new byte[capacity * 16];
+        this.descriptionOffsets = new int[capacity + 1];
+        this.distinct = new HashMap<>();
+    }
+
+    /**
+     * Returns columns holding copies of the given tasks, in order.
+     *
+     * @param tasks the tasks to store
+     * @return the finished columns
+     */
+    public static TaskColumns of(List<? extends Task> tasks) {
+        TaskColumns columns = new TaskColumns(tasks.size());
+        for (Task t : tasks) {
+            columns.append(t);
+        }
+        return columns.finish();
+    }
+
+    /**
+     * Appends a copy of a task. Later changes to the task are not seen by the columns.
+     *
+     * @param t the task to append
+     * @throws IllegalStateException if the columns have been finished
+     */
+    public void append(Task t) {
+        if (distinct == null) {
+            throw new IllegalStateException("Cannot append to finished task columns");
+        }
+        if (count == types.length) {
+            grow();
+        }
+        if (t instanceof Event) {
+            Event e = (Event) t;
+            types[count] = EVENT;
+            starts[count] = DateIndex.minutes(e.getFrom());
+            ends[count] = DateIndex.minutes(e.getTo());
+            setRule(e.getRecurrence());
+        } else if (t instanceof Deadline) {
+            Deadline d = (Deadline) t;
+            types[count] = DEADLINE;
+            starts[count] = DateIndex.minutes(d.getBy());
+            setRule(d.getRecurrence());
+        } else {
+            types[count] = TODO;
+        }
+        if (t.isDone()) {
+            done[count >>> 6] |= 1L << count;
+        }
+        descriptionIds[count] = intern(t.description);
+        count++;
+    }
+
+    /**
+     * Trims the columns to their contents and drops what was only needed for appending.
+     *
+     * @return these columns, now read-only
+     */
+    public TaskColumns finish() {
+        if (distinct == null) return this;
+        distinct = null;
+        types = Arrays.copyOf(types, count);
+        done = Arrays.copyOf(done, (count + 63) >>> 6);
+        starts = Arrays.copyOf(starts, count);
+        ends = Arrays.copyOf(ends, count);
+        descriptionIds = Arrays.copyOf(descriptionIds, count);
+        if (rules != null) rules = Arrays.copyOf(rules, count);
+        arena = Arrays.copyOf(arena, arenaLength);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, descriptionCount + 1);
+        return this;
+    }
+
+    /**
+     * Returns a list view that appends to these columns, for code that reads tasks into a {@link List}.
+     * Tasks can only be added at the end; reading an element decodes it.
+     *
+     * @return the appending view
+     */
+    public List<Task> appender() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return read(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public void add(int index, Task t) {
+                if (index != count) {
+                    throw new UnsupportedOperationException("Task columns can only be appended to");
+                }
+                append(t);
+                modCount++;
+            }
+        };
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        done = Arrays.copyOf(done, (capacity + 63) >>> 6);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+        if (rules != null) rules = Arrays.copyOf(rules, capacity);
+    }
+
+    private void setRule(Recurrence rule) {
+        if (rule == null) return;
+        if (rules == null) rules = new Recurrence[types.length];
+        rules[count] = rule;
+    }
+
+    private int intern(String description) {
+        Integer known = distinct.get(description);
+        if (known != null) return known;
+
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        if (arenaLength + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + bytes.length));
+        }
+        System.arraycopy(bytes, 0, arena, arenaLength, bytes.length);
+        arenaLength += bytes.length;
+        if (descriptionCount + 1 == descriptionOffsets.length) {
+            descriptionOffsets = Arrays.copyOf(descriptionOffsets, descriptionOffsets.length * 2);
+        }
+        int id = descriptionCount++;
+        descriptionOffsets[descriptionCount] = arenaLength;
+        distinct.put(description, id);
+        return id;
+    }
+
+    /**
+     * Returns how many distinct descriptions the tasks share.
+     */
+    public int distinctDescriptions() {
+        return descriptionCount;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    boolean isDeadline(int record) {
+        return types[record] == DEADLINE;
+    }
+
+    boolean isEvent(int record) {
+        return types[record] == EVENT;
+    }
+
+    boolean isDone(int record) {
+        return (done[record >>> 6] & (1L << record)) != 0;
+    }
+
+    boolean repeats(int record) {
+        return rules != null && rules[record] != null;
+    }
+
+    /**
+     * Returns when the deadline at the record is due or the event starts, in minutes since the epoch.
+     */
+    long start(int record) {
+        return starts[record];
+    }
+
+    /**
+     * Returns when the event at the record ends, in minutes since the epoch.
+     */
+    long end(int record) {
+        return ends[record];
+    }
+
+    /**
+     * Tests every distinct description once and returns which records have a matching one,
+     * so a scan decodes each description a single time instead of once per task.
+     *
+     * @param test the test for a description
+     * @return whether the description of a record passes the test
+     */
+    IntPredicate descriptionMatches(Predicate<String> test) {
+        BitSet matching = new BitSet(descriptionCount);
+        for (int id = 0; id < descriptionCount; id++) {
+            int from = descriptionOffsets[id];
+            if (test.test(new String(arena, from, descriptionOffsets[id + 1] - from, StandardCharsets.UTF_8))) {
+                matching.set(id);
+            }
+        }
+        return record -> matching.get(descriptionIds[record]);
+    }
+
+    @Override
+    public Task read(int record) {
+        int id = descriptionIds[record];
+        int from = descriptionOffsets[id];
+        String description = new String(arena, from, descriptionOffsets[id + 1] - from, StandardCharsets.UTF_8);
+        Recurrence rule = rules == null ? null : rules[record];
+        Task t;
+        switch (types[record]) {
+        case EVENT:
+            t = new Event(description, dateTime(starts[record]), dateTime(ends[record]), rule);
+            break;
+        case DEADLINE:
+            t = new Deadline(description, dateTime(starts[record]), rule);
+            break;
+        default:
+            t = new Todo(description);
+        }
+        if (isDone(record)) {
+            t.mark();
+        }
+        return t;
+    }
+
+    private static LocalDateTime dateTime(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+}
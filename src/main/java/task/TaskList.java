@@ -0,0 +1,938 @@
+package task;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The ordered list of tasks managed by Starou.
+ * <p>
+ * Besides behaving like a normal {@link List}, a {@code TaskList} gives every task
+ * a unique id when it is added. Ids only ever increase, so the list is always sorted
+ * by id, and a task's position comes from the {@link RankIndex} described below. Registered
+ * {@link TaskListener}s, such as the {@link KeywordIndex} and {@link DateIndex},
+ * are told about every change.
+ * </p>
+ * <p>
+ * Tasks are kept in slots in id order and do not move when others are deleted. A {@link RankIndex}
+ * over the live slots translates the 1-based positions users see into slots and back in
+ * O(log n), so deleting from the front of a huge list is as cheap as from the back.
+ * A deleted slot stays empty until more than half of the slots are empty; then the live tasks are
+ * moved together, so a long-running list only takes room for the tasks it holds. Until that first
+ * happens a task's slot is its id minus one; afterwards the ids of the slots are kept in a sorted array.
+ * </p>
+ * <p>
+ * A list can also be built on a {@link TaskSource}
+ * such as a memory-mapped save file or {@link TaskColumns}: its tasks take the first slots but are only decoded
+ * when {@link #get(int)} touches them, and the indexes are only built the first time a
+ * query needs them. Iterating over such a list decodes tasks on the fly without keeping them,
+ * so tasks seen through the iterator must not be modified. A list on non-empty {@link TaskColumns} never
+ * builds the indexes: its queries scan the columns, plus the tasks kept as objects, and decode only
+ * the tasks they return. That costs a pass over the primitive arrays per query, but keeps the memory
+ * of a loaded list at the size of its columns.
+ * </p>
+ * <p>
+ * A {@code TaskList} does not lock anything itself; {@code storage.TaskRepository} does that for it.
+ * Once the indexes are built, any number of threads may read it and call {@link #setDone(int, boolean)}
+ * at the same time, as long as adds and removes run alone.
+ * </p>
+ */
+public class TaskList extends AbstractList<Task> implements RandomAccess {
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Task[].class);
+    /** The longest stretch {@link #conflicts} steps through two repeating events for after both have started. */
+    private static final Period MAX_REPEAT_PATTERN = Period.ofYears(28);
+    /** Lists with fewer slots than this are not worth compacting. */
+    private static final int MIN_COMPACT_SLOTS = 1024;
+
+    private final TaskSource base;
+    private final int baseCount;
+    /** The base when queries scan it instead of using the indexes, or {@code null}. */
+    private final TaskColumns columns;
+    private Task[] slots;
+    /** The id of the task in each slot, ascending; {@code null} while every slot still holds id {@code slot + 1}. */
+    private long[] slotIds;
+    private int slotCount;
+    /** The highest id given out so far. */
+    private long lastId;
+    private final BitSet live;
+    private RankIndex ranks;
+    private int size;
+
+    private final List<TaskListener> listeners = new ArrayList<>();
+    private final KeywordIndex keywordIndex = new KeywordIndex(this::byId, id -> positionOf(id) >= 0);
+    private final DateIndex dateIndex = new DateIndex();
+    private volatile boolean isIndexed;
+
+    /**
+     * Constructs an empty task list.
+     */
+    public TaskList() {
+        this(List.of());
+    }
+
+    /**
+     * Constructs a task list holding the given tasks in order, e.g. those loaded from storage.
+     *
+     * @param initial the tasks to start with
+     */
+    public TaskList(Collection<? extends Task> initial) {
+        this.base = null;
+        this.baseCount = 0;
+        this.columns = null;
+        this.slots = new Task[Math.max(16, initial.size())];
+        for (Task t : initial) {
+            t.id = slotCount + 1;
+            slots[slotCount++] = t;
+        }
+        this.size = slotCount;
+        this.lastId = slotCount;
+        this.live = new BitSet(slotCount);
+        live.set(0, slotCount);
+        this.ranks = new RankIndex(slotCount);
+        ensureIndexed();
+    }
+
+    /**
+     * Constructs a task list over a lazily decoded source. Nothing is decoded up front.
+     *
+     * @param base the source holding the initial tasks
+     */
+    public TaskList(TaskSource base) {
+        this.base = base;
+        this.baseCount = base.size();
+        //Without loaded tasks there is nothing to save by scanning, so such a list indexes its tasks as usual
+        this.columns = base instanceof TaskColumns && baseCount > 0 ? (TaskColumns) base : null;
+        this.slots = new Task[Math.max(16, baseCount)];
+        this.slotCount = baseCount;
+        this.lastId = baseCount;
+        this.size = baseCount;
+        this.live = new BitSet(baseCount);
+        live.set(0, baseCount);
+        this.ranks = new RankIndex(baseCount);
+    }
+
+    /**
+     * Builds the search indexes if they have not been built yet, unless the list scans its columns instead.
+     * Queries do this on first use; concurrent callers must do it while holding a write lock first.
+     */
+    public void ensureIndexed() {
+        if (isIndexed || columns != null) return;
+        isIndexed = true;
+        addListener(keywordIndex);
+        addListener(dateIndex);
+    }
+
+    /**
+     * Returns whether the search indexes have been built.
+     */
+    public boolean isIndexed() {
+        return isIndexed;
+    }
+
+    /**
+     * Returns whether queries scan the columns the list was loaded into, so no indexes are ever built.
+     */
+    public boolean scansColumns() {
+        return columns != null;
+    }
+
+    /**
+     * Registers a listener and immediately reports every task already in the list to it.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(TaskListener listener) {
+        listeners.add(listener);
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            listener.onAdd(peekSlot(slot));
+        }
+    }
+
+    /**
+     * Returns the task at the given position, decoding it first if necessary.
+     * Decoded tasks are kept, so changes made to them are not lost.
+     */
+    @Override
+    public Task get(int index) {
+        checkIndex(index);
+        int slot = ranks.select(index);
+        Task t = (Task) SLOT.getAcquire(slots, slot);
+        if (t == null) {
+            //Readers may race to decode the same slot; all of them must end up with the task that is kept
+            Task decoded = decode(slot);
+            Task kept = (Task) SLOT.compareAndExchangeRelease(slots, slot, null, decoded);
+            t = kept == null ? decoded : kept;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the task at the given position without keeping it if it had to be decoded.
+     */
+    private Task peekSlot(int slot) {
+        Task t = (Task) SLOT.getAcquire(slots, slot);
+        return t != null ? t : decode(slot);
+    }
+
+    private Task decode(int slot) {
+        return decodeId(idOf(slot));
+    }
+
+    /**
+     * Decodes a task of the base source. Those tasks hold the first ids, so the id tells where it is.
+     */
+    private Task decodeId(long id) {
+        Task t = base.read((int) (id - 1));
+        t.id = id;
+        return t;
+    }
+
+    private long idOf(int slot) {
+        return slotIds == null ? slot + 1 : slotIds[slot];
+    }
+
+    /**
+     * Returns the slot holding the id, or {@code -(insertion point) - 1} if no slot does.
+     */
+    private int slotOf(long id) {
+        if (slotIds != null) return Arrays.binarySearch(slotIds, 0, slotCount, id);
+        if (id < 1) return -1;
+        return id <= slotCount ? (int) (id - 1) : -slotCount - 1;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a task. New tasks (without an id) may only be appended at the end;
+     * a previously removed task may be put back at the position matching its id.
+     */
+    @Override
+    public void add(int index, Task task) {
+        int slot;
+        if (task.id == 0) {
+            if (index != size) {
+                throw new IllegalArgumentException("New tasks can only be appended to the list");
+            }
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slotCount * 2);
+                if (slotIds != null) slotIds = Arrays.copyOf(slotIds, slots.length);
+            }
+            slot = slotCount++;
+            task.id = ++lastId;
+            if (slotIds != null) slotIds[slot] = task.id;
+            ranks.append();
+        } else {
+            int found = slotOf(task.id);
+            slot = found >= 0 ? found : -found - 1;
+            if (task.id > lastId || (found >= 0 && live.get(slot)) || ranks.rank(slot) != index) {
+                throw new IllegalArgumentException("Task " + task.id + " does not belong at position " + index);
+            }
+            if (found < 0) {
+                //Its slot was compacted away since it was removed
+                insertSlot(slot, task.id);
+            } else {
+                ranks.add(slot, 1);
+            }
+        }
+        live.set(slot);
+        slots[slot] = task;
+        size++;
+        modCount++;
+        for (TaskListener l : listeners) {
+            l.onAdd(task);
+        }
+    }
+
+    @Override
+    public Task remove(int index) {
+        checkIndex(index);
+        int slot = ranks.select(index);
+        Task removed = peekSlot(slot);
+        ranks.add(slot, -1);
+        live.clear(slot);
+        size--;
+        slots[slot] = null;
+        modCount++;
+        for (TaskListener l : listeners) {
+            l.onRemove(removed);
+        }
+        if (slotCount >= MIN_COMPACT_SLOTS && size < slotCount / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the live tasks into the first slots, in order, and rebuilds the rank index over them.
+     * Tasks not decoded yet stay that way, as their ids still say where the base source has them.
+     */
+    private void compact() {
+        Task[] compacted = new Task[Math.max(16, size * 2)];
+        long[] ids = new long[compacted.length];
+        int count = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            compacted[count] = slots[slot];
+            ids[count++] = idOf(slot);
+        }
+        slots = compacted;
+        slotIds = ids;
+        slotCount = count;
+        live.clear();
+        live.set(0, count);
+        ranks = new RankIndex(count);
+    }
+
+    /**
+     * Opens a live slot at {@code slot} for a task put back after its own slot was compacted away,
+     * moving the later slots up by one. This costs O(n), but only happens when a removal is undone.
+     */
+    private void insertSlot(int slot, long id) {
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slotCount * 2);
+            slotIds = Arrays.copyOf(slotIds, slots.length);
+        }
+        System.arraycopy(slots, slot, slots, slot + 1, slotCount - slot);
+        System.arraycopy(slotIds, slot, slotIds, slot + 1, slotCount - slot);
+        slotIds[slot] = id;
+        for (int i = live.previousSetBit(slotCount - 1); i >= slot; i = live.previousSetBit(i - 1)) {
+            live.clear(i);
+            live.set(i + 1);
+        }
+        live.set(slot);
+        slotCount++;
+        ranks = new RankIndex(live, slotCount);
+    }
+
+    /**
+     * Marks or unmarks the task at the given position and notifies listeners.
+     *
+     * @param index the 0-based position of the task
+     * @param isDone the new completion status
+     * @return the updated task
+     */
+    public Task setDone(int index, boolean isDone) {
+        Task t = get(index);
+        if (isDone) {
+            t.mark();
+        } else {
+            t.unmark();
+        }
+        for (TaskListener l : listeners) {
+            l.onUpdate(t);
+        }
+        return t;
+    }
+
+    /**
+     * Returns the 0-based position of the task with the given id.
+     *
+     * @param id the task id
+     * @return the position, or {@code -1} if no task in the list has that id
+     */
+    public int positionOf(long id) {
+        int slot = slotOf(id);
+        if (slot < 0 || !live.get(slot)) return -1;
+        return ranks.rank(slot);
+    }
+
+    Task byId(long id) {
+        int slot = slotOf(id);
+        return slot < 0 || !live.get(slot) ? null : peekSlot(slot);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Task) || ((Task) o).id == 0) return -1;
+        return positionOf(((Task) o).id);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns up to {@code count} tasks starting at the given position, e.g. one page of the list.
+     * As with {@link #iterator()}, tasks decoded for this are not kept, so memory is bounded by the page.
+     *
+     * @param from the 0-based position of the first task
+     * @param count the maximum number of tasks
+     * @return the tasks, fewer than {@code count} at the end of the list
+     */
+    public List<Task> range(int from, int count) {
+        List<Task> page = new ArrayList<>();
+        if (from < 0 || from >= size) return page;
+        for (int slot = ranks.select(from); slot >= 0 && page.size() < count; slot = live.nextSetBit(slot + 1)) {
+            page.add(peekSlot(slot));
+        }
+        return page;
+    }
+
+    /**
+     * Returns the position of the first task with an id greater than {@code id}. Ids grow along
+     * the list, so this is where a page continuing after that task starts, even if it was deleted.
+     *
+     * @param id the id of the last task already shown, or {@code 0} to start at the beginning
+     * @return the position, or {@link #size()} if there are no later tasks
+     */
+    public int positionAfter(long id) {
+        int slot = slotOf(Math.max(0, id));
+        return ranks.rank(slot >= 0 ? slot + 1 : -slot - 1);
+    }
+
+    /**
+     * Iterates over the tasks in order. Tasks that have not been decoded yet are
+     * decoded for the iteration only and are not kept.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return slotIterator(slots, slotIds, live, true);
+    }
+
+    private Iterator<Task> slotIterator(Task[] slots, long[] ids, BitSet live, boolean isChecked) {
+        return new Iterator<>() {
+            private int next = live.nextSetBit(0);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Task next() {
+                if (isChecked && modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next < 0) throw new NoSuchElementException();
+                Task t = slots[next];
+                if (t == null) t = decodeId(ids == null ? next + 1 : ids[next]);
+                next = live.nextSetBit(next + 1);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Returns an unmodifiable copy of the list as it is now, for example to save it on another thread.
+     * Only the positions are copied; tasks that have not been decoded stay that way.
+     *
+     * @return a frozen view of the current tasks
+     */
+    public List<Task> snapshot() {
+        Task[] frozenSlots = Arrays.copyOf(slots, slotCount);
+        long[] frozenIds = slotIds == null ? null : Arrays.copyOf(slotIds, slotCount);
+        BitSet frozenLive = (BitSet) live.clone();
+        RankIndex frozenRanks = ranks.copy();
+        int frozenSize = size;
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                int slot = frozenRanks.select(index);
+                Task t = frozenSlots[slot];
+                return t != null ? t : decodeId(frozenIds == null ? slot + 1 : frozenIds[slot]);
+            }
+
+            @Override
+            public int size() {
+                return frozenSize;
+            }
+
+            @Override
+            public Iterator<Task> iterator() {
+                return slotIterator(frozenSlots, frozenIds, frozenLive, false);
+            }
+        };
+    }
+
+    /**
+     * Finds the tasks whose description contains every given keyword, ignoring case.
+     *
+     * @param keywords one or more keywords
+     * @return the 0-based positions of the matching tasks, in list order
+     */
+    public int[] find(String... keywords) {
+        if (columns != null) {
+            return scanPositions(columns.descriptionMatches(d -> KeywordIndex.containsAll(d, keywords)),
+                    t -> KeywordIndex.containsAll(t.description, keywords));
+        }
+        ensureIndexed();
+        long[] ids = keywordIndex.search(keywords);
+        if (ids == null) {
+            //Keywords too short for the index
+            int[] positions = new int[size];
+            int count = 0;
+            int i = 0;
+            for (Task t : this) {
+                if (KeywordIndex.containsAll(t.description, keywords)) positions[count++] = i;
+                i++;
+            }
+            return Arrays.copyOf(positions, count);
+        }
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = positionOf(ids[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the 0-based positions of the tasks matching a query, in list order.
+     *
+     * @param query the compiled query
+     * @return the matching positions
+     */
+    public int[] search(Query query) {
+        if (columns != null) {
+            return scanPositions(record -> query.test(decodeId(record + 1)), query::test);
+        }
+        ensureIndexed();
+        return query.evaluate(this);
+    }
+
+    /**
+     * Returns the ids of tasks whose description contains the keyword, in ascending order,
+     * or {@code null} if the keyword is too short for the index.
+     */
+    long[] keywordIds(String keyword) {
+        return keywordIndex.search(keyword);
+    }
+
+    /**
+     * Returns the ids of deadlines due in {@code [from, to)}, in ascending order.
+     */
+    long[] deadlineIds(LocalDateTime from, LocalDateTime to) {
+        List<Long> found = dateIndex.deadlinesBetween(from, to);
+        //Queries compare the first occurrence of a repeating deadline, as Query does task by task
+        for (long id : dateIndex.repeatingDeadlines()) {
+            LocalDateTime by = ((Deadline) byId(id)).getBy();
+            if (!by.isBefore(from) && by.isBefore(to)) found.add(id);
+        }
+        long[] ids = found.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the deadlines due at or after {@code from} and before {@code to}, earliest first.
+     * A repeating deadline is returned once for each of its occurrences in the window, as a copy due then.
+     *
+     * @param from the start of the window (inclusive)
+     * @param to the end of the window (exclusive)
+     * @return the matching deadlines
+     */
+    public List<Deadline> deadlinesBetween(LocalDateTime from, LocalDateTime to) {
+        List<Deadline> found;
+        List<Deadline> repeating;
+        if (columns != null) {
+            long first = ceilMinutes(from);
+            long end = ceilMinutes(to);
+            found = scanTasks(r -> columns.isDeadline(r) && !columns.repeats(r)
+                            && columns.start(r) >= first && columns.start(r) < end,
+                    t -> t instanceof Deadline && t.getRecurrence() == null
+                            && !((Deadline) t).getBy().isBefore(from) && ((Deadline) t).getBy().isBefore(to));
+            found.sort(Comparator.comparing(Deadline::getBy));
+            repeating = scanTasks(r -> columns.isDeadline(r) && columns.repeats(r),
+                    t -> t instanceof Deadline && t.getRecurrence() != null);
+        } else {
+            ensureIndexed();
+            found = resolve(dateIndex.deadlinesBetween(from, to));
+            repeating = resolve(dateIndex.repeatingDeadlines());
+        }
+        if (repeating.isEmpty()) return found;
+        for (Deadline d : repeating) {
+            d.getRecurrence().forEachBetween(d.getBy(), from, to, at -> found.add(d.occurrence(at)));
+        }
+        found.sort(Comparator.comparing(Deadline::getBy));
+        return found;
+    }
+
+    /**
+     * Returns the deadlines that are not done yet and were due before {@code now}, earliest first.
+     * Repeating deadlines always have an occurrence in the past once started, so they are left out.
+     *
+     * @param now the current time
+     * @return the overdue deadlines
+     */
+    public List<Deadline> overdue(LocalDateTime now) {
+        if (columns != null) {
+            long end = ceilMinutes(now);
+            List<Deadline> found = scanTasks(r -> columns.isDeadline(r) && !columns.repeats(r) && !columns.isDone(r)
+                            && columns.start(r) < end,
+                    t -> t instanceof Deadline && t.getRecurrence() == null && !t.isDone()
+                            && ((Deadline) t).getBy().isBefore(now));
+            found.sort(Comparator.comparing(Deadline::getBy));
+            return found;
+        }
+        ensureIndexed();
+        return resolve(dateIndex.overdue(now));
+    }
+
+    /**
+     * Returns the events that take place at least partly between {@code from} and {@code to}.
+     * A repeating event is returned once for each occurrence in the window, as a copy taking place then.
+     *
+     * @param from the start of the window (inclusive)
+     * @param to the end of the window (exclusive)
+     * @return the overlapping events, in order of start time
+     */
+    public List<Event> eventsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Event> found;
+        if (columns != null) {
+            //The same whole minutes the interval tree compares
+            long first = DateIndex.minutes(from);
+            long last = DateIndex.minutes(to) - 1;
+            found = scanTasks(r -> columns.isEvent(r) && !columns.repeats(r)
+                            && columns.start(r) <= last && columns.end(r) >= first,
+                    t -> t instanceof Event && t.getRecurrence() == null
+                            && DateIndex.minutes(((Event) t).getFrom()) <= last
+                            && DateIndex.minutes(((Event) t).getTo()) >= first);
+            found.sort(Comparator.comparing(Event::getFrom));
+        } else {
+            ensureIndexed();
+            found = resolve(dateIndex.eventsBetween(from, to));
+        }
+        List<Event> repeating = repeatingEvents();
+        if (repeating.isEmpty()) return found;
+        for (Event e : repeating) {
+            //An occurrence starting up to one event length before the window still reaches into it
+            LocalDateTime earliest = from.minus(Duration.between(e.getFrom(), e.getTo()));
+            e.getRecurrence().forEachBetween(e.getFrom(), earliest, to, at -> found.add(e.occurrence(at)));
+        }
+        found.sort(Comparator.comparing(Event::getFrom));
+        return found;
+    }
+
+    /**
+     * Returns the events that clash with the time from {@code from} to {@code to}: those starting before
+     * it ends and ending after it starts. An event that ends just as the time starts does not clash.
+     * The interval tree of events finds them in O(log n + k), plus one step per repeating event.
+     *
+     * @param from the start of the time
+     * @param to the end of the time
+     * @return the clashing events, in order of start time
+     */
+    public List<Event> clashesWith(LocalDateTime from, LocalDateTime to) {
+        List<Event> found = eventsBetween(from, to);
+        found.removeIf(e -> !e.getFrom().isBefore(to) || !e.getTo().isAfter(from));
+        return found;
+    }
+
+    /**
+     * Returns every pair of events that clash. The events are swept in order of start time while the
+     * ones still running are kept in a queue ordered by end time, so each event is only compared with
+     * the events it actually overlaps and the work grows with the number of clashes, not with the
+     * square of the number of events.
+     * <p>
+     * Without a window, every event is checked and each pair of events is reported once, at its first clash.
+     * Only the events that do not repeat are swept. The occurrences of each repeating event are walked alongside
+     * them, jumping straight to the one that could clash with the next event. Each pair of repeating events is
+     * checked by stepping through the occurrences of one until the first clash, for at most one
+     * {@link #repeatPattern pattern} of the two rules after both have started, after which their occurrences only
+     * line up as before. No occurrences are collected, so memory does not grow with the calendar span.
+     * </p>
+     *
+     * @param from the start of the window (inclusive), or {@code null} to check every event
+     * @param to the end of the window (exclusive), or {@code null} to check every event
+     * @return the clashing pairs, each earlier event first, in order of the later event's start time
+     */
+    public List<Event[]> conflicts(LocalDateTime from, LocalDateTime to) {
+        ensureIndexed();
+        if (from != null) {
+            return sweep(eventsBetween(from, to));
+        }
+
+        List<Event> oneOffs = oneOffEvents();
+        List<Event[]> clashes = sweep(oneOffs);
+        List<Event> repeating = repeatingEvents();
+        if (repeating.isEmpty()) return clashes;
+        List<Event[]> withRepeating = new ArrayList<>();
+        Duration[] lengths = new Duration[repeating.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = Duration.between(repeating.get(i).getFrom(), repeating.get(i).getTo());
+        }
+        //In whole minutes, as the interval tree compares them, so the walks below are plain comparisons
+        long[] starts = new long[oneOffs.size()];
+        long[] ends = new long[oneOffs.size()];
+        for (int k = 0; k < starts.length; k++) {
+            starts[k] = DateIndex.minutes(oneOffs.get(k).getFrom());
+            ends[k] = DateIndex.minutes(oneOffs.get(k).getTo());
+        }
+        for (int i = 0; i < lengths.length; i++) {
+            Event r = repeating.get(i);
+            long length = lengths[i].toMinutes();
+            //Only the first occurrence ending after an event starts can clash with it, and that only moves forward
+            LocalDateTime at = r.getRecurrence().next(r.getFrom(), r.getFrom().minusNanos(1));
+            long start = at == null ? 0 : DateIndex.minutes(at);
+            for (int k = 0; k < starts.length && at != null; k++) {
+                if (start + length <= starts[k]) {
+                    at = r.getRecurrence().next(r.getFrom(), oneOffs.get(k).getFrom().minus(lengths[i]));
+                    if (at == null) break;
+                    start = DateIndex.minutes(at);
+                }
+                if (start < ends[k]) withRepeating.add(inOrder(oneOffs.get(k), r.occurrence(at)));
+            }
+        }
+        for (int i = 0; i < repeating.size(); i++) {
+            for (int j = i + 1; j < repeating.size(); j++) {
+                Event[] clash = firstClash(repeating.get(i), lengths[i], repeating.get(j), lengths[j]);
+                if (clash != null) withRepeating.add(clash);
+            }
+        }
+        //The sweep already returns its clashes in this order, so only the others need sorting
+        Comparator<Event[]> order = Comparator.comparing((Event[] c) -> c[1].getFrom()).thenComparing(c -> c[0].getFrom());
+        withRepeating.sort(order);
+        return merge(clashes, withRepeating, order);
+    }
+
+    private static List<Event[]> merge(List<Event[]> a, List<Event[]> b, Comparator<Event[]> order) {
+        List<Event[]> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            boolean takesA = j == b.size() || (i < a.size() && order.compare(a.get(i), b.get(j)) <= 0);
+            merged.add(takesA ? a.get(i++) : b.get(j++));
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the clashing pairs among events given in order of start time, as {@link #conflicts} describes.
+     */
+    private static List<Event[]> sweep(List<Event> events) {
+        List<Event[]> clashes = new ArrayList<>();
+        PriorityQueue<Event> running = new PriorityQueue<>(Comparator.comparing(Event::getTo));
+        List<Event> overlapped = new ArrayList<>();
+        for (Event e : events) {
+            while (!running.isEmpty() && !running.peek().getTo().isAfter(e.getFrom())) {
+                running.poll();
+            }
+            for (Event earlier : running) {
+                if (earlier.getFrom().isBefore(e.getTo())) overlapped.add(earlier);
+            }
+            overlapped.sort(Comparator.comparing(Event::getFrom));
+            for (Event earlier : overlapped) {
+                clashes.add(new Event[] {earlier, e});
+            }
+            overlapped.clear();
+            running.add(e);
+        }
+        return clashes;
+    }
+
+    /**
+     * Returns when the first occurrence of a repeating event that clashes with the time from {@code from}
+     * to {@code to} starts, or {@code null} if none does.
+     */
+    private static LocalDateTime firstClash(Event repeating, Duration length, LocalDateTime from, LocalDateTime to) {
+        //An occurrence starting up to one event length before the time still reaches into it
+        LocalDateTime[] found = new LocalDateTime[1];
+        repeating.getRecurrence().forEachBetween(repeating.getFrom(), from.minus(length), to, at -> {
+            if (found[0] == null && at.plus(length).isAfter(from)) found[0] = at;
+        });
+        return found[0];
+    }
+
+    /**
+     * Returns the first clash between the occurrences of two repeating events, or {@code null} if they never clash.
+     * The occurrences of the first are stepped through from the last one ending before the second starts.
+     */
+    private static Event[] firstClash(Event a, Duration lengthA, Event b, Duration lengthB) {
+        LocalDateTime bothStarted = a.getFrom().isAfter(b.getFrom()) ? a.getFrom() : b.getFrom();
+        LocalDateTime end = bothStarted.plus(repeatPattern(List.of(a, b))).plus(lengthB);
+        //Occurrences starting at or before this end before the second event starts; a rule may also have ended at once
+        LocalDateTime start = b.getFrom().minus(lengthA);
+        LocalDateTime at = a.getRecurrence().next(a.getFrom(), a.getFrom().isBefore(start) ? start : a.getFrom().minusNanos(1));
+        while (at != null && at.isBefore(end)) {
+            LocalDateTime clash = firstClash(b, lengthB, at, at.plus(lengthA));
+            if (clash != null) return inOrder(a.occurrence(at), b.occurrence(clash));
+            at = a.getRecurrence().next(a.getFrom(), at);
+        }
+        return null;
+    }
+
+    /**
+     * Returns two clashing events with the one starting earlier first, or the first one given if they start together.
+     */
+    private static Event[] inOrder(Event first, Event second) {
+        return second.getFrom().isBefore(first.getFrom()) ? new Event[] {second, first} : new Event[] {first, second};
+    }
+
+    /**
+     * Returns how long it takes until the occurrences of all the given repeating events line up the way
+     * they did at the start again: the least common multiple of their intervals, counted in days for daily
+     * and weekly rules and in months for monthly and yearly ones. When both kinds are mixed, or the multiple
+     * is longer, it is {@link #MAX_REPEAT_PATTERN}, after which dates fall on the same weekdays again.
+     */
+    private static Period repeatPattern(List<Event> repeating) {
+        long days = 1;
+        long months = 1;
+        boolean isByDay = false;
+        boolean isByMonth = false;
+        for (Event e : repeating) {
+            Recurrence rule = e.getRecurrence();
+            switch (rule.getUnit()) {
+            case DAYS:
+                days = lcm(days, rule.getInterval());
+                isByDay = true;
+                break;
+            case WEEKS:
+                days = lcm(days, 7L * rule.getInterval());
+                isByDay = true;
+                break;
+            case MONTHS:
+                months = lcm(months, rule.getInterval());
+                isByMonth = true;
+                break;
+            default:
+                months = lcm(months, 12L * rule.getInterval());
+                isByMonth = true;
+                break;
+            }
+            if ((isByDay && isByMonth) || days > MAX_REPEAT_PATTERN.getYears() * 366L
+                    || months > MAX_REPEAT_PATTERN.toTotalMonths()) {
+                return MAX_REPEAT_PATTERN;
+            }
+        }
+        return isByDay ? Period.ofDays((int) days) : Period.ofMonths((int) months);
+    }
+
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long r = x % y;
+            x = y;
+            y = r;
+        }
+        return a / x * b;
+    }
+
+    /**
+     * Returns the free time between {@code from} and {@code to} that comes in slots of at least
+     * {@code length}, found by sweeping through the events in the window in order of start time.
+     *
+     * @param from the start of the window (inclusive)
+     * @param to the end of the window (exclusive)
+     * @param length the shortest slot worth returning
+     * @return the free slots as {@code {start, end}} pairs, earliest first
+     */
+    public List<LocalDateTime[]> freeSlots(LocalDateTime from, LocalDateTime to, Duration length) {
+        List<LocalDateTime[]> slots = new ArrayList<>();
+        LocalDateTime free = from;
+        for (Event e : eventsBetween(from, to)) {
+            if (fits(free, e.getFrom(), length)) slots.add(new LocalDateTime[] {free, e.getFrom()});
+            if (e.getTo().isAfter(free)) free = e.getTo();
+        }
+        if (fits(free, to, length)) slots.add(new LocalDateTime[] {free, to});
+        return slots;
+    }
+
+    private static boolean fits(LocalDateTime start, LocalDateTime end, Duration length) {
+        return !Duration.between(start, end).minus(length).isNegative();
+    }
+
+    /**
+     * Returns every event that does not repeat, in order of start time.
+     */
+    private List<Event> oneOffEvents() {
+        if (columns == null) return resolve(dateIndex.events());
+        List<Event> found = scanTasks(r -> columns.isEvent(r) && !columns.repeats(r),
+                t -> t instanceof Event && t.getRecurrence() == null);
+        found.sort(Comparator.comparing(Event::getFrom));
+        return found;
+    }
+
+    /**
+     * Returns every repeating event, in list order.
+     */
+    private List<Event> repeatingEvents() {
+        if (columns == null) {
+            ensureIndexed();
+            return resolve(dateIndex.repeatingEvents());
+        }
+        return scanTasks(r -> columns.isEvent(r) && columns.repeats(r),
+                t -> t instanceof Event && t.getRecurrence() != null);
+    }
+
+    /**
+     * Returns the positions of the tasks that pass a test, in list order. Tasks kept as objects are
+     * tested as such, and the rest where they are stored in the columns, so nothing is decoded.
+     *
+     * @param inColumns the test for a record of the columns
+     * @param asObject the test for a task kept as an object
+     */
+    private int[] scanPositions(IntPredicate inColumns, Predicate<Task> asObject) {
+        int[] positions = new int[size];
+        int count = 0;
+        int position = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (passes(slot, inColumns, asObject)) positions[count++] = position;
+            position++;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Returns the tasks that pass a test, in list order, like {@link #scanPositions}.
+     * Only the tasks returned are decoded, and they are not kept.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> scanTasks(IntPredicate inColumns, Predicate<Task> asObject) {
+        List<T> found = new ArrayList<>();
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            if (passes(slot, inColumns, asObject)) found.add((T) peekSlot(slot));
+        }
+        return found;
+    }
+
+    private boolean passes(int slot, IntPredicate inColumns, Predicate<Task> asObject) {
+        Task t = (Task) SLOT.getAcquire(slots, slot);
+        return t != null ? asObject.test(t) : inColumns.test((int) (idOf(slot) - 1));
+    }
+
+    /**
+     * Returns the first whole minute since the epoch at or after the given time.
+     */
+    private static long ceilMinutes(LocalDateTime t) {
+        long minutes = DateIndex.minutes(t);
+        return t.getSecond() == 0 && t.getNano() == 0 ? minutes : minutes + 1;
+    }
+
+    /**
+     * Looks up tasks by id for a query. Tasks that have to be decoded for this are not kept.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> resolve(Collection<Long> ids) {
+        List<T> found = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            found.add((T) peekSlot(slotOf(id)));
+        }
+        return found;
+    }
+}
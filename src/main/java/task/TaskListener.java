@@ -0,0 +1,33 @@
+package task;
+
+/**
+ * Receives notifications when the contents of a {@link TaskList} change.
+ * <p>
+ * Secondary structures such as search indexes implement this interface so they
+ * stay in sync with the list on add, delete and load without the list knowing about them.
+ * </p>
+ */
+public interface TaskListener {
+    /**
+     * Called after a task has been added to the list, including tasks present when the listener is registered.
+     *
+     * @param task the added task, already carrying its id
+     */
+    void onAdd(Task task);
+
+    /**
+     * Called after a task has been removed from the list.
+     *
+     * @param task the removed task
+     */
+    void onRemove(Task task);
+
+    /**
+     * Called after a task in the list has been marked or unmarked. Several tasks may be marked at once
+     * on different threads, and while others read, so implementations must guard what this changes.
+     *
+     * @param task the updated task
+     */
+    default void onUpdate(Task task) {
+    }
+}
@@ -0,0 +1,22 @@
+package task;
+
+/**
+ * A read-only, random-access source of tasks that a {@link TaskList} can be built on
+ * without decoding every task up front, such as a memory-mapped save file.
+ */
+public interface TaskSource {
+    /**
+     * Returns the number of tasks in the source.
+     *
+     * @return the task count
+     */
+    int size();
+
+    /**
+     * Decodes the task stored at the given record number. Every call returns a new object.
+     *
+     * @param record the 0-based record number
+     * @return the decoded task
+     */
+    Task read(int record);
+}
@@ -12,6 +12,6 @@ public class Todo extends Task {
 
     @Override
     public String toStorageString() {
-        return String.format("T | %d | %s", isDone ? 1 : 0, description);
+        return appendStoragePrefix(new StringBuilder(description.length() + 8)).toString();
     }
 }
@@ -0,0 +1,165 @@
+package ui;
+
+import task.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes Starou's boxed replies to an output stream.
+ * <p>
+ * Lines are appended to one reused character buffer and tasks are rendered into it with
+ * {@link Task#appendTo(StringBuilder)}, so printing a long list creates no per-line strings.
+ * The buffer is encoded in chunks into a reused byte buffer and handed to the stream,
+ * which is flushed once at the end of each box.
+ * </p>
+ *
+ * <p><b>Example:</b></p>
+ * <pre>
+ *  _____________________________________________________
+ *   1. [T][ ] read book
+ *  _____________________________________________________
+ * </pre>
+ */
+public final class BoxWriter {
+    /** The horizontal rule above and below each box. */
+    public static final String LINE = " _____________________________________________________";
+
+    private static final String NEWLINE = System.lineSeparator();
+    private static final int CHUNK_CHARS = 32 * 1024;
+
+    private final OutputStream out;
+    private final CharsetEncoder encoder;
+    private final StringBuilder chars = new StringBuilder(CHUNK_CHARS + 256);
+    private final ByteBuffer bytes;
+    private String indent = "  ";
+
+    /**
+     * Constructs a writer that encodes with the given charset.
+     *
+     * @param out the stream boxes are written to
+     * @param charset the charset of the stream
+     */
+    public BoxWriter(OutputStream out, Charset charset) {
+        this.out = out;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(CHUNK_CHARS * encoder.maxBytesPerChar()) + 1024);
+    }
+
+    /**
+     * Returns a writer for {@link System#out}, using the same charset the console does.
+     */
+    public static BoxWriter stdout() {
+        String name = System.getProperty("sun.stdout.encoding");
+        Charset charset = Charset.defaultCharset();
+        if (name != null && Charset.isSupported(name)) {
+            charset = Charset.forName(name);
+        }
+        return new BoxWriter(System.out, charset);
+    }
+
+    /**
+     * Prints the lines inside one box.
+     *
+     * @param lines the lines to print, without indentation
+     */
+    public void box(String... lines) {
+        begin();
+        for (String s : lines) {
+            line(s);
+        }
+        end();
+    }
+
+    /**
+     * Starts a box. Must be followed by {@link #end()}.
+     */
+    public BoxWriter begin() {
+        chars.setLength(0);
+        chars.append(LINE).append(NEWLINE);
+        indent = "  ";
+        return this;
+    }
+
+    /**
+     * Starts a reply without the rules and indentation of a box, as {@code find} prints.
+     * Must be followed by {@link #end()}.
+     */
+    public BoxWriter beginPlain() {
+        chars.setLength(0);
+        indent = "";
+        return this;
+    }
+
+    /**
+     * Adds an indented line to the current box. Buffered lines are written out
+     * whenever a chunk fills up, always at a line boundary.
+     */
+    public BoxWriter line(CharSequence s) {
+        chars.append(indent).append(s).append(NEWLINE);
+        drainIfFull();
+        return this;
+    }
+
+    /**
+     * Adds a numbered task line to the current box, e.g. {@code 2. [D][ ] submit report (by: ...)}.
+     *
+     * @param number the 1-based number shown in front of the task
+     * @param task the task to render
+     */
+    public BoxWriter task(int number, Task task) {
+        chars.append(indent).append(number).append(". ");
+        task.appendTo(chars);
+        chars.append(NEWLINE);
+        drainIfFull();
+        return this;
+    }
+
+    /**
+     * Closes the current reply and flushes everything to the stream.
+     */
+    public void end() {
+        if (!indent.isEmpty()) {
+            chars.append(LINE).append(NEWLINE);
+        }
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drainIfFull() {
+        if (chars.length() >= CHUNK_CHARS) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        CharBuffer in = CharBuffer.wrap(chars);
+        encoder.reset();
+        try {
+            while (true) {
+                boolean isDone = !encoder.encode(in, bytes, true).isOverflow();
+                if (isDone) {
+                    encoder.flush(bytes);
+                }
+                out.write(bytes.array(), 0, bytes.position());
+                bytes.clear();
+                if (isDone) break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chars.setLength(0);
+    }
+}